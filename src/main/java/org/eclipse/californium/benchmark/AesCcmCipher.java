@@ -0,0 +1,309 @@
+package org.eclipse.californium.benchmark;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * AES-CCM (RFC 3610) for DTLS records, reusing its ciphers and buffers so that encrypting or decrypting a record does
+ * not allocate once the buffers have grown to the record size.
+ * <p>
+ * The CBC-MAC is computed with one AES/CBC call over the formatted input and the key stream with one AES/ECB call over
+ * all the counter blocks, instead of one cipher call per block. For DTLS records the nonce and the additional data are
+ * written directly into these inputs.
+ * <p>
+ * Not thread safe, use one instance per thread (or connection).
+ */
+public class AesCcmCipher {
+
+	private static final int BLOCK = 16;
+	private static final byte[] ZERO_IV = new byte[BLOCK];
+
+	/** Length of the DTLS 1.2 additional data : epoch, sequence number, type, version, length. */
+	public static final int DTLS_AAD_LENGTH = 13;
+	/** Length of the DTLS 1.2 CCM nonce : implicit iv, epoch, sequence number. */
+	public static final int DTLS_NONCE_LENGTH = 12;
+
+	private final Cipher ecb;
+	private final Cipher cbc;
+	private final IvParameterSpec zeroIv = new IvParameterSpec(ZERO_IV);
+	private final int tagLength;
+
+	// counter block 0 : flags, nonce, counter
+	private final byte[] a0 = new byte[BLOCK];
+	private int nonceLength;
+	private byte[] macInput = new byte[1024];
+	private byte[] macOutput = new byte[1024];
+	private byte[] counters = new byte[1024];
+	private byte[] keyStream = new byte[1024];
+
+	public AesCcmCipher(SecretKey key, int tagLength) throws GeneralSecurityException {
+		if (tagLength < 4 || tagLength > 16 || (tagLength & 1) != 0) {
+			throw new IllegalArgumentException("Invalid tag length " + tagLength);
+		}
+		this.tagLength = tagLength;
+		this.ecb = CryptoFactory.getCipher(CryptoFactory.AES_ECB);
+		this.ecb.init(Cipher.ENCRYPT_MODE, key);
+		this.cbc = CryptoFactory.getCipher("AES/CBC/NoPadding");
+		this.cbc.init(Cipher.ENCRYPT_MODE, key, zeroIv);
+	}
+
+	public int getTagLength() {
+		return tagLength;
+	}
+
+	/**
+	 * Encrypt and append the tag.
+	 *
+	 * @return the number of bytes written to out : length + tag length
+	 */
+	public int encrypt(byte[] nonce, byte[] aad, int aadOffset, int aadLength, byte[] in, int inOffset, int length,
+			byte[] out, int outOffset) throws GeneralSecurityException {
+		setNonce(nonce);
+		int messageOffset = writeAad(aad, aadOffset, aadLength);
+		return encrypt(messageOffset, in, inOffset, length, out, outOffset);
+	}
+
+	/**
+	 * Decrypt and check the tag (the last tag length bytes of the input).
+	 *
+	 * @return the number of bytes written to out : length - tag length
+	 * @throws AEADBadTagException if the tag does not match, nothing is written to out
+	 */
+	public int decrypt(byte[] nonce, byte[] aad, int aadOffset, int aadLength, byte[] in, int inOffset, int length,
+			byte[] out, int outOffset) throws GeneralSecurityException {
+		setNonce(nonce);
+		int messageOffset = writeAad(aad, aadOffset, aadLength);
+		return decrypt(messageOffset, in, inOffset, length, out, outOffset);
+	}
+
+	/**
+	 * Encrypt a DTLS 1.2 record fragment, the nonce is implicit iv + epoch + sequence number and the additional data
+	 * epoch + sequence number + type + version + plaintext length.
+	 *
+	 * @return the number of bytes written to out : length + tag length
+	 */
+	public int encryptRecord(byte[] iv, int epoch, long sequenceNumber, int type, int version, byte[] in,
+			int inOffset, int length, byte[] out, int outOffset) throws GeneralSecurityException {
+		int messageOffset = setRecordNonceAndAad(iv, epoch, sequenceNumber, type, version, length);
+		return encrypt(messageOffset, in, inOffset, length, out, outOffset);
+	}
+
+	/**
+	 * Decrypt a DTLS 1.2 record fragment, see {@link #encryptRecord}.
+	 *
+	 * @return the number of bytes written to out : length - tag length
+	 * @throws AEADBadTagException if the tag does not match, nothing is written to out
+	 */
+	public int decryptRecord(byte[] iv, int epoch, long sequenceNumber, int type, int version, byte[] in,
+			int inOffset, int length, byte[] out, int outOffset) throws GeneralSecurityException {
+		if (length < tagLength) {
+			throw new AEADBadTagException("Record too short");
+		}
+		int messageOffset = setRecordNonceAndAad(iv, epoch, sequenceNumber, type, version, length - tagLength);
+		return decrypt(messageOffset, in, inOffset, length, out, outOffset);
+	}
+
+	/**
+	 * Encrypt the remaining bytes of the plaintext into the output, both buffers must be backed by an array. Positions
+	 * are advanced.
+	 */
+	public void encryptRecord(byte[] iv, int epoch, long sequenceNumber, int type, int version, ByteBuffer plaintext,
+			ByteBuffer output) throws GeneralSecurityException {
+		int length = plaintext.remaining();
+		if (output.remaining() < length + tagLength) {
+			throw new IllegalArgumentException("Output buffer too small");
+		}
+		int written = encryptRecord(iv, epoch, sequenceNumber, type, version, plaintext.array(),
+				plaintext.arrayOffset() + plaintext.position(), length, output.array(),
+				output.arrayOffset() + output.position());
+		plaintext.position(plaintext.limit());
+		output.position(output.position() + written);
+	}
+
+	/**
+	 * Decrypt the remaining bytes of the ciphertext into the output, both buffers must be backed by an array. Positions
+	 * are advanced.
+	 */
+	public void decryptRecord(byte[] iv, int epoch, long sequenceNumber, int type, int version, ByteBuffer ciphertext,
+			ByteBuffer output) throws GeneralSecurityException {
+		int length = ciphertext.remaining();
+		if (output.remaining() < length - tagLength) {
+			throw new IllegalArgumentException("Output buffer too small");
+		}
+		int written = decryptRecord(iv, epoch, sequenceNumber, type, version, ciphertext.array(),
+				ciphertext.arrayOffset() + ciphertext.position(), length, output.array(),
+				output.arrayOffset() + output.position());
+		ciphertext.position(ciphertext.limit());
+		output.position(output.position() + written);
+	}
+
+	private void setNonce(byte[] nonce) {
+		if (nonce.length < 7 || nonce.length > 13) {
+			throw new IllegalArgumentException("Invalid nonce length " + nonce.length);
+		}
+		nonceLength = nonce.length;
+		a0[0] = (byte) (14 - nonceLength);
+		System.arraycopy(nonce, 0, a0, 1, nonceLength);
+	}
+
+	private int writeAad(byte[] aad, int offset, int length) {
+		if (length == 0) {
+			return BLOCK;
+		}
+		if (length >= 0xFF00) {
+			throw new IllegalArgumentException("Additional data too long");
+		}
+		int end = BLOCK + 2 + length;
+		int messageOffset = (end + BLOCK - 1) & ~(BLOCK - 1);
+		ensureMacInput(messageOffset);
+		macInput[BLOCK] = (byte) (length >> 8);
+		macInput[BLOCK + 1] = (byte) length;
+		System.arraycopy(aad, offset, macInput, BLOCK + 2, length);
+		for (int i = end; i < messageOffset; i++) {
+			macInput[i] = 0;
+		}
+		return messageOffset;
+	}
+
+	private int setRecordNonceAndAad(byte[] iv, int epoch, long sequenceNumber, int type, int version,
+			int plaintextLength) {
+		// nonce
+		nonceLength = DTLS_NONCE_LENGTH;
+		a0[0] = (byte) (14 - DTLS_NONCE_LENGTH);
+		a0[1] = iv[0];
+		a0[2] = iv[1];
+		a0[3] = iv[2];
+		a0[4] = iv[3];
+		a0[5] = (byte) (epoch >> 8);
+		a0[6] = (byte) epoch;
+		for (int i = 0; i < 6; i++) {
+			a0[7 + i] = (byte) (sequenceNumber >> (40 - 8 * i));
+		}
+		// additional data, 2 bytes length + 13 bytes fit in one block
+		byte[] b = macInput;
+		b[16] = 0;
+		b[17] = DTLS_AAD_LENGTH;
+		System.arraycopy(a0, 5, b, 18, 8);
+		b[26] = (byte) type;
+		b[27] = (byte) (version >> 8);
+		b[28] = (byte) version;
+		b[29] = (byte) (plaintextLength >> 8);
+		b[30] = (byte) plaintextLength;
+		b[31] = 0;
+		return 2 * BLOCK;
+	}
+
+	private int encrypt(int messageOffset, byte[] in, int inOffset, int length, byte[] out, int outOffset)
+			throws GeneralSecurityException {
+		boolean aad = messageOffset > BLOCK;
+		int macLength = messageOffset + roundUp(length);
+		ensureMacInput(macLength);
+		System.arraycopy(in, inOffset, macInput, messageOffset, length);
+		padMessage(messageOffset + length, macLength);
+		byte[] mac = computeMac(aad, length, macLength);
+		computeKeyStream(length);
+
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = (byte) (in[inOffset + i] ^ keyStream[BLOCK + i]);
+		}
+		int tagOffset = outOffset + length;
+		for (int i = 0; i < tagLength; i++) {
+			out[tagOffset + i] = (byte) (mac[macLength - BLOCK + i] ^ keyStream[i]);
+		}
+		return length + tagLength;
+	}
+
+	private int decrypt(int messageOffset, byte[] in, int inOffset, int length, byte[] out, int outOffset)
+			throws GeneralSecurityException {
+		int messageLength = length - tagLength;
+		if (messageLength < 0) {
+			throw new AEADBadTagException("Ciphertext too short");
+		}
+		boolean aad = messageOffset > BLOCK;
+		int macLength = messageOffset + roundUp(messageLength);
+		ensureMacInput(macLength);
+		computeKeyStream(messageLength);
+		// decrypt into the MAC input, the plaintext is only released if the tag matches
+		for (int i = 0; i < messageLength; i++) {
+			macInput[messageOffset + i] = (byte) (in[inOffset + i] ^ keyStream[BLOCK + i]);
+		}
+		padMessage(messageOffset + messageLength, macLength);
+		byte[] mac = computeMac(aad, messageLength, macLength);
+
+		int diff = 0;
+		int tagOffset = inOffset + messageLength;
+		for (int i = 0; i < tagLength; i++) {
+			diff |= mac[macLength - BLOCK + i] ^ keyStream[i] ^ in[tagOffset + i];
+		}
+		if (diff != 0) {
+			throw new AEADBadTagException("Invalid MAC");
+		}
+		System.arraycopy(macInput, messageOffset, out, outOffset, messageLength);
+		return messageLength;
+	}
+
+	/**
+	 * CBC-MAC over B0, the additional data block(s) already in place and the padded message.
+	 *
+	 * @return the buffer whose last block (at macLength - 16) is the MAC
+	 */
+	private byte[] computeMac(boolean aad, int messageLength, int macLength) throws GeneralSecurityException {
+		int lengthSize = 15 - nonceLength;
+		macInput[0] = (byte) ((aad ? 0x40 : 0) | ((tagLength - 2) / 2) << 3 | (lengthSize - 1));
+		System.arraycopy(a0, 1, macInput, 1, nonceLength);
+		for (int i = 0; i < lengthSize; i++) {
+			macInput[BLOCK - 1 - i] = i < 4 ? (byte) (messageLength >> (8 * i)) : 0;
+		}
+		if (macOutput.length < macLength) {
+			macOutput = new byte[macInput.length];
+		}
+		// doFinal resets the chaining to the zero iv for the next record
+		cbc.doFinal(macInput, 0, macLength, macOutput, 0);
+		return macOutput;
+	}
+
+	/**
+	 * Encrypt counter blocks 0 to n, S0 (for the tag) at 0, then S1... for the message at 16.
+	 */
+	private void computeKeyStream(int messageLength) throws GeneralSecurityException {
+		int blocks = 1 + roundUp(messageLength) / BLOCK;
+		int size = blocks * BLOCK;
+		if (counters.length < size) {
+			counters = new byte[size * 2];
+			keyStream = new byte[size * 2];
+		}
+		int lengthSize = 15 - nonceLength;
+		for (int block = 0; block < blocks; block++) {
+			int offset = block * BLOCK;
+			System.arraycopy(a0, 0, counters, offset, 1 + nonceLength);
+			for (int i = 0; i < lengthSize; i++) {
+				counters[offset + BLOCK - 1 - i] = i < 4 ? (byte) (block >> (8 * i)) : 0;
+			}
+		}
+		ecb.doFinal(counters, 0, size, keyStream, 0);
+	}
+
+	private void padMessage(int from, int to) {
+		for (int i = from; i < to; i++) {
+			macInput[i] = 0;
+		}
+	}
+
+	private void ensureMacInput(int size) {
+		if (macInput.length < size) {
+			byte[] grown = new byte[size * 2];
+			// keep B0 and the additional data already written
+			System.arraycopy(macInput, 0, grown, 0, macInput.length);
+			macInput = grown;
+		}
+	}
+
+	private static int roundUp(int length) {
+		return (length + BLOCK - 1) & ~(BLOCK - 1);
+	}
+}
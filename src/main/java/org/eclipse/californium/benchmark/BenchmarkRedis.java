@@ -0,0 +1,59 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+/**
+ * Redis used by the benchmarks : an {@link EmbeddedRedisServer} with the given simulated round trip time, or a real
+ * Redis if the "benchmark.redis" system property is set (e.g. -Dbenchmark.redis=redis://localhost:6379, to pass to the
+ * forked JVM with -jvmArgsAppend).
+ */
+public class BenchmarkRedis implements Closeable {
+
+    public static final String REDIS_URI_PROPERTY = "benchmark.redis";
+
+    private final EmbeddedRedisServer server;
+    private final JedisPool pool;
+
+    /**
+     * @param rttMillis the simulated round trip time in milliseconds, ignored for a real Redis
+     */
+    public BenchmarkRedis(double rttMillis) throws IOException {
+        this(rttMillis, new JedisPoolConfig());
+    }
+
+    public BenchmarkRedis(double rttMillis, JedisPoolConfig config) throws IOException {
+        String uri = System.getProperty(REDIS_URI_PROPERTY);
+        if (uri != null) {
+            server = null;
+            pool = new JedisPool(config, URI.create(uri));
+        } else {
+            server = new EmbeddedRedisServer(0, (long) (rttMillis * 1_000_000));
+            server.start();
+            pool = new JedisPool(config, server.getURI());
+        }
+    }
+
+    public JedisPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @return the embedded server, null if a real Redis is used
+     */
+    public EmbeddedRedisServer getServer() {
+        return server;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+        if (server != null) {
+            server.stop();
+        }
+    }
+}
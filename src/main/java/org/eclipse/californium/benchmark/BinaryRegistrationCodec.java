@@ -0,0 +1,368 @@
+package org.eclipse.californium.benchmark;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Compact binary format for {@link Registration}, an alternative to the JSON of {@code RegistrationSerDes}.
+ * <p>
+ * Layout (version 1), integers are unsigned varints and strings are varint(length + 1) + UTF-8 bytes (0 means null):
+ *
+ * <pre>
+ * version
+ * regId, ep, identity, bnd, lastUp, lt, ver, regDate, sms
+ * addAttr : count, (key, value)*
+ * string table : count, string*
+ * objLink : count + 1, (length, url, attribute count, (key index + 1, value index + 1)*)*
+ * </pre>
+ *
+ * Attribute keys and values (e.g. "ver"="2.1") are written once in the string table and referenced by index. Each
+ * link is prefixed by its length so readers can skip links without decoding them.
+ */
+public class BinaryRegistrationCodec implements RegistrationCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int IDENTITY_UNSECURE = 0;
+    private static final int IDENTITY_PSK = 1;
+    private static final int IDENTITY_RPK = 2;
+    private static final int IDENTITY_X509 = 3;
+
+    @Override
+    public byte[] serialize(Registration registration) {
+        Output out = new Output(256);
+        out.writeByte(VERSION);
+        out.writeString(registration.getId());
+        out.writeString(registration.getEndpoint());
+        writeIdentity(out, registration.getIdentity());
+        out.writeString(registration.getBindingMode().name());
+        out.writeVarLong(registration.getLastUpdate().getTime());
+        out.writeVarLong(registration.getLifeTimeInSec());
+        out.writeString(registration.getLwM2mVersion());
+        out.writeVarLong(registration.getRegistrationDate().getTime());
+        out.writeString(registration.getSmsNumber());
+
+        Map<String, String> additionalAttributes = registration.getAdditionalRegistrationAttributes();
+        out.writeVarInt(additionalAttributes.size());
+        for (Entry<String, String> attribute : additionalAttributes.entrySet()) {
+            out.writeString(attribute.getKey());
+            out.writeString(attribute.getValue());
+        }
+
+        // links are written first in a separate buffer to build the string table
+        Link[] objectLinks = registration.getObjectLinks();
+        if (objectLinks == null) {
+            objectLinks = new Link[0];
+        }
+        Map<String, Integer> table = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Output links = new Output(objectLinks.length * 16);
+        Output link = new Output(64);
+        for (Link l : objectLinks) {
+            link.reset();
+            link.writeString(l.getUrl());
+            Map<String, String> attributes = l.getAttributes();
+            link.writeVarInt(attributes.size());
+            for (Entry<String, String> attribute : attributes.entrySet()) {
+                link.writeVarInt(indexOf(attribute.getKey(), table, strings));
+                link.writeVarInt(indexOf(attribute.getValue(), table, strings));
+            }
+            links.writeVarInt(link.size());
+            links.write(link);
+        }
+
+        out.writeVarInt(strings.size());
+        for (String s : strings) {
+            out.writeString(s);
+        }
+        out.writeVarInt(registration.getObjectLinks() == null ? 0 : objectLinks.length + 1);
+        out.write(links);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Registration deserialize(byte[] data) {
+        Input in = new Input(data);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException(
+                    String.format("Unsupported registration format version %d, expected %d", version, VERSION));
+        }
+        String regId = in.readString();
+        String endpoint = in.readString();
+        Identity identity = readIdentity(in);
+        Registration.Builder b = new Registration.Builder(regId, endpoint, identity);
+        b.bindingMode(BindingMode.valueOf(in.readString()));
+        b.lastUpdate(new Date(in.readVarLong()));
+        b.lifeTimeInSec(in.readVarLong());
+        b.lwM2mVersion(in.readString());
+        b.registrationDate(new Date(in.readVarLong()));
+        String sms = in.readString();
+        if (sms != null) {
+            b.smsNumber(sms);
+        }
+
+        int size = in.readVarInt();
+        Map<String, String> addAttr = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            addAttr.put(in.readString(), in.readString());
+        }
+        b.additionalRegistrationAttributes(addAttr);
+
+        String[] strings = new String[in.readVarInt() + 1];
+        for (int i = 1; i < strings.length; i++) {
+            strings[i] = in.readString();
+        }
+
+        int linkCount = in.readVarInt() - 1;
+        if (linkCount < 0) {
+            return b.build();
+        }
+        Link[] linkObjs = new Link[linkCount];
+        // Link copies its attributes so the same map can be reused for all links
+        Map<String, String> attMap = new HashMap<>();
+        for (int i = 0; i < linkObjs.length; i++) {
+            in.readVarInt(); // link length, only needed to skip links
+            String url = in.readString();
+            int attCount = in.readVarInt();
+            if (attCount == 0) {
+                linkObjs[i] = new Link(url);
+            } else {
+                attMap.clear();
+                for (int j = 0; j < attCount; j++) {
+                    attMap.put(strings[in.readVarInt()], strings[in.readVarInt()]);
+                }
+                linkObjs[i] = new Link(url, attMap);
+            }
+        }
+        b.objectLinks(linkObjs);
+        return b.build();
+    }
+
+    private static int indexOf(String s, Map<String, Integer> table, List<String> strings) {
+        if (s == null)
+            return 0;
+        Integer index = table.get(s);
+        if (index == null) {
+            strings.add(s);
+            index = strings.size();
+            table.put(s, index);
+        }
+        return index;
+    }
+
+    static void writeIdentity(Output out, Identity identity) {
+        if (identity.isPSK()) {
+            out.writeByte(IDENTITY_PSK);
+        } else if (identity.isRPK()) {
+            out.writeByte(IDENTITY_RPK);
+        } else if (identity.isX509()) {
+            out.writeByte(IDENTITY_X509);
+        } else {
+            out.writeByte(IDENTITY_UNSECURE);
+        }
+        InetSocketAddress peer = identity.getPeerAddress();
+        out.writeBytes(peer.getAddress().getAddress());
+        out.writeVarInt(peer.getPort());
+        if (identity.isPSK()) {
+            out.writeString(identity.getPskIdentity());
+        } else if (identity.isRPK()) {
+            out.writeString(identity.getRawPublicKey().getAlgorithm());
+            out.writeBytes(identity.getRawPublicKey().getEncoded());
+        } else if (identity.isX509()) {
+            out.writeString(identity.getX509CommonName());
+        }
+    }
+
+    static Identity readIdentity(Input in) {
+        int type = in.readByte();
+        InetSocketAddress peer;
+        try {
+            peer = new InetSocketAddress(InetAddress.getByAddress(in.readBytes()), in.readVarInt());
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid peer address", e);
+        }
+        switch (type) {
+        case IDENTITY_UNSECURE:
+            return Identity.unsecure(peer);
+        case IDENTITY_PSK:
+            return Identity.psk(peer, in.readString());
+        case IDENTITY_RPK:
+            try {
+                String algorithm = in.readString();
+                PublicKey key = KeyFactory.getInstance(algorithm)
+                        .generatePublic(new X509EncodedKeySpec(in.readBytes()));
+                return Identity.rpk(peer, key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalArgumentException("Invalid raw public key", e);
+            }
+        case IDENTITY_X509:
+            return Identity.x509(peer, in.readString());
+        default:
+            throw new IllegalArgumentException(String.format("Unknown identity type %d", type));
+        }
+    }
+
+    /**
+     * Growable byte buffer with varint and string support.
+     */
+    static class Output {
+        private byte[] buf;
+        private int size;
+
+        Output(int capacity) {
+            buf = new byte[Math.max(capacity, 16)];
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            buf[size++] = (byte) b;
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarInt(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeString(String s) {
+            if (s == null) {
+                writeVarInt(0);
+                return;
+            }
+            int length = s.length();
+            // fast path for ASCII strings, most of the registration content
+            boolean ascii = true;
+            for (int i = 0; i < length && ascii; i++) {
+                ascii = s.charAt(i) < 0x80;
+            }
+            if (ascii) {
+                writeVarInt(length + 1);
+                ensureCapacity(length);
+                for (int i = 0; i < length; i++) {
+                    buf[size++] = (byte) s.charAt(i);
+                }
+            } else {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(bytes.length + 1);
+                write(bytes, 0, bytes.length);
+            }
+        }
+
+        void write(Output other) {
+            write(other.buf, 0, other.size);
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buf, size, length);
+            size += length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        private void ensureCapacity(int length) {
+            if (size + length > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + length));
+            }
+        }
+    }
+
+    /**
+     * Reader for content written by {@link Output}.
+     */
+    static class Input {
+        private final byte[] buf;
+        private int pos;
+
+        Input(byte[] buf) {
+            this.buf = buf;
+        }
+
+        int position() {
+            return pos;
+        }
+
+        void skip(int length) {
+            pos += length;
+        }
+
+        int readByte() {
+            return buf[pos++] & 0xFF;
+        }
+
+        int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63)
+                    throw new IllegalArgumentException("Malformed varint");
+                b = buf[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        byte[] readBytes() {
+            int length = readVarInt();
+            byte[] bytes = Arrays.copyOfRange(buf, pos, pos + length);
+            pos += length;
+            return bytes;
+        }
+
+        String readString() {
+            int length = readVarInt() - 1;
+            if (length < 0)
+                return null;
+            String s = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe size-bounded cache evicting the least recently used entries.
+ * <p>
+ * Entries are spread over several access ordered {@link LinkedHashMap} segments, each guarded by its own lock, so
+ * concurrent accesses to different keys rarely contend. The bound is enforced per segment (maximumSize / segments).
+ */
+public class BoundedLruCache<K, V> {
+
+    private final Segment<K, V>[] segments;
+    private final int mask;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BoundedLruCache(int maximumSize) {
+        this(maximumSize, 16);
+    }
+
+    public BoundedLruCache(int maximumSize, int concurrencyLevel) {
+        int count = 1;
+        while (count < concurrencyLevel && count * 2 <= maximumSize)
+            count <<= 1;
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Segment<K, V>[] array = new Segment[count];
+        segments = array;
+        int segmentSize = Math.max(1, maximumSize / count);
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(segmentSize, evictions);
+        }
+        mask = count - 1;
+    }
+
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public V remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key);
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & mask];
+    }
+
+    private static class Segment<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+        private final AtomicLong evictions;
+
+        Segment(int maximumSize, AtomicLong evictions) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > maximumSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
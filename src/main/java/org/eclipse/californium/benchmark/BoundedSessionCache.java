@@ -0,0 +1,106 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.californium.elements.util.DatagramWriter;
+import org.eclipse.californium.scandium.dtls.DTLSSession;
+import org.eclipse.californium.scandium.dtls.SessionCache;
+import org.eclipse.californium.scandium.dtls.SessionId;
+import org.eclipse.californium.scandium.dtls.SessionTicket;
+
+/**
+ * Server side DTLS {@link SessionCache} keeping the tickets of at most maximumSize sessions in a
+ * {@link BoundedLruCache}, to resume the sessions of devices whose connection was evicted. Devices evicted from this
+ * cache too fall back to a full handshake.
+ * <p>
+ * Counts the hits and misses of the lookups, and estimates its memory from the encoded size of the tickets plus
+ * {@link #ENTRY_OVERHEAD} per entry.
+ */
+public class BoundedSessionCache implements SessionCache {
+
+    /**
+     * Estimated bytes per entry besides the encoded ticket : map entry, session id, ticket, secret key and principal
+     * objects.
+     */
+    public static final int ENTRY_OVERHEAD = 256;
+
+    private final BoundedLruCache<SessionId, SessionTicket> tickets;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong ticketBytes = new AtomicLong();
+
+    public BoundedSessionCache(int maximumSize) {
+        this.tickets = new BoundedLruCache<>(maximumSize);
+    }
+
+    @Override
+    public void put(DTLSSession session) {
+        SessionTicket ticket = session.getSessionTicket();
+        if (ticket == null)
+            return;
+        DatagramWriter writer = new DatagramWriter();
+        ticket.encode(writer);
+        puts.incrementAndGet();
+        ticketBytes.addAndGet(writer.size());
+        tickets.put(session.getSessionIdentifier(), ticket);
+    }
+
+    @Override
+    public SessionTicket get(SessionId id) {
+        SessionTicket ticket = tickets.get(id);
+        if (ticket != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return ticket;
+    }
+
+    @Override
+    public void remove(SessionId id) {
+        tickets.remove(id);
+    }
+
+    public int size() {
+        return tickets.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the hits / lookups ratio, 0 without lookup
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long lookups = h + misses.get();
+        return lookups == 0 ? 0 : (double) h / lookups;
+    }
+
+    public long getEvictionCount() {
+        return tickets.getEvictionCount();
+    }
+
+    /**
+     * @return the estimated memory of the cached sessions in bytes, from the average ticket size
+     */
+    public long getEstimatedMemory() {
+        long p = puts.get();
+        long averageTicketBytes = p == 0 ? 0 : ticketBytes.get() / p;
+        return size() * (ENTRY_OVERHEAD + averageTicketBytes);
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+}
@@ -0,0 +1,47 @@
+package org.eclipse.californium.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of heap {@link ByteBuffer}s for concurrent encoders. Buffers which grew beyond the maximum retained
+ * capacity are dropped on release, so a single huge payload does not pin memory forever.
+ */
+public class ByteBufferPool {
+
+    private final BlockingQueue<ByteBuffer> buffers;
+    private final int initialCapacity;
+    private final int maxRetainedCapacity;
+
+    public ByteBufferPool(int initialCapacity, int maxPooled, int maxRetainedCapacity) {
+        this.buffers = new ArrayBlockingQueue<>(maxPooled);
+        this.initialCapacity = initialCapacity;
+        this.maxRetainedCapacity = maxRetainedCapacity;
+    }
+
+    /**
+     * @return a cleared buffer, a new one if the pool is empty
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocate(initialCapacity);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Give back a buffer, it must not be used by the caller afterwards.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() <= maxRetainedCapacity && buffer.hasArray()) {
+            buffers.offer(buffer);
+        }
+    }
+
+    public int size() {
+        return buffers.size();
+    }
+}
@@ -0,0 +1,357 @@
+package org.eclipse.californium.benchmark;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.core.observe.ObservationStore;
+import org.eclipse.californium.elements.EndpointContext;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.server.Destroyable;
+import org.eclipse.leshan.server.Startable;
+import org.eclipse.leshan.server.Stoppable;
+import org.eclipse.leshan.server.californium.registration.CaliforniumRegistrationStore;
+import org.eclipse.leshan.server.registration.Deregistration;
+import org.eclipse.leshan.server.registration.ExpirationListener;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.UpdatedRegistration;
+
+/**
+ * A local, size-bounded near-cache in front of a (remote) {@link RegistrationStore}.
+ * <p>
+ * Registrations are cached by id (and indexed by endpoint) on lookup and invalidated on add/update/remove/expiration.
+ * When an {@link InvalidationChannel} is given, local modifications are published so other nodes drop their copy.
+ * Observations and lookups by address are not cached.
+ * <p>
+ * The lifecycle ({@link Startable}, {@link Stoppable}, {@link Destroyable}) is forwarded to the delegate, e.g. to run
+ * the expiration cleaner of {@code RedisRegistrationStore}. The {@link ObservationStore} methods, needed to use this
+ * store with {@code LeshanServerBuilder}, require a {@link CaliforniumRegistrationStore} delegate.
+ */
+public class CachingRegistrationStore implements CaliforniumRegistrationStore, Startable, Stoppable, Destroyable {
+
+    private static final int GENERATION_STRIPES = 256;
+
+    private final RegistrationStore delegate;
+    private final BoundedLruCache<String, Registration> cache;
+    private final BoundedLruCache<String, String> regIdByEndpoint;
+    private final InvalidationChannel channel;
+
+    // incremented on invalidation for the stripe of the registration id and of the endpoint, so a registration
+    // loaded concurrently with its invalidation is not cached without voiding the loads of the other registrations
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    // incremented on invalidation of a registration whose endpoint is unknown here
+    private final AtomicLong unknownEndpointGeneration = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loadTime = new AtomicLong();
+
+    public CachingRegistrationStore(RegistrationStore delegate, int maximumSize) {
+        this(delegate, maximumSize, null);
+    }
+
+    public CachingRegistrationStore(RegistrationStore delegate, int maximumSize, InvalidationChannel channel) {
+        this.delegate = delegate;
+        this.cache = new BoundedLruCache<>(maximumSize);
+        this.regIdByEndpoint = new BoundedLruCache<>(maximumSize);
+        this.channel = channel;
+        if (channel != null) {
+            channel.setListener(new InvalidationChannel.Listener() {
+                @Override
+                public void invalidated(String registrationId) {
+                    invalidate(registrationId);
+                }
+
+                @Override
+                public void invalidatedAll() {
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    @Override
+    public Deregistration addRegistration(Registration registration) {
+        Deregistration deregistration = delegate.addRegistration(registration);
+        invalidateAndPublish(registration.getId(), registration.getEndpoint());
+        if (deregistration != null) {
+            Registration previous = deregistration.getRegistration();
+            invalidateAndPublish(previous.getId(), previous.getEndpoint());
+        }
+        return deregistration;
+    }
+
+    @Override
+    public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
+        UpdatedRegistration updated = delegate.updateRegistration(update);
+        invalidateAndPublish(update.getRegistrationId(),
+                updated == null ? null : updated.getUpdatedRegistration().getEndpoint());
+        return updated;
+    }
+
+    @Override
+    public Registration getRegistration(String registrationId) {
+        Registration registration = cache.get(registrationId);
+        if (registration != null && registration.isAlive()) {
+            hits.incrementAndGet();
+            return registration;
+        }
+
+        misses.incrementAndGet();
+        int stripe = stripe(registrationId);
+        long gen = generations.get(stripe);
+        long start = System.nanoTime();
+        registration = delegate.getRegistration(registrationId);
+        loadTime.addAndGet(System.nanoTime() - start);
+        if (registration != null && generations.get(stripe) == gen) {
+            cache(registration, stripe, gen);
+        }
+        return registration;
+    }
+
+    @Override
+    public Registration getRegistrationByEndpoint(String endpoint) {
+        String registrationId = regIdByEndpoint.get(endpoint);
+        if (registrationId != null) {
+            Registration registration = cache.get(registrationId);
+            if (registration != null && registration.isAlive() && endpoint.equals(registration.getEndpoint())) {
+                hits.incrementAndGet();
+                return registration;
+            }
+        }
+
+        misses.incrementAndGet();
+        // the registration id is only known once loaded, the invalidation of the endpoint is checked instead
+        int stripe = stripe(endpoint);
+        long gen = generations.get(stripe);
+        long unknownGen = unknownEndpointGeneration.get();
+        long start = System.nanoTime();
+        Registration registration = delegate.getRegistrationByEndpoint(endpoint);
+        loadTime.addAndGet(System.nanoTime() - start);
+        if (registration != null && generations.get(stripe) == gen && unknownEndpointGeneration.get() == unknownGen) {
+            cache(registration, stripe, gen);
+            if (unknownEndpointGeneration.get() != unknownGen) {
+                cache.remove(registration.getId());
+            }
+        }
+        return registration;
+    }
+
+    @Override
+    public Registration getRegistrationByAdress(InetSocketAddress address) {
+        return delegate.getRegistrationByAdress(address);
+    }
+
+    @Override
+    public Iterator<Registration> getAllRegistrations() {
+        return delegate.getAllRegistrations();
+    }
+
+    @Override
+    public Deregistration removeRegistration(String registrationId) {
+        Deregistration deregistration = delegate.removeRegistration(registrationId);
+        invalidateAndPublish(registrationId,
+                deregistration == null ? null : deregistration.getRegistration().getEndpoint());
+        return deregistration;
+    }
+
+    @Override
+    public Collection<Observation> addObservation(String registrationId, Observation observation) {
+        return delegate.addObservation(registrationId, observation);
+    }
+
+    @Override
+    public Observation getObservation(String registrationId, byte[] observationId) {
+        return delegate.getObservation(registrationId, observationId);
+    }
+
+    @Override
+    public Observation removeObservation(String registrationId, byte[] observationId) {
+        return delegate.removeObservation(registrationId, observationId);
+    }
+
+    @Override
+    public Collection<Observation> getObservations(String registrationId) {
+        return delegate.getObservations(registrationId);
+    }
+
+    @Override
+    public Collection<Observation> removeObservations(String registrationId) {
+        return delegate.removeObservations(registrationId);
+    }
+
+    @Override
+    public void setExpirationListener(final ExpirationListener listener) {
+        delegate.setExpirationListener(new ExpirationListener() {
+            @Override
+            public void registrationExpired(Registration registration, Collection<Observation> observations) {
+                invalidateAndPublish(registration.getId(), registration.getEndpoint());
+                if (listener != null) {
+                    listener.registrationExpired(registration, observations);
+                }
+            }
+        });
+    }
+
+    @Override
+    public org.eclipse.californium.core.observe.Observation putIfAbsent(Token token,
+            org.eclipse.californium.core.observe.Observation obs) {
+        return observationStore().putIfAbsent(token, obs);
+    }
+
+    @Override
+    public org.eclipse.californium.core.observe.Observation put(Token token,
+            org.eclipse.californium.core.observe.Observation obs) {
+        return observationStore().put(token, obs);
+    }
+
+    @Override
+    public void remove(Token token) {
+        observationStore().remove(token);
+    }
+
+    @Override
+    public org.eclipse.californium.core.observe.Observation get(Token token) {
+        return observationStore().get(token);
+    }
+
+    @Override
+    public void setContext(Token token, EndpointContext endpointContext) {
+        observationStore().setContext(token, endpointContext);
+    }
+
+    @Override
+    public void setExecutor(ScheduledExecutorService executor) {
+        if (delegate instanceof ObservationStore) {
+            ((ObservationStore) delegate).setExecutor(executor);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (delegate instanceof Startable) {
+            ((Startable) delegate).start();
+        } else if (delegate instanceof ObservationStore) {
+            ((ObservationStore) delegate).start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (delegate instanceof Stoppable) {
+            ((Stoppable) delegate).stop();
+        } else if (delegate instanceof ObservationStore) {
+            ((ObservationStore) delegate).stop();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (delegate instanceof Destroyable) {
+            ((Destroyable) delegate).destroy();
+        }
+    }
+
+    /**
+     * Remove this registration from the local cache only.
+     */
+    public void invalidate(String registrationId) {
+        invalidate(registrationId, null);
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        unknownEndpointGeneration.incrementAndGet();
+        cache.clear();
+        regIdByEndpoint.clear();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return the average time spent in the delegate store on cache miss, in nanoseconds
+     */
+    public double getAverageLoadTime() {
+        long m = misses.get();
+        return m == 0 ? 0 : (double) loadTime.get() / m;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Caches a registration loaded while the generation of the stripe was gen.
+     */
+    private void cache(Registration registration, int stripe, long gen) {
+        cache.put(registration.getId(), registration);
+        regIdByEndpoint.put(registration.getEndpoint(), registration.getId());
+        // invalidated while we were caching it
+        if (generations.get(stripe) != gen) {
+            cache.remove(registration.getId());
+        }
+    }
+
+    /**
+     * @param endpoint the endpoint of the registration, null if unknown
+     */
+    private void invalidate(String registrationId, String endpoint) {
+        Registration registration = cache.get(registrationId);
+        if (endpoint == null && registration != null) {
+            endpoint = registration.getEndpoint();
+        }
+        generations.incrementAndGet(stripe(registrationId));
+        if (endpoint != null) {
+            generations.incrementAndGet(stripe(endpoint));
+        } else {
+            unknownEndpointGeneration.incrementAndGet();
+        }
+        registration = cache.remove(registrationId);
+        if (registration != null) {
+            regIdByEndpoint.remove(registration.getEndpoint());
+        }
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private CaliforniumRegistrationStore observationStore() {
+        if (!(delegate instanceof CaliforniumRegistrationStore)) {
+            throw new IllegalStateException("Observations require a CaliforniumRegistrationStore delegate");
+        }
+        return (CaliforniumRegistrationStore) delegate;
+    }
+
+    private void invalidateAndPublish(String registrationId, String endpoint) {
+        invalidate(registrationId, endpoint);
+        if (channel != null) {
+            channel.publish(registrationId);
+        }
+    }
+}
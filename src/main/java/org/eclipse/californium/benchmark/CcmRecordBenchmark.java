@@ -0,0 +1,138 @@
+package org.eclipse.californium.benchmark;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.eclipse.californium.scandium.dtls.cipher.CCMBlockCipher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * DTLS 1.2 AES-CCM record encryption/decryption in records/s for one thread : Scandium's CCMBlockCipher with nonce and
+ * additional data built per record, against {@link AesCcmCipher} reusing its ciphers and buffers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CcmRecordBenchmark {
+
+	private static final int APPLICATION_DATA = 23;
+	private static final int DTLS_1_2 = 0xFEFD;
+	private static final int EPOCH = 1;
+
+	@Param({ "16", "64", "256", "1024" })
+	public int payloadSize;
+
+	/** 8 for the CCM_8 cipher suites, 16 for CCM. */
+	@Param({ "8", "16" })
+	public int tagLength;
+
+	SecretKey key;
+	byte[] iv;
+	byte[] plaintext;
+	byte[] ciphertext;
+	byte[] out;
+	AesCcmCipher ccm;
+	long sequenceNumber;
+
+	@Setup
+	public void setup() throws GeneralSecurityException {
+		Random random = new Random(1);
+		byte[] secret = new byte[16];
+		random.nextBytes(secret);
+		key = new SecretKeySpec(secret, "AES");
+		iv = new byte[4];
+		random.nextBytes(iv);
+		plaintext = new byte[payloadSize];
+		random.nextBytes(plaintext);
+		ccm = new AesCcmCipher(key, tagLength);
+		out = new byte[payloadSize + 16];
+
+		ciphertext = scandiumEncrypt(1);
+		byte[] encrypted = new byte[payloadSize + tagLength];
+		ccm.encryptRecord(iv, EPOCH, 1, APPLICATION_DATA, DTLS_1_2, plaintext, 0, payloadSize, encrypted, 0);
+		if (!Arrays.equals(ciphertext, encrypted)) {
+			throw new IllegalStateException("AesCcmCipher output differs from CCMBlockCipher");
+		}
+		int length = ccm.decryptRecord(iv, EPOCH, 1, APPLICATION_DATA, DTLS_1_2, ciphertext, 0, ciphertext.length,
+				out, 0);
+		if (length != payloadSize || !Arrays.equals(plaintext, Arrays.copyOf(out, length))) {
+			throw new IllegalStateException("AesCcmCipher failed to decrypt CCMBlockCipher output");
+		}
+	}
+
+	@Benchmark
+	public byte[] scandiumEncrypt() throws GeneralSecurityException {
+		return scandiumEncrypt(++sequenceNumber);
+	}
+
+	@Benchmark
+	public byte[] scandiumDecrypt() throws GeneralSecurityException {
+		byte[] nonce = nonce(1);
+		byte[] additionalData = additionalData(1, payloadSize);
+		return CCMBlockCipher.decrypt(key, nonce, additionalData, ciphertext, tagLength);
+	}
+
+	@Benchmark
+	public int reusedEncrypt() throws GeneralSecurityException {
+		return ccm.encryptRecord(iv, EPOCH, ++sequenceNumber, APPLICATION_DATA, DTLS_1_2, plaintext, 0, payloadSize,
+				out, 0);
+	}
+
+	@Benchmark
+	public int reusedDecrypt() throws GeneralSecurityException {
+		return ccm.decryptRecord(iv, EPOCH, 1, APPLICATION_DATA, DTLS_1_2, ciphertext, 0, ciphertext.length, out, 0);
+	}
+
+	private byte[] scandiumEncrypt(long sequence) throws GeneralSecurityException {
+		byte[] nonce = nonce(sequence);
+		byte[] additionalData = additionalData(sequence, payloadSize);
+		return CCMBlockCipher.encrypt(key, nonce, additionalData, plaintext, tagLength);
+	}
+
+	/**
+	 * Per record nonce as built by a straightforward implementation : implicit iv + explicit nonce.
+	 */
+	private byte[] nonce(long sequence) {
+		byte[] explicitNonce = sequence(sequence);
+		byte[] nonce = new byte[iv.length + explicitNonce.length];
+		System.arraycopy(iv, 0, nonce, 0, iv.length);
+		System.arraycopy(explicitNonce, 0, nonce, iv.length, explicitNonce.length);
+		return nonce;
+	}
+
+	private static byte[] additionalData(long sequence, int length) {
+		byte[] additionalData = new byte[13];
+		System.arraycopy(sequence(sequence), 0, additionalData, 0, 8);
+		additionalData[8] = APPLICATION_DATA;
+		additionalData[9] = (byte) (DTLS_1_2 >> 8);
+		additionalData[10] = (byte) DTLS_1_2;
+		additionalData[11] = (byte) (length >> 8);
+		additionalData[12] = (byte) length;
+		return additionalData;
+	}
+
+	/**
+	 * @return epoch (2 bytes) + sequence number (6 bytes)
+	 */
+	private static byte[] sequence(long sequence) {
+		byte[] bytes = new byte[8];
+		bytes[0] = (byte) (EPOCH >> 8);
+		bytes[1] = (byte) EPOCH;
+		for (int i = 0; i < 6; i++) {
+			bytes[2 + i] = (byte) (sequence >> (40 - 8 * i));
+		}
+		return bytes;
+	}
+}
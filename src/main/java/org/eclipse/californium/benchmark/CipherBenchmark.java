@@ -1,6 +1,7 @@
 package org.eclipse.californium.benchmark;
 
 import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
 import java.util.concurrent.atomic.AtomicReference;
@@ -9,12 +10,26 @@ import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.NoSuchPaddingException;
 
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Threads;
 
+/**
+ * Cost of getting crypto primitives : JCE lookup, cached provider, pooled and per-thread instances. The nested classes
+ * run the same benchmarks with 4 and "max" threads to show the contention.
+ */
 public class CipherBenchmark {
 
+	@Threads(4)
+	public static class Threads4 extends CipherBenchmark {
+	}
+
+	@Threads(Threads.MAX)
+	public static class ThreadsMax extends CipherBenchmark {
+	}
+
 	private static final String BLOCK_CIPHER = "AES";
 	
 	static AtomicReference<Provider> p = new AtomicReference<>();
@@ -31,6 +46,10 @@ public class CipherBenchmark {
 		}
 		return Cipher.getInstance(BLOCK_CIPHER, p.get());
 	}
+
+	static final CryptoPool<Cipher> CIPHERS = CryptoPool.cipher(CryptoFactory.AES_ECB, 64);
+	static final CryptoPool<Mac> MACS = CryptoPool.mac(CryptoFactory.HMAC_SHA256, 64);
+	static final CryptoPool<MessageDigest> DIGESTS = CryptoPool.messageDigest(CryptoFactory.SHA256, 64);
 	
 	@Benchmark
 	public void getInstance() throws GeneralSecurityException {
@@ -42,4 +61,69 @@ public class CipherBenchmark {
 		getCipher();
 	}
 
+	@Benchmark
+	public Cipher getInstanceAesEcb() throws GeneralSecurityException {
+		return Cipher.getInstance(CryptoFactory.AES_ECB);
+	}
+
+	@Benchmark
+	public Cipher factoryAesEcb() throws GeneralSecurityException {
+		return CryptoFactory.getCipher(CryptoFactory.AES_ECB);
+	}
+
+	@Benchmark
+	public Cipher pooledAesEcb() throws GeneralSecurityException {
+		Cipher cipher = CIPHERS.acquire();
+		CIPHERS.release(cipher);
+		return cipher;
+	}
+
+	@Benchmark
+	public Cipher threadLocalAesEcb() throws GeneralSecurityException {
+		return CIPHERS.current();
+	}
+
+	@Benchmark
+	public Mac getInstanceMac() throws GeneralSecurityException {
+		return Mac.getInstance(CryptoFactory.HMAC_SHA256);
+	}
+
+	@Benchmark
+	public Mac factoryMac() throws GeneralSecurityException {
+		return CryptoFactory.getMac(CryptoFactory.HMAC_SHA256);
+	}
+
+	@Benchmark
+	public Mac pooledMac() throws GeneralSecurityException {
+		Mac mac = MACS.acquire();
+		MACS.release(mac);
+		return mac;
+	}
+
+	@Benchmark
+	public Mac threadLocalMac() throws GeneralSecurityException {
+		return MACS.current();
+	}
+
+	@Benchmark
+	public MessageDigest getInstanceDigest() throws GeneralSecurityException {
+		return MessageDigest.getInstance(CryptoFactory.SHA256);
+	}
+
+	@Benchmark
+	public MessageDigest factoryDigest() throws GeneralSecurityException {
+		return CryptoFactory.getMessageDigest(CryptoFactory.SHA256);
+	}
+
+	@Benchmark
+	public MessageDigest pooledDigest() throws GeneralSecurityException {
+		MessageDigest digest = DIGESTS.acquire();
+		DIGESTS.release(digest);
+		return digest;
+	}
+
+	@Benchmark
+	public MessageDigest threadLocalDigest() throws GeneralSecurityException {
+		return DIGESTS.current();
+	}
 }
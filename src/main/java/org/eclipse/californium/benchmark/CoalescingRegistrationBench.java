@@ -0,0 +1,133 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.redis.RedisRegistrationStore;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import redis.clients.jedis.JedisPoolConfig;
+
+/**
+ * Concurrent getRegistration on the Redis store, direct or through a {@link CoalescingRegistrationStore}, under a Zipf
+ * access pattern : the more skewed, the more threads look up the same registration at the same time.
+ * <p>
+ * The "backendCalls" counter reports the Redis lookups per second against "lookups", sample time gives the latency
+ * percentiles. Coalescing needs overlapping lookups, so it depends on the round trip time ("-p redisRttMillis") and the
+ * thread count ("-t").
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(16)
+public class CoalescingRegistrationBench {
+
+    // Redis lookups of the current thread, the coalesced lookups run in the thread of their first caller
+    private static final ThreadLocal<long[]> BACKEND_CALLS = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        @Param({ "10000" })
+        public int population;
+
+        @Param({ "0.8", "1.2", "2" })
+        public double skew;
+
+        @Param({ "0.5" })
+        public double redisRttMillis;
+
+        public BenchmarkRedis redis;
+        public RegistrationStore store;
+        public CoalescingRegistrationStore coalescingStore;
+        public ZipfDistribution keys;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            // enough connections to not measure the pool
+            JedisPoolConfig config = new JedisPoolConfig();
+            config.setMaxTotal(256);
+            config.setMaxIdle(256);
+            redis = new BenchmarkRedis(redisRttMillis, config);
+            store = new RedisRegistrationStore(redis.getPool()) {
+                @Override
+                public Registration getRegistration(String registrationId) {
+                    BACKEND_CALLS.get()[0]++;
+                    return super.getRegistration(registrationId);
+                }
+            };
+            coalescingStore = new CoalescingRegistrationStore(store);
+
+            // populated without the simulated latency
+            EmbeddedRedisServer server = redis.getServer();
+            if (server != null) {
+                server.setLatency(0, TimeUnit.NANOSECONDS);
+            }
+            Link[] links = Link.parse("</1/0>,</1/1>,</3/0>,</44>;ver=2.2,</44/0>".getBytes());
+            for (int i = 0; i < population; i++) {
+                Registration.Builder builder = new Registration.Builder("regid" + i, "endpoint" + i,
+                        Identity.unsecure(new InetSocketAddress("localhost", 4000 + i % 60000)));
+                builder.objectLinks(links);
+                store.addRegistration(builder.build());
+            }
+            if (server != null) {
+                server.setLatency((long) (redisRttMillis * 1_000_000), TimeUnit.NANOSECONDS);
+            }
+            keys = new ZipfDistribution(population, skew);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.out.printf("%ncoalesced: %.3f of %d lookups%n", coalescingStore.getCoalescedRate(),
+                    coalescingStore.getLoadCount() + coalescingStore.getCoalescedCount());
+            redis.close();
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long lookups;
+        public long backendCalls;
+    }
+
+    @Benchmark
+    public Registration direct(MyState state, Counters counters) {
+        return lookup(state.store, state, counters);
+    }
+
+    @Benchmark
+    public Registration coalescing(MyState state, Counters counters) {
+        return lookup(state.coalescingStore, state, counters);
+    }
+
+    private static Registration lookup(RegistrationStore store, MyState state, Counters counters) {
+        long[] calls = BACKEND_CALLS.get();
+        long before = calls[0];
+        Registration registration = store.getRegistration("regid" + state.keys.sample(ThreadLocalRandom.current()));
+        counters.lookups++;
+        counters.backendCalls += calls[0] - before;
+        return registration;
+    }
+}
@@ -0,0 +1,290 @@
+package org.eclipse.californium.benchmark;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.core.observe.ObservationStore;
+import org.eclipse.californium.elements.EndpointContext;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.server.Destroyable;
+import org.eclipse.leshan.server.Startable;
+import org.eclipse.leshan.server.Stoppable;
+import org.eclipse.leshan.server.californium.registration.CaliforniumRegistrationStore;
+import org.eclipse.leshan.server.registration.Deregistration;
+import org.eclipse.leshan.server.registration.ExpirationListener;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.UpdatedRegistration;
+
+/**
+ * Single-flight {@link RegistrationStore} wrapper : concurrent lookups of the same registration (by id, endpoint or
+ * address) are merged into one call to the (remote) delegate store, the callers arriving while it is in flight wait
+ * for its result instead of paying their own round trip and deserialization.
+ * <p>
+ * Nothing is cached, an in-flight lookup is forgotten as soon as it completes. The lookups of a registration are also
+ * forgotten once it is added, updated or removed, so a lookup starting after the modification returned never gets a
+ * result loaded before it. Callers sharing a lookup share the same {@link Registration} instance, which is immutable.
+ * Observations and iteration are not coalesced.
+ * <p>
+ * As {@link CachingRegistrationStore}, the lifecycle is forwarded to the delegate and the {@link ObservationStore}
+ * methods require a {@link CaliforniumRegistrationStore} delegate.
+ */
+public class CoalescingRegistrationStore
+        implements CaliforniumRegistrationStore, Startable, Stoppable, Destroyable {
+
+    private final RegistrationStore delegate;
+    private final ConcurrentMap<String, FutureTask<Registration>> byId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, FutureTask<Registration>> byEndpoint = new ConcurrentHashMap<>();
+    private final ConcurrentMap<InetSocketAddress, FutureTask<Registration>> byAddress = new ConcurrentHashMap<>();
+
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public CoalescingRegistrationStore(RegistrationStore delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Registration getRegistration(final String registrationId) {
+        return load(byId, registrationId, new Callable<Registration>() {
+            @Override
+            public Registration call() {
+                return delegate.getRegistration(registrationId);
+            }
+        });
+    }
+
+    @Override
+    public Registration getRegistrationByEndpoint(final String endpoint) {
+        return load(byEndpoint, endpoint, new Callable<Registration>() {
+            @Override
+            public Registration call() {
+                return delegate.getRegistrationByEndpoint(endpoint);
+            }
+        });
+    }
+
+    @Override
+    public Registration getRegistrationByAdress(final InetSocketAddress address) {
+        return load(byAddress, address, new Callable<Registration>() {
+            @Override
+            public Registration call() {
+                return delegate.getRegistrationByAdress(address);
+            }
+        });
+    }
+
+    @Override
+    public Iterator<Registration> getAllRegistrations() {
+        return delegate.getAllRegistrations();
+    }
+
+    @Override
+    public Deregistration addRegistration(Registration registration) {
+        Deregistration deregistration = delegate.addRegistration(registration);
+        forget(registration);
+        if (deregistration != null) {
+            forget(deregistration.getRegistration());
+        }
+        return deregistration;
+    }
+
+    @Override
+    public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
+        UpdatedRegistration updated = delegate.updateRegistration(update);
+        byId.remove(update.getRegistrationId());
+        if (updated != null) {
+            forget(updated.getPreviousRegistration());
+            forget(updated.getUpdatedRegistration());
+        }
+        return updated;
+    }
+
+    @Override
+    public Deregistration removeRegistration(String registrationId) {
+        Deregistration deregistration = delegate.removeRegistration(registrationId);
+        byId.remove(registrationId);
+        if (deregistration != null) {
+            forget(deregistration.getRegistration());
+        }
+        return deregistration;
+    }
+
+    @Override
+    public Collection<Observation> addObservation(String registrationId, Observation observation) {
+        return delegate.addObservation(registrationId, observation);
+    }
+
+    @Override
+    public Observation getObservation(String registrationId, byte[] observationId) {
+        return delegate.getObservation(registrationId, observationId);
+    }
+
+    @Override
+    public Observation removeObservation(String registrationId, byte[] observationId) {
+        return delegate.removeObservation(registrationId, observationId);
+    }
+
+    @Override
+    public Collection<Observation> getObservations(String registrationId) {
+        return delegate.getObservations(registrationId);
+    }
+
+    @Override
+    public Collection<Observation> removeObservations(String registrationId) {
+        return delegate.removeObservations(registrationId);
+    }
+
+    @Override
+    public void setExpirationListener(final ExpirationListener listener) {
+        delegate.setExpirationListener(new ExpirationListener() {
+            @Override
+            public void registrationExpired(Registration registration, Collection<Observation> observations) {
+                forget(registration);
+                if (listener != null) {
+                    listener.registrationExpired(registration, observations);
+                }
+            }
+        });
+    }
+
+    @Override
+    public org.eclipse.californium.core.observe.Observation putIfAbsent(Token token,
+            org.eclipse.californium.core.observe.Observation obs) {
+        return observationStore().putIfAbsent(token, obs);
+    }
+
+    @Override
+    public org.eclipse.californium.core.observe.Observation put(Token token,
+            org.eclipse.californium.core.observe.Observation obs) {
+        return observationStore().put(token, obs);
+    }
+
+    @Override
+    public void remove(Token token) {
+        observationStore().remove(token);
+    }
+
+    @Override
+    public org.eclipse.californium.core.observe.Observation get(Token token) {
+        return observationStore().get(token);
+    }
+
+    @Override
+    public void setContext(Token token, EndpointContext endpointContext) {
+        observationStore().setContext(token, endpointContext);
+    }
+
+    @Override
+    public void setExecutor(ScheduledExecutorService executor) {
+        if (delegate instanceof ObservationStore) {
+            ((ObservationStore) delegate).setExecutor(executor);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (delegate instanceof Startable) {
+            ((Startable) delegate).start();
+        } else if (delegate instanceof ObservationStore) {
+            ((ObservationStore) delegate).start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (delegate instanceof Stoppable) {
+            ((Stoppable) delegate).stop();
+        } else if (delegate instanceof ObservationStore) {
+            ((ObservationStore) delegate).stop();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (delegate instanceof Destroyable) {
+            ((Destroyable) delegate).destroy();
+        }
+    }
+
+    /**
+     * @return the number of lookups sent to the delegate store
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * @return the number of lookups served by another in-flight lookup
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return the ratio of lookups which did not reach the delegate store
+     */
+    public double getCoalescedRate() {
+        long c = coalesced.get();
+        long total = c + loads.get();
+        return total == 0 ? 0 : (double) c / total;
+    }
+
+    private CaliforniumRegistrationStore observationStore() {
+        if (!(delegate instanceof CaliforniumRegistrationStore)) {
+            throw new IllegalStateException("Observations require a CaliforniumRegistrationStore delegate");
+        }
+        return (CaliforniumRegistrationStore) delegate;
+    }
+
+    private <K> Registration load(ConcurrentMap<K, FutureTask<Registration>> inFlight, K key,
+            Callable<Registration> loader) {
+        FutureTask<Registration> task = new FutureTask<>(loader);
+        FutureTask<Registration> existing = inFlight.putIfAbsent(key, task);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return get(existing);
+        }
+        loads.incrementAndGet();
+        try {
+            // run by the first caller, the others wait for it
+            task.run();
+        } finally {
+            inFlight.remove(key, task);
+        }
+        return get(task);
+    }
+
+    private static Registration get(FutureTask<Registration> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a registration lookup", e);
+        } catch (ExecutionException e) {
+            // the failure of the shared lookup is rethrown to every caller
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException("Registration lookup failed", cause);
+        }
+    }
+
+    private void forget(Registration registration) {
+        byId.remove(registration.getId());
+        byEndpoint.remove(registration.getEndpoint());
+        byAddress.remove(registration.getSocketAddress());
+    }
+}
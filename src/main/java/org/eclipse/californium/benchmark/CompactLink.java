@@ -0,0 +1,48 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.Map;
+
+import org.eclipse.leshan.core.Link;
+
+/**
+ * {@link Link} referencing an interned url and a shared, immutable attribute map instead of its own copy.
+ * <p>
+ * Instances are created by a {@link LinkInterner}. A CompactLink equals any {@link Link} with the same url and
+ * attributes, but Link.equals only accepts instances of its own class, so do not mix both in hash based collections.
+ */
+public class CompactLink extends Link {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, String> attributes;
+
+    CompactLink(String url, Map<String, String> attributes) {
+        // Link(url) uses the empty map singleton, nothing is copied
+        super(url);
+        this.attributes = attributes;
+    }
+
+    @Override
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Same value as {@link Link#hashCode()} for the same content.
+     */
+    @Override
+    public int hashCode() {
+        int result = 31 + attributes.hashCode();
+        return 31 * result + getUrl().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof Link))
+            return false;
+        Link other = (Link) obj;
+        return getUrl().equals(other.getUrl()) && attributes.equals(other.getAttributes());
+    }
+}
@@ -0,0 +1,98 @@
+package org.eclipse.californium.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import org.eclipse.leshan.server.redis.serialization.RegistrationSerDes;
+import org.eclipse.leshan.server.registration.Registration;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+
+/**
+ * Retained heap and JSON deserialization throughput of the 5-link and 1000-link registrations of
+ * {@link LinkFormatParsing}, with plain {@link org.eclipse.leshan.core.Link}s or {@link CompactLink}s.
+ * <p>
+ * "retained:bytesPerRegistration" is measured at setup by deserializing copies of the registration, the interner being
+ * already filled by a first deserialization as it would be on a running server.
+ */
+@State(Scope.Benchmark)
+public class CompactLinkBench {
+
+    @Param({ "short", "long" })
+    public String registration;
+
+    @Param({ "false", "true" })
+    public boolean interning;
+
+    public String json;
+    public LinkInterner interner;
+    public long bytesPerRegistration;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        LinkFormatParsing.MyState registrations = new LinkFormatParsing.MyState();
+        Registration reg;
+        int copies;
+        if (registration.equals("short")) {
+            reg = registrations.reg;
+            copies = 10000;
+        } else if (registration.equals("long")) {
+            reg = registrations.reg_long;
+            copies = 200;
+        } else {
+            throw new IllegalArgumentException("Unknown registration " + registration);
+        }
+        json = RegistrationSerDes.sSerialize(reg);
+        interner = interning ? new LinkInterner() : null;
+        // CompactLink equals Link, not the other way round
+        if (!deserialize().equals(reg)) {
+            throw new IllegalStateException("Deserialized registration differs from " + reg);
+        }
+
+        Registration[] retained = new Registration[copies];
+        long before = usedHeap();
+        for (int i = 0; i < copies; i++) {
+            retained[i] = deserialize();
+        }
+        bytesPerRegistration = (usedHeap() - before) / copies;
+        System.out.printf("%n%s registration, interning %s: %d bytes retained by %s%n", registration, interning,
+                bytesPerRegistration, retained[copies - 1].getEndpoint());
+    }
+
+    /**
+     * Used heap after a few full collections, so only reachable objects are counted.
+     */
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Retained {
+        public long bytesPerRegistration;
+    }
+
+    /**
+     * Only reports the retained bytes measured at setup, run it with one thread.
+     */
+    @Benchmark
+    public long retained(Retained retained) {
+        retained.bytesPerRegistration = bytesPerRegistration;
+        return bytesPerRegistration;
+    }
+
+    @Benchmark
+    public Registration deserialize() {
+        return LinkFormatParsing.deserialize((JsonObject) Json.parse(json), interner);
+    }
+}
@@ -0,0 +1,653 @@
+package org.eclipse.californium.benchmark;
+
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.eclipse.californium.benchmark.BinaryRegistrationCodec.Input;
+import org.eclipse.californium.benchmark.BinaryRegistrationCodec.Output;
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.server.registration.Deregistration;
+import org.eclipse.leshan.server.registration.ExpirationListener;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.UpdatedRegistration;
+
+/**
+ * In-memory {@link RegistrationStore} keeping registrations as dense records instead of {@link Registration} object
+ * graphs, for servers holding millions of clients.
+ * <p>
+ * Each registration is one small byte array (identity, binding, dates, attributes), its object links are flattened in
+ * a byte array shared by all registrations announcing the same links, released with the last of them. Only values
+ * known in advance (binding modes, LwM2M versions, well-known attribute names) are stored once in a
+ * {@link StringDictionary}, the strings sent by the clients are written inline so they are reclaimed with their
+ * registration. {@link Registration} views are materialized on lookup, the {@link Link} array and supported objects
+ * of a shared link set are decoded once and reused by all views.
+ * <p>
+ * Same semantics as Leshan's InMemoryRegistrationStore: one registration per endpoint, expired registrations removed
+ * periodically once {@link #start()} is called. They are found with a {@link TimerWheelExpirationIndex} rather than by
+ * scanning all the registrations.
+ */
+public class CompactRegistrationStore implements RegistrationStore {
+
+    // the dictionary never shrinks, it only holds these values
+    private static final Set<String> WELL_KNOWN = new HashSet<>(Arrays.asList("1.0", "1.1", "ver", "ct", "rt", "if",
+            "obs", "title", "anchor", "rel", "sz", "pmin", "pmax", "gt", "lt", "st", "epmin", "epmax"));
+
+    private final StringDictionary dictionary = new StringDictionary();
+
+    // all guarded by lock
+    private final Map<String, Record> byRegId = new HashMap<>();
+    private final Map<String, Record> byEndpoint = new HashMap<>();
+    private final Map<Object, Record> byAddress = new HashMap<>();
+    private final Map<LinkSet, LinkSet> linkSets = new HashMap<>();
+    private final Map<String, List<Observation>> observations = new HashMap<>();
+    private final TimerWheelExpirationIndex<String> expirations = new TimerWheelExpirationIndex<>(1000,
+            System.currentTimeMillis());
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ScheduledExecutorService executor;
+    private final long cleanPeriod;
+    private ScheduledFuture<?> cleanerTask;
+    private volatile ExpirationListener expirationListener;
+
+    public CompactRegistrationStore() {
+        this(60);
+    }
+
+    /**
+     * @param cleanPeriodInSec period between two removals of expired registrations
+     */
+    public CompactRegistrationStore(long cleanPeriodInSec) {
+        this.cleanPeriod = cleanPeriodInSec;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CompactRegistrationStore Cleaner");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public Deregistration addRegistration(Registration registration) {
+        // encoded outside of the lock, only the link set interning needs it
+        byte[] data = encode(registration);
+        LinkSet links = new LinkSet(encodeLinks(registration.getObjectLinks()));
+        lock.writeLock().lock();
+        try {
+            Record record = new Record(registration, data, intern(links, registration));
+            Record previous = byEndpoint.put(record.endpoint, record);
+            byRegId.put(record.id, record);
+            if (previous != null) {
+                // same id when a registration is added again, the record was just replaced
+                if (!previous.id.equals(record.id)) {
+                    byRegId.remove(previous.id);
+                    expirations.cancel(previous.id);
+                }
+                removeFromMap(byAddress, previous.address, previous);
+                release(previous.links);
+            }
+            byAddress.put(record.address, record);
+            expirations.schedule(record.id, record.expirationTime);
+            if (previous != null) {
+                return new Deregistration(view(previous), removeAllObservations(previous.id));
+            }
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
+        lock.writeLock().lock();
+        try {
+            Record record = byRegId.get(update.getRegistrationId());
+            if (record == null) {
+                return null;
+            }
+            Registration previous = view(record);
+            Registration updated = update.update(previous);
+            LinkSet links = record.links;
+            if (updated.getObjectLinks() != previous.getObjectLinks()) {
+                links = intern(new LinkSet(encodeLinks(updated.getObjectLinks())), updated);
+                release(record.links);
+            }
+            Record updatedRecord = new Record(updated, encode(updated), links);
+            byRegId.put(updatedRecord.id, updatedRecord);
+            byEndpoint.put(updatedRecord.endpoint, updatedRecord);
+            removeFromMap(byAddress, record.address, record);
+            byAddress.put(updatedRecord.address, updatedRecord);
+            expirations.schedule(updatedRecord.id, updatedRecord.expirationTime);
+            return new UpdatedRegistration(previous, updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Registration getRegistration(String registrationId) {
+        Record record;
+        lock.readLock().lock();
+        try {
+            record = byRegId.get(registrationId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        // records are immutable, the view is built outside of the lock
+        return record == null ? null : view(record);
+    }
+
+    @Override
+    public Registration getRegistrationByEndpoint(String endpoint) {
+        Record record;
+        lock.readLock().lock();
+        try {
+            record = byEndpoint.get(endpoint);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return record == null ? null : view(record);
+    }
+
+    @Override
+    public Registration getRegistrationByAdress(InetSocketAddress address) {
+        Record record;
+        lock.readLock().lock();
+        try {
+            record = byAddress.get(addressKey(address));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return record == null ? null : view(record);
+    }
+
+    /**
+     * Iterates over a snapshot of the registrations, views are materialized while iterating.
+     */
+    @Override
+    public Iterator<Registration> getAllRegistrations() {
+        final Record[] records;
+        lock.readLock().lock();
+        try {
+            records = byRegId.values().toArray(new Record[byRegId.size()]);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new Iterator<Registration>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < records.length;
+            }
+
+            @Override
+            public Registration next() {
+                if (index >= records.length) {
+                    throw new NoSuchElementException();
+                }
+                return view(records[index++]);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+        };
+    }
+
+    @Override
+    public Deregistration removeRegistration(String registrationId) {
+        lock.writeLock().lock();
+        try {
+            Record record = byRegId.remove(registrationId);
+            if (record == null) {
+                return null;
+            }
+            removeFromMap(byEndpoint, record.endpoint, record);
+            removeFromMap(byAddress, record.address, record);
+            expirations.cancel(registrationId);
+            release(record.links);
+            return new Deregistration(view(record), removeAllObservations(registrationId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the observation, replacing the other observations of the same path.
+     *
+     * @return the replaced observations
+     */
+    @Override
+    public Collection<Observation> addObservation(String registrationId, Observation observation) {
+        List<Observation> removed = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            List<Observation> list = observations.get(registrationId);
+            if (list == null) {
+                list = new ArrayList<>(2);
+                observations.put(registrationId, list);
+            }
+            for (Iterator<Observation> it = list.iterator(); it.hasNext();) {
+                Observation existing = it.next();
+                if (existing.getPath().equals(observation.getPath())
+                        || Arrays.equals(existing.getId(), observation.getId())) {
+                    it.remove();
+                    if (!Arrays.equals(existing.getId(), observation.getId())) {
+                        removed.add(existing);
+                    }
+                }
+            }
+            list.add(observation);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return removed;
+    }
+
+    @Override
+    public Observation getObservation(String registrationId, byte[] observationId) {
+        lock.readLock().lock();
+        try {
+            List<Observation> list = observations.get(registrationId);
+            if (list != null) {
+                for (Observation observation : list) {
+                    if (Arrays.equals(observation.getId(), observationId)) {
+                        return observation;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Observation removeObservation(String registrationId, byte[] observationId) {
+        lock.writeLock().lock();
+        try {
+            List<Observation> list = observations.get(registrationId);
+            if (list != null) {
+                for (Iterator<Observation> it = list.iterator(); it.hasNext();) {
+                    Observation observation = it.next();
+                    if (Arrays.equals(observation.getId(), observationId)) {
+                        it.remove();
+                        if (list.isEmpty()) {
+                            observations.remove(registrationId);
+                        }
+                        return observation;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<Observation> getObservations(String registrationId) {
+        lock.readLock().lock();
+        try {
+            List<Observation> list = observations.get(registrationId);
+            if (list == null) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<>(list);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<Observation> removeObservations(String registrationId) {
+        lock.writeLock().lock();
+        try {
+            return removeAllObservations(registrationId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setExpirationListener(ExpirationListener listener) {
+        this.expirationListener = listener;
+    }
+
+    public synchronized void start() {
+        if (cleanerTask == null) {
+            cleanerTask = executor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    removeExpiredRegistrations();
+                }
+            }, cleanPeriod, cleanPeriod, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (cleanerTask != null) {
+            cleanerTask.cancel(false);
+            cleanerTask = null;
+        }
+    }
+
+    public synchronized void destroy() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byRegId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct object link sets
+     */
+    public int getLinkSetCount() {
+        lock.readLock().lock();
+        try {
+            return linkSets.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    void removeExpiredRegistrations() {
+        List<Deregistration> removed = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            // updated registrations were rescheduled, only the expired ones are returned
+            for (String id : expirations.advance(System.currentTimeMillis())) {
+                Deregistration deregistration = removeRegistration(id);
+                if (deregistration != null) {
+                    removed.add(deregistration);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ExpirationListener listener = expirationListener;
+        if (listener != null) {
+            for (Deregistration deregistration : removed) {
+                listener.registrationExpired(deregistration.getRegistration(), deregistration.getObservations());
+            }
+        }
+    }
+
+    private Collection<Observation> removeAllObservations(String registrationId) {
+        List<Observation> removed = observations.remove(registrationId);
+        if (removed == null) {
+            return Collections.emptyList();
+        }
+        return removed;
+    }
+
+    /**
+     * @return the shared instance of the given link set, its links and supported objects taken from the registration
+     *         announcing it first
+     */
+    private LinkSet intern(LinkSet links, Registration registration) {
+        LinkSet shared = linkSets.get(links);
+        if (shared == null) {
+            shared = links;
+            // decoded rather than taken from the registration so links share the well-known dictionary strings
+            shared.links = decodeLinks(shared.data);
+            if (shared.links != null) {
+                shared.supportedObjects = Collections
+                        .unmodifiableMap(new HashMap<>(registration.getSupportedObject()));
+            }
+            linkSets.put(shared, shared);
+        }
+        shared.references++;
+        return shared;
+    }
+
+    private void release(LinkSet links) {
+        if (--links.references == 0) {
+            linkSets.remove(links);
+        }
+    }
+
+    private static <K> void removeFromMap(Map<K, Record> map, K key, Record record) {
+        if (map.get(key) == record) {
+            map.remove(key);
+        }
+    }
+
+    /**
+     * IPv4 addresses are indexed as a Long (address << 16 | port), much smaller than an {@link InetSocketAddress}.
+     */
+    private static Object addressKey(InetSocketAddress address) {
+        if (address.getAddress() instanceof Inet4Address) {
+            byte[] ip = address.getAddress().getAddress();
+            long key = ((ip[0] & 0xFFL) << 24) | ((ip[1] & 0xFF) << 16) | ((ip[2] & 0xFF) << 8) | (ip[3] & 0xFF);
+            return (key << 16) | address.getPort();
+        }
+        return address;
+    }
+
+    /**
+     * Layout, integers are unsigned varints, dictionary references are id + 1 (0 means null), texts are a reference or
+     * 0 followed by the string:
+     *
+     * <pre>
+     * identity, bnd (ref), lastUp, lt, ver (text), regDate, sms (string)
+     * addAttr : count, (key text, value string)*
+     * </pre>
+     *
+     * Registration id and endpoint are kept as strings in the record, they are the index keys.
+     */
+    private byte[] encode(Registration registration) {
+        Output out = new Output(64);
+        BinaryRegistrationCodec.writeIdentity(out, registration.getIdentity());
+        writeRef(out, registration.getBindingMode().name());
+        out.writeVarLong(registration.getLastUpdate().getTime());
+        out.writeVarLong(registration.getLifeTimeInSec());
+        writeText(out, registration.getLwM2mVersion());
+        out.writeVarLong(registration.getRegistrationDate().getTime());
+        out.writeString(registration.getSmsNumber());
+        Map<String, String> additionalAttributes = registration.getAdditionalRegistrationAttributes();
+        out.writeVarInt(additionalAttributes.size());
+        for (Entry<String, String> attribute : additionalAttributes.entrySet()) {
+            writeText(out, attribute.getKey());
+            out.writeString(attribute.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    private Registration view(Record record) {
+        Input in = new Input(record.data);
+        Registration.Builder b = new Registration.Builder(record.id, record.endpoint,
+                BinaryRegistrationCodec.readIdentity(in));
+        b.bindingMode(BindingMode.valueOf(readRef(in)));
+        b.lastUpdate(new Date(in.readVarLong()));
+        b.lifeTimeInSec(in.readVarLong());
+        b.lwM2mVersion(readText(in));
+        b.registrationDate(new Date(in.readVarLong()));
+        String sms = in.readString();
+        if (sms != null) {
+            b.smsNumber(sms);
+        }
+        int size = in.readVarInt();
+        if (size == 0) {
+            b.additionalRegistrationAttributes(Collections.<String, String> emptyMap());
+        } else {
+            Map<String, String> additionalAttributes = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                additionalAttributes.put(readText(in), in.readString());
+            }
+            b.additionalRegistrationAttributes(additionalAttributes);
+        }
+        Link[] links = record.links.links;
+        if (links != null) {
+            // links are immutable but the array is not
+            b.objectLinks(links.clone());
+        }
+        if (record.links.supportedObjects != null) {
+            b.supportedObjects(record.links.supportedObjects);
+        }
+        return b.build();
+    }
+
+    /**
+     * Layout : count + 1 (0 means no links), (url string, attribute count, (key text, value string)*)*
+     */
+    private byte[] encodeLinks(Link[] links) {
+        if (links == null) {
+            return new byte[] { 0 };
+        }
+        Output out = new Output(links.length * 10);
+        out.writeVarInt(links.length + 1);
+        for (Link link : links) {
+            out.writeString(link.getUrl());
+            Map<String, String> attributes = link.getAttributes();
+            out.writeVarInt(attributes.size());
+            for (Entry<String, String> attribute : attributes.entrySet()) {
+                writeText(out, attribute.getKey());
+                out.writeString(attribute.getValue());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private Link[] decodeLinks(byte[] data) {
+        Input in = new Input(data);
+        int count = in.readVarInt() - 1;
+        if (count < 0) {
+            return null;
+        }
+        Link[] links = new Link[count];
+        Map<String, String> attributes = new HashMap<>();
+        for (int i = 0; i < links.length; i++) {
+            String url = in.readString();
+            int attributeCount = in.readVarInt();
+            if (attributeCount == 0) {
+                links[i] = new Link(url);
+            } else {
+                // Link copies its attributes so the same map can be reused for all links
+                attributes.clear();
+                for (int j = 0; j < attributeCount; j++) {
+                    attributes.put(readText(in), in.readString());
+                }
+                links[i] = new Link(url, attributes);
+            }
+        }
+        return links;
+    }
+
+    private void writeRef(Output out, String s) {
+        out.writeVarInt(s == null ? 0 : dictionary.idOf(s) + 1);
+    }
+
+    private String readRef(Input in) {
+        int ref = in.readVarInt();
+        return ref == 0 ? null : dictionary.get(ref - 1);
+    }
+
+    /**
+     * Writes a dictionary reference for a well-known value, the string itself otherwise.
+     */
+    private void writeText(Output out, String s) {
+        if (s != null && WELL_KNOWN.contains(s)) {
+            writeRef(out, s);
+        } else {
+            out.writeVarInt(0);
+            out.writeString(s);
+        }
+    }
+
+    private String readText(Input in) {
+        int ref = in.readVarInt();
+        return ref == 0 ? in.readString() : dictionary.get(ref - 1);
+    }
+
+    /**
+     * Registration record, immutable.
+     */
+    private static class Record {
+        private final String id;
+        private final String endpoint;
+        private final Object address;
+        private final long expirationTime;
+        private final byte[] data;
+        private final LinkSet links;
+
+        Record(Registration registration, byte[] data, LinkSet links) {
+            this.id = registration.getId();
+            this.endpoint = registration.getEndpoint();
+            this.address = addressKey(registration.getIdentity().getPeerAddress());
+            this.expirationTime = registration.getExpirationTimeStamp();
+            this.data = data;
+            this.links = links;
+        }
+    }
+
+    /**
+     * Object links shared by the registrations announcing them, compared by encoded content.
+     */
+    private static class LinkSet {
+        private final byte[] data;
+        private final int hash;
+        // set once when interned, before being published by the lock
+        private Link[] links;
+        private Map<Integer, String> supportedObjects;
+        // guarded by the store lock
+        private int references;
+
+        LinkSet(byte[] data) {
+            this.data = data;
+            this.hash = Arrays.hashCode(data);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof LinkSet && Arrays.equals(data, ((LinkSet) obj).data);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.eclipse.californium.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.californium.registration.InMemoryRegistrationStore;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Heap footprint and lookup latency of Leshan's InMemoryRegistrationStore against {@link CompactRegistrationStore}.
+ * <p>
+ * Each client announces linkCount links ("/i/0" with ver=2.1, as the long registration of {@link LinkFormatParsing})
+ * parsed for each registration like a server does, the last link differs between the linkSetVariants link sets. The
+ * "footprint:bytesPerRegistration" column is the retained heap per registration after populating the store. For a
+ * million devices use "-p population=1000000 -p linkCount=10" with a large enough -Xmx.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CompactRegistrationStoreBench {
+
+    @Param({ "memory", "compact" })
+    public String store;
+
+    @Param({ "1000" })
+    public int population;
+
+    @Param({ "10", "1000" })
+    public int linkCount;
+
+    @Param({ "1", "100" })
+    public int linkSetVariants;
+
+    public RegistrationStore registrationStore;
+    public long bytesPerRegistration;
+
+    @Setup(Level.Trial)
+    public void setup() throws UnknownHostException {
+        byte[][] payloads = new byte[linkSetVariants][];
+        for (int v = 0; v < payloads.length; v++) {
+            StringBuilder payload = new StringBuilder();
+            for (int i = 0; i < linkCount - 1; i++) {
+                payload.append("</").append(i).append("/0>;ver=2.1,");
+            }
+            payload.append("</3442/").append(v).append(">");
+            payloads[v] = payload.toString().getBytes();
+        }
+
+        long before = usedHeap();
+        if (store.equals("memory")) {
+            registrationStore = new InMemoryRegistrationStore();
+        } else if (store.equals("compact")) {
+            registrationStore = new CompactRegistrationStore();
+        } else {
+            throw new IllegalArgumentException("Unknown store " + store);
+        }
+        for (int i = 0; i < population; i++) {
+            Registration.Builder builder = new Registration.Builder("regid" + i, "endpoint" + i,
+                    Identity.unsecure(address(i)));
+            builder.objectLinks(Link.parse(payloads[i % payloads.length]));
+            registrationStore.addRegistration(builder.build());
+        }
+        bytesPerRegistration = (usedHeap() - before) / population;
+        System.out.printf("%n%s store: %d bytes per registration%n", store, bytesPerRegistration);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (registrationStore instanceof InMemoryRegistrationStore) {
+            ((InMemoryRegistrationStore) registrationStore).destroy();
+        } else if (registrationStore instanceof CompactRegistrationStore) {
+            ((CompactRegistrationStore) registrationStore).destroy();
+        }
+        registrationStore = null;
+    }
+
+    /**
+     * Used heap after a few full collections, so only reachable objects are counted.
+     */
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * One IPv4 address per client, 10.x.y.z:5683.
+     */
+    private static InetSocketAddress address(int i) throws UnknownHostException {
+        byte[] ip = { 10, (byte) (i >> 16), (byte) (i >> 8), (byte) i };
+        return new InetSocketAddress(InetAddress.getByAddress(ip), 5683);
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long bytesPerRegistration;
+    }
+
+    /**
+     * Only reports the footprint measured at setup, run it with one thread.
+     */
+    @Benchmark
+    public long footprint(Footprint footprint) {
+        footprint.bytesPerRegistration = bytesPerRegistration;
+        return bytesPerRegistration;
+    }
+
+    @Benchmark
+    public Registration getRegistration() {
+        return registrationStore.getRegistration("regid" + ThreadLocalRandom.current().nextInt(population));
+    }
+
+    @Benchmark
+    public Registration getRegistrationByEndpoint() {
+        return registrationStore
+                .getRegistrationByEndpoint("endpoint" + ThreadLocalRandom.current().nextInt(population));
+    }
+
+    @Benchmark
+    public Registration getRegistrationByAddress() throws UnknownHostException {
+        return registrationStore.getRegistrationByAdress(address(ThreadLocalRandom.current().nextInt(population)));
+    }
+
+    /**
+     * Lookup then use the links, which the compact store decodes once per link set.
+     */
+    @Benchmark
+    public Map<Integer, String> getSupportedObject() {
+        return registrationStore.getRegistration("regid" + ThreadLocalRandom.current().nextInt(population))
+                .getSupportedObject();
+    }
+}
@@ -0,0 +1,61 @@
+package org.eclipse.californium.benchmark;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+
+/**
+ * Crypto primitives factory caching the provider resolution per algorithm.
+ * <p>
+ * getInstance(algorithm) walks the provider list on each call, the first call per algorithm does it and the resolved
+ * provider is then passed explicitly. Use {@link CryptoPool} to also reuse the instances.
+ */
+public final class CryptoFactory {
+
+	/** Block cipher used by the DTLS AES-CCM cipher suites (CCM itself is implemented on top of it). */
+	public static final String AES_ECB = "AES/ECB/NoPadding";
+	public static final String HMAC_SHA256 = "HmacSHA256";
+	public static final String SHA256 = "SHA-256";
+
+	private static final ConcurrentMap<String, Provider> CIPHER_PROVIDERS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, Provider> MAC_PROVIDERS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, Provider> DIGEST_PROVIDERS = new ConcurrentHashMap<>();
+
+	private CryptoFactory() {
+	}
+
+	public static Cipher getCipher(String transformation) throws GeneralSecurityException {
+		Provider provider = CIPHER_PROVIDERS.get(transformation);
+		if (provider != null) {
+			return Cipher.getInstance(transformation, provider);
+		}
+		Cipher cipher = Cipher.getInstance(transformation);
+		CIPHER_PROVIDERS.putIfAbsent(transformation, cipher.getProvider());
+		return cipher;
+	}
+
+	public static Mac getMac(String algorithm) throws GeneralSecurityException {
+		Provider provider = MAC_PROVIDERS.get(algorithm);
+		if (provider != null) {
+			return Mac.getInstance(algorithm, provider);
+		}
+		Mac mac = Mac.getInstance(algorithm);
+		MAC_PROVIDERS.putIfAbsent(algorithm, mac.getProvider());
+		return mac;
+	}
+
+	public static MessageDigest getMessageDigest(String algorithm) throws GeneralSecurityException {
+		Provider provider = DIGEST_PROVIDERS.get(algorithm);
+		if (provider != null) {
+			return MessageDigest.getInstance(algorithm, provider);
+		}
+		MessageDigest digest = MessageDigest.getInstance(algorithm);
+		DIGEST_PROVIDERS.putIfAbsent(algorithm, digest.getProvider());
+		return digest;
+	}
+}
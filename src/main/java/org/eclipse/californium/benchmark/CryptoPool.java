@@ -0,0 +1,108 @@
+package org.eclipse.californium.benchmark;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+
+/**
+ * Reusable crypto primitive instances, either bound to the current thread or taken from a bounded pool.
+ * <p>
+ * A {@link Cipher} must be (re)initialized by the user, {@link Mac} and {@link MessageDigest} are reset on release.
+ *
+ * @param <T> Cipher, Mac or MessageDigest
+ */
+public abstract class CryptoPool<T> {
+
+	private final Queue<T> instances = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger size = new AtomicInteger();
+	private final int maxPooled;
+	private final ThreadLocal<T> threadInstance = new ThreadLocal<>();
+
+	protected CryptoPool(int maxPooled) {
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * @return the instance of the current thread, it must not be handed to another thread.
+	 */
+	public T current() throws GeneralSecurityException {
+		T instance = threadInstance.get();
+		if (instance == null) {
+			instance = create();
+			threadInstance.set(instance);
+		}
+		return instance;
+	}
+
+	/**
+	 * @return a pooled or new instance, give it back with {@link #release(Object)}
+	 */
+	public T acquire() throws GeneralSecurityException {
+		T instance = instances.poll();
+		if (instance == null) {
+			return create();
+		}
+		size.decrementAndGet();
+		return instance;
+	}
+
+	public void release(T instance) {
+		if (size.incrementAndGet() <= maxPooled) {
+			reset(instance);
+			instances.offer(instance);
+		} else {
+			size.decrementAndGet();
+		}
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+	protected abstract T create() throws GeneralSecurityException;
+
+	protected void reset(T instance) {
+	}
+
+	public static CryptoPool<Cipher> cipher(final String transformation, int maxPooled) {
+		return new CryptoPool<Cipher>(maxPooled) {
+			@Override
+			protected Cipher create() throws GeneralSecurityException {
+				return CryptoFactory.getCipher(transformation);
+			}
+		};
+	}
+
+	public static CryptoPool<Mac> mac(final String algorithm, int maxPooled) {
+		return new CryptoPool<Mac>(maxPooled) {
+			@Override
+			protected Mac create() throws GeneralSecurityException {
+				return CryptoFactory.getMac(algorithm);
+			}
+
+			@Override
+			protected void reset(Mac mac) {
+				mac.reset();
+			}
+		};
+	}
+
+	public static CryptoPool<MessageDigest> messageDigest(final String algorithm, int maxPooled) {
+		return new CryptoPool<MessageDigest>(maxPooled) {
+			@Override
+			protected MessageDigest create() throws GeneralSecurityException {
+				return CryptoFactory.getMessageDigest(algorithm);
+			}
+
+			@Override
+			protected void reset(MessageDigest digest) {
+				digest.reset();
+			}
+		};
+	}
+}
@@ -0,0 +1,352 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.EndpointContext;
+import org.eclipse.californium.elements.MessageCallback;
+import org.eclipse.californium.elements.RawData;
+import org.eclipse.californium.elements.RawDataChannel;
+import org.eclipse.californium.elements.util.DaemonThreadFactory;
+import org.eclipse.californium.scandium.DTLSConnector;
+import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
+import org.eclipse.californium.scandium.dtls.CertificateType;
+import org.eclipse.californium.scandium.dtls.Connection;
+import org.eclipse.californium.scandium.dtls.DTLSSession;
+import org.eclipse.californium.scandium.dtls.Handshaker;
+import org.eclipse.californium.scandium.dtls.InMemoryConnectionStore;
+import org.eclipse.californium.scandium.dtls.SessionAdapter;
+import org.eclipse.californium.scandium.dtls.SessionId;
+import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
+import org.eclipse.californium.scandium.dtls.pskstore.InMemoryPskStore;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Concurrent Scandium DTLS handshakes over loopback, PSK (TLS_PSK_WITH_AES_128_CCM_8) or RPK
+ * (TLS_ECDHE_ECDSA_WITH_AES_128_CCM_8 with client authentication), full or resuming the previous session of the
+ * device, as when devices reconnect en masse.
+ * <p>
+ * Each device is a client {@link DTLSConnector} with its own socket. Before each handshake the server forgets the
+ * connection of the device, as after a fail-over or a restart, so a resumption looks the session up in the
+ * {@link BoundedSessionCache} (sessionCacheSize of the devices) and falls back to a full handshake on a miss.
+ * <p>
+ * A handshake completes when the client sent its record and the server established the session, both signaled by
+ * callbacks. "handshakes" is the throughput, "handshakesPerCore" the same divided by the available processors (client
+ * and server share them), "resumed" the abbreviated handshakes. "cacheHitRate" (percent, over the iteration) reports
+ * the session cache, "cacheEstimatedKiB" its {@link BoundedSessionCache#getEstimatedMemory() estimated} memory, which
+ * is computed from the ticket sizes and a fixed per-entry overhead, not measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class DtlsHandshakeBench {
+
+    private static final long HANDSHAKE_TIMEOUT_MILLIS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        @Param({ "psk", "rpk" })
+        public String credentials;
+
+        @Param({ "full", "resume" })
+        public String handshake;
+
+        @Param({ "256" })
+        public int devices;
+
+        @Param({ "128" })
+        public int sessionCacheSize;
+
+        public ExecutorService executor;
+        public BoundedSessionCache sessionCache;
+        public InMemoryConnectionStore serverConnections;
+        public DTLSConnector server;
+        public InetSocketAddress serverAddress;
+        public Device[] clients;
+        public ConcurrentMap<InetSocketAddress, Device> clientsByAddress = new ConcurrentHashMap<>();
+        public boolean resume;
+        // the thread reporting the session cache counters, the counters of all threads are summed
+        public AtomicBoolean cacheReporter = new AtomicBoolean();
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException, GeneralSecurityException, InterruptedException {
+            resume = handshake.equals("resume");
+            if (!resume && !handshake.equals("full")) {
+                throw new IllegalArgumentException("Unknown handshake " + handshake);
+            }
+            executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                    new DaemonThreadFactory("DtlsHandshakeBench#"));
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            KeyPair serverKeys = generator.generateKeyPair();
+            KeyPair clientKeys = generator.generateKeyPair();
+            InMemoryPskStore serverPsk = new InMemoryPskStore();
+
+            sessionCache = new BoundedSessionCache(sessionCacheSize);
+            DtlsConnectorConfig.Builder config = new DtlsConnectorConfig.Builder()
+                    .setAddress(new InetSocketAddress("127.0.0.1", 0)).setServerOnly(true);
+            credentials(config, serverPsk, serverKeys, true);
+            serverConnections = new InMemoryConnectionStore(devices * 2, 3600, sessionCache);
+            // the constructor taking a connection store is protected
+            server = new DTLSConnector(config.build(), serverConnections) {
+                @Override
+                protected void onInitializeHandshaker(Handshaker handshaker) {
+                    handshaker.addSessionListener(new SessionAdapter() {
+                        @Override
+                        public void sessionEstablished(Handshaker handshaker, DTLSSession session) {
+                            serverHandshakeDone(handshaker, true);
+                        }
+
+                        @Override
+                        public void handshakeFailed(Handshaker handshaker, Throwable error) {
+                            serverHandshakeDone(handshaker, false);
+                        }
+                    });
+                }
+            };
+            server.setExecutor(executor);
+            server.setRawDataReceiver(new RawDataChannel() {
+                @Override
+                public void receiveData(RawData raw) {
+                }
+            });
+            server.start();
+            serverAddress = server.getAddress();
+
+            clients = new Device[devices];
+            for (int i = 0; i < devices; i++) {
+                byte[] key = ("key" + i).getBytes();
+                serverPsk.setKey("device" + i, key);
+                InMemoryPskStore psk = new InMemoryPskStore();
+                psk.addKnownPeer(serverAddress, "device" + i, key);
+                config = new DtlsConnectorConfig.Builder().setAddress(new InetSocketAddress("127.0.0.1", 0))
+                        .setClientOnly().setReceiverThreadCount(1).setMaxConnections(1);
+                credentials(config, psk, clientKeys, false);
+                DTLSConnector connector = new DTLSConnector(config.build());
+                connector.setExecutor(executor);
+                connector.setRawDataReceiver(new RawDataChannel() {
+                    @Override
+                    public void receiveData(RawData raw) {
+                    }
+                });
+                connector.start();
+                clients[i] = new Device(connector);
+                clientsByAddress.put(connector.getAddress(), clients[i]);
+            }
+
+            // initial sessions, the last device is still in the session cache and must resume
+            for (Device device : clients) {
+                if (!handshake(device, false)) {
+                    throw new IllegalStateException("Handshake failed");
+                }
+            }
+            Device last = clients[devices - 1];
+            SessionId id = session(last).getSessionIdentifier();
+            if (!handshake(last, true) || !id.equals(session(last).getSessionIdentifier())
+                    || sessionCache.getHitCount() != 1) {
+                throw new IllegalStateException("Session not resumed from the cache");
+            }
+            sessionCache.resetStatistics();
+        }
+
+        private void credentials(DtlsConnectorConfig.Builder config, InMemoryPskStore psk, KeyPair keys,
+                boolean server) {
+            if (credentials.equals("psk")) {
+                config.setSupportedCipherSuites(CipherSuite.TLS_PSK_WITH_AES_128_CCM_8).setPskStore(psk);
+            } else if (credentials.equals("rpk")) {
+                config.setSupportedCipherSuites(CipherSuite.TLS_ECDHE_ECDSA_WITH_AES_128_CCM_8)
+                        .setIdentity(keys.getPrivate(), keys.getPublic()).setRpkTrustAll();
+                if (server) {
+                    config.setClientAuthenticationRequired(true);
+                } else {
+                    // a resuming server announces the X_509 certificate type, no certificate is exchanged though
+                    config.setTrustStore(new Certificate[0]).setTrustCertificateTypes(CertificateType.RAW_PUBLIC_KEY,
+                            CertificateType.X_509);
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown credentials " + credentials);
+            }
+        }
+
+        private void serverHandshakeDone(Handshaker handshaker, boolean established) {
+            Device device = clientsByAddress.get(handshaker.getPeerAddress());
+            if (device != null) {
+                device.serverEstablished = established;
+                device.serverHandshake.countDown();
+            }
+        }
+
+        private DTLSSession session(Device device) {
+            return device.connector.getSessionByAddress(serverAddress);
+        }
+
+        /**
+         * Performs a full or an abbreviated handshake and sends a record.
+         *
+         * @return false if the handshake failed or timed out, on the client or on the server
+         */
+        public boolean handshake(Device device, boolean resume) throws InterruptedException {
+            Connection connection = serverConnections.get(device.connector.getAddress());
+            if (connection != null) {
+                // keeps the session in the cache
+                serverConnections.remove(connection, false);
+            }
+            if (resume) {
+                device.connector.forceResumeSessionFor(serverAddress);
+            } else {
+                device.connector.clearConnectionState();
+            }
+            device.serverEstablished = false;
+            device.serverHandshake = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(1);
+            final AtomicBoolean sent = new AtomicBoolean();
+            device.connector.send(RawData.outbound(new byte[] { 1 }, new AddressEndpointContext(serverAddress),
+                    new MessageCallback() {
+                        @Override
+                        public void onConnecting() {
+                        }
+
+                        @Override
+                        public void onDtlsRetransmission(int flight) {
+                        }
+
+                        @Override
+                        public void onContextEstablished(EndpointContext context) {
+                        }
+
+                        @Override
+                        public void onSent() {
+                            sent.set(true);
+                            done.countDown();
+                        }
+
+                        @Override
+                        public void onError(Throwable error) {
+                            done.countDown();
+                        }
+                    }, false));
+            // the client may complete the handshake before the server, or the other way around
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(HANDSHAKE_TIMEOUT_MILLIS);
+            return done.await(HANDSHAKE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) && sent.get()
+                    && device.serverHandshake.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                    && device.serverEstablished;
+        }
+
+        /**
+         * @return an idle device, picked at random
+         */
+        public Device acquire() {
+            while (true) {
+                Device device = clients[ThreadLocalRandom.current().nextInt(clients.length)];
+                if (device.busy.compareAndSet(false, true))
+                    return device;
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void resetStatistics() {
+            sessionCache.resetStatistics();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.out.printf("%nsession cache: %d sessions, ~%d KiB estimated, hit rate %.1f%%, %d evictions%n",
+                    sessionCache.size(), sessionCache.getEstimatedMemory() / 1024, sessionCache.getHitRate() * 100,
+                    sessionCache.getEvictionCount());
+            for (Device device : clients) {
+                device.connector.destroy();
+            }
+            server.destroy();
+            executor.shutdownNow();
+        }
+    }
+
+    public static class Device {
+        private final DTLSConnector connector;
+        private final AtomicBoolean busy = new AtomicBoolean();
+        // reset before each handshake, signaled by the server
+        private volatile CountDownLatch serverHandshake = new CountDownLatch(1);
+        private volatile boolean serverEstablished;
+
+        Device(DTLSConnector connector) {
+            this.connector = connector;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Handshakes {
+        private final double core = 1.0 / Runtime.getRuntime().availableProcessors();
+
+        public long handshakes;
+        public double handshakesPerCore;
+        public long resumed;
+        public long failures;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Cache {
+        private boolean reporter;
+
+        public double cacheHitRate;
+        // not measured, see BoundedSessionCache#getEstimatedMemory()
+        public long cacheEstimatedKiB;
+
+        @Setup(Level.Trial)
+        public void setup(MyState state) {
+            reporter = state.cacheReporter.compareAndSet(false, true);
+        }
+    }
+
+    @Benchmark
+    public void handshake(MyState state, Handshakes handshakes, Cache cache) throws InterruptedException {
+        Device device = state.acquire();
+        try {
+            DTLSSession previous = state.session(device);
+            if (state.handshake(device, state.resume)) {
+                handshakes.handshakes++;
+                handshakes.handshakesPerCore += handshakes.core;
+                DTLSSession session = state.session(device);
+                if (state.resume && previous != null && session != null
+                        && previous.getSessionIdentifier().equals(session.getSessionIdentifier())) {
+                    handshakes.resumed++;
+                }
+            } else {
+                handshakes.failures++;
+            }
+        } finally {
+            device.busy.set(false);
+        }
+        if (cache.reporter) {
+            cache.cacheHitRate = state.sessionCache.getHitRate() * 100;
+            cache.cacheEstimatedKiB = state.sessionCache.getEstimatedMemory() / 1024;
+        }
+    }
+}
@@ -0,0 +1,1060 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * In-process Redis stand-in speaking RESP on loopback, so Redis based benchmarks run hermetically.
+ * <p>
+ * It supports the subset of commands used by {@code RedisRegistrationStore} and the benchmarks (strings, lists, sorted
+ * sets, SCAN, WATCH/MULTI/EXEC, pub/sub). Like Redis, commands are executed one at a time. A configurable latency is
+ * added to each round trip (i.e. once per batch of pipelined commands) to simulate network RTT.
+ */
+public class EmbeddedRedisServer implements Closeable {
+
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final byte[] OK = "+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL_BULK = "$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL_ARRAY = "*-1\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final byte[] QUEUED = "+QUEUED\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    // keys are stored as ISO-8859-1 strings which is a lossless mapping of the key bytes
+    private final TreeMap<String, Object> data = new TreeMap<>();
+    private final Map<String, Long> expirations = new HashMap<>();
+    private final Map<String, Long> versions = new HashMap<>();
+    private long version;
+    private final Map<String, Set<Connection>> subscriptions = new HashMap<>();
+    private final Object lock = new Object();
+
+    private final int port;
+    private volatile long latencyNanos;
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+    private final Set<Connection> connections = new CopyOnWriteArraySet<>();
+
+    public EmbeddedRedisServer() {
+        this(0, 0);
+    }
+
+    /**
+     * @param port the port to listen on, 0 for an ephemeral port
+     * @param latencyNanos the latency added to each round trip
+     */
+    public EmbeddedRedisServer(int port, long latencyNanos) {
+        this.port = port;
+        this.latencyNanos = latencyNanos;
+    }
+
+    public synchronized void start() throws IOException {
+        if (serverSocket != null)
+            return;
+        final ServerSocket server = new ServerSocket();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        serverSocket = server;
+        acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!server.isClosed()) {
+                    try {
+                        Socket socket = server.accept();
+                        socket.setTcpNoDelay(true);
+                        Connection connection = new Connection(socket);
+                        connections.add(connection);
+                        Thread t = new Thread(connection, "EmbeddedRedisServer-connection");
+                        t.setDaemon(true);
+                        t.start();
+                    } catch (IOException e) {
+                        // server socket closed
+                    }
+                }
+            }
+        }, "EmbeddedRedisServer-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public synchronized void stop() {
+        if (serverSocket == null)
+            return;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        serverSocket = null;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public URI getURI() {
+        return URI.create("redis://127.0.0.1:" + getPort());
+    }
+
+    public void setLatency(long latency, TimeUnit unit) {
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * @return the number of keys
+     */
+    public int size() {
+        synchronized (lock) {
+            return data.size();
+        }
+    }
+
+    public void flushAll() {
+        synchronized (lock) {
+            for (String key : data.keySet()) {
+                touch(key);
+            }
+            data.clear();
+            expirations.clear();
+        }
+    }
+
+    private class Connection implements Runnable {
+        private final Socket socket;
+        private InputStream in;
+        private OutputStream out;
+        // replies are only written by the connection thread, the socket is shared with publishers
+        private final ByteArrayOutputStream reply = new ByteArrayOutputStream(1024);
+        private final Object writeLock = new Object();
+
+        private Map<String, Long> watched;
+        private List<byte[][]> transaction;
+        private boolean transactionFailed;
+        private final Set<String> channels = new HashSet<>();
+
+        Connection(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            try {
+                in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+                out = socket.getOutputStream();
+                while (true) {
+                    byte[][] command = readCommand(in);
+                    if (command == null)
+                        break;
+                    execute(command);
+                    // end of a batch of pipelined commands : this is one round trip
+                    if (in.available() == 0) {
+                        long latency = latencyNanos;
+                        if (latency > 0)
+                            pause(latency);
+                        flush();
+                    }
+                }
+            } catch (IOException e) {
+                // connection closed
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            connections.remove(this);
+            synchronized (lock) {
+                for (String channel : channels) {
+                    Set<Connection> subscribers = subscriptions.get(channel);
+                    if (subscribers != null)
+                        subscribers.remove(this);
+                }
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        private void flush() throws IOException {
+            synchronized (writeLock) {
+                if (reply.size() > 0) {
+                    reply.writeTo(out);
+                    reply.reset();
+                    out.flush();
+                }
+            }
+        }
+
+        private void push(byte[] message) {
+            // message published to this subscriber by another connection
+            synchronized (writeLock) {
+                try {
+                    out.write(message);
+                    out.flush();
+                } catch (IOException e) {
+                    close();
+                }
+            }
+        }
+
+        private void execute(byte[][] command) throws IOException {
+            String name = new String(command[0], StandardCharsets.US_ASCII).toUpperCase();
+            if (transaction != null && !name.equals("EXEC") && !name.equals("DISCARD")
+                    && !name.equals("MULTI") && !name.equals("WATCH")) {
+                if (COMMANDS.containsKey(name)) {
+                    transaction.add(command);
+                    reply.write(QUEUED);
+                } else {
+                    transactionFailed = true;
+                    writeError(reply, "ERR unknown command '" + name + "'");
+                }
+                return;
+            }
+            switch (name) {
+            case "QUIT":
+                reply.write(OK);
+                flush();
+                throw new EOFException();
+            case "MULTI":
+                if (transaction != null) {
+                    writeError(reply, "ERR MULTI calls can not be nested");
+                } else {
+                    transaction = new ArrayList<>();
+                    transactionFailed = false;
+                    reply.write(OK);
+                }
+                return;
+            case "DISCARD":
+                transaction = null;
+                watched = null;
+                reply.write(OK);
+                return;
+            case "EXEC":
+                exec();
+                return;
+            case "WATCH":
+                synchronized (lock) {
+                    if (watched == null)
+                        watched = new HashMap<>();
+                    for (int i = 1; i < command.length; i++) {
+                        String key = key(command[i]);
+                        watched.put(key, versionOf(key));
+                    }
+                }
+                reply.write(OK);
+                return;
+            case "UNWATCH":
+                watched = null;
+                reply.write(OK);
+                return;
+            case "SUBSCRIBE":
+                subscribe(command);
+                return;
+            case "UNSUBSCRIBE":
+                unsubscribe(command);
+                return;
+            default:
+                synchronized (lock) {
+                    runCommand(command, name, reply);
+                }
+            }
+        }
+
+        private void exec() throws IOException {
+            if (transaction == null) {
+                writeError(reply, "ERR EXEC without MULTI");
+                return;
+            }
+            List<byte[][]> commands = transaction;
+            transaction = null;
+            if (transactionFailed) {
+                watched = null;
+                writeError(reply, "EXECABORT Transaction discarded because of previous errors.");
+                return;
+            }
+            synchronized (lock) {
+                if (watched != null) {
+                    for (Entry<String, Long> w : watched.entrySet()) {
+                        if (versionOf(w.getKey()) != w.getValue()) {
+                            watched = null;
+                            reply.write(NULL_ARRAY);
+                            return;
+                        }
+                    }
+                    watched = null;
+                }
+                writeArrayHeader(reply, commands.size());
+                for (byte[][] command : commands) {
+                    String name = new String(command[0], StandardCharsets.US_ASCII).toUpperCase();
+                    runCommand(command, name, reply);
+                }
+            }
+        }
+
+        private void subscribe(byte[][] command) throws IOException {
+            for (int i = 1; i < command.length; i++) {
+                String channel = key(command[i]);
+                synchronized (lock) {
+                    Set<Connection> subscribers = subscriptions.get(channel);
+                    if (subscribers == null) {
+                        subscribers = new CopyOnWriteArraySet<>();
+                        subscriptions.put(channel, subscribers);
+                    }
+                    subscribers.add(this);
+                    channels.add(channel);
+                }
+                writeArrayHeader(reply, 3);
+                writeBulk(reply, "subscribe".getBytes(StandardCharsets.US_ASCII));
+                writeBulk(reply, command[i]);
+                writeInteger(reply, channels.size());
+            }
+        }
+
+        private void unsubscribe(byte[][] command) throws IOException {
+            List<String> toRemove = new ArrayList<>();
+            if (command.length == 1) {
+                toRemove.addAll(channels);
+            } else {
+                for (int i = 1; i < command.length; i++)
+                    toRemove.add(key(command[i]));
+            }
+            if (toRemove.isEmpty()) {
+                writeArrayHeader(reply, 3);
+                writeBulk(reply, "unsubscribe".getBytes(StandardCharsets.US_ASCII));
+                reply.write(NULL_BULK);
+                writeInteger(reply, 0);
+            }
+            for (String channel : toRemove) {
+                synchronized (lock) {
+                    Set<Connection> subscribers = subscriptions.get(channel);
+                    if (subscribers != null)
+                        subscribers.remove(this);
+                    channels.remove(channel);
+                }
+                writeArrayHeader(reply, 3);
+                writeBulk(reply, "unsubscribe".getBytes(StandardCharsets.US_ASCII));
+                writeBulk(reply, channel.getBytes(StandardCharsets.ISO_8859_1));
+                writeInteger(reply, channels.size());
+            }
+        }
+    }
+
+    private interface Command {
+        void run(EmbeddedRedisServer server, byte[][] args, ByteArrayOutputStream reply) throws IOException;
+    }
+
+    private static final Map<String, Command> COMMANDS = new HashMap<>();
+    static {
+        COMMANDS.put("PING", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                if (args.length > 1) {
+                    writeBulk(reply, args[1]);
+                } else {
+                    writeSimple(reply, "PONG");
+                }
+            }
+        });
+        COMMANDS.put("ECHO", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                writeBulk(reply, args[1]);
+            }
+        });
+        Command ok = new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                reply.write(OK);
+            }
+        };
+        COMMANDS.put("SELECT", ok);
+        COMMANDS.put("AUTH", ok);
+        COMMANDS.put("CLIENT", ok);
+        Command flush = new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                for (String key : s.data.keySet()) {
+                    s.touch(key);
+                }
+                s.data.clear();
+                s.expirations.clear();
+                reply.write(OK);
+            }
+        };
+        COMMANDS.put("FLUSHDB", flush);
+        COMMANDS.put("FLUSHALL", flush);
+        COMMANDS.put("DBSIZE", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                s.purgeExpired();
+                writeInteger(reply, s.data.size());
+            }
+        });
+        COMMANDS.put("GET", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                writeBulk(reply, s.getString(key(args[1])));
+            }
+        });
+        COMMANDS.put("MGET", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                writeArrayHeader(reply, args.length - 1);
+                for (int i = 1; i < args.length; i++) {
+                    Object value = s.get(key(args[i]));
+                    writeBulk(reply, value instanceof byte[] ? (byte[]) value : null);
+                }
+            }
+        });
+        COMMANDS.put("SET", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                String key = key(args[1]);
+                boolean nx = false;
+                boolean xx = false;
+                long expiration = -1;
+                for (int i = 3; i < args.length; i++) {
+                    String option = key(args[i]).toUpperCase();
+                    if (option.equals("NX")) {
+                        nx = true;
+                    } else if (option.equals("XX")) {
+                        xx = true;
+                    } else if (option.equals("PX")) {
+                        expiration = System.currentTimeMillis() + parseLong(args[++i]);
+                    } else if (option.equals("EX")) {
+                        expiration = System.currentTimeMillis() + parseLong(args[++i]) * 1000;
+                    }
+                }
+                boolean exists = s.get(key) != null;
+                if ((nx && exists) || (xx && !exists)) {
+                    reply.write(NULL_BULK);
+                    return;
+                }
+                s.put(key, args[2]);
+                if (expiration >= 0)
+                    s.expirations.put(key, expiration);
+                reply.write(OK);
+            }
+        });
+        COMMANDS.put("MSET", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                for (int i = 1; i + 1 < args.length; i += 2) {
+                    s.put(key(args[i]), args[i + 1]);
+                }
+                reply.write(OK);
+            }
+        });
+        COMMANDS.put("GETSET", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                String key = key(args[1]);
+                byte[] previous = s.getString(key);
+                s.put(key, args[2]);
+                writeBulk(reply, previous);
+            }
+        });
+        COMMANDS.put("DEL", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                int count = 0;
+                for (int i = 1; i < args.length; i++) {
+                    if (s.remove(key(args[i])) != null)
+                        count++;
+                }
+                writeInteger(reply, count);
+            }
+        });
+        COMMANDS.put("EXISTS", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                int count = 0;
+                for (int i = 1; i < args.length; i++) {
+                    if (s.get(key(args[i])) != null)
+                        count++;
+                }
+                writeInteger(reply, count);
+            }
+        });
+        COMMANDS.put("PEXPIRE", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                String key = key(args[1]);
+                if (s.get(key) == null) {
+                    writeInteger(reply, 0);
+                } else {
+                    s.expirations.put(key, System.currentTimeMillis() + parseLong(args[2]));
+                    s.touch(key);
+                    writeInteger(reply, 1);
+                }
+            }
+        });
+        COMMANDS.put("LPUSH", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                LinkedList<byte[]> list = s.getOrCreateList(key(args[1]));
+                for (int i = 2; i < args.length; i++)
+                    list.addFirst(args[i]);
+                s.touch(key(args[1]));
+                writeInteger(reply, list.size());
+            }
+        });
+        COMMANDS.put("RPUSH", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                LinkedList<byte[]> list = s.getOrCreateList(key(args[1]));
+                for (int i = 2; i < args.length; i++)
+                    list.addLast(args[i]);
+                s.touch(key(args[1]));
+                writeInteger(reply, list.size());
+            }
+        });
+        COMMANDS.put("LLEN", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                List<byte[]> list = s.getList(key(args[1]));
+                writeInteger(reply, list == null ? 0 : list.size());
+            }
+        });
+        COMMANDS.put("LRANGE", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                List<byte[]> list = s.getList(key(args[1]));
+                if (list == null) {
+                    writeArrayHeader(reply, 0);
+                    return;
+                }
+                int size = list.size();
+                int start = (int) parseLong(args[2]);
+                int stop = (int) parseLong(args[3]);
+                if (start < 0)
+                    start = Math.max(0, size + start);
+                if (stop < 0)
+                    stop = size + stop;
+                stop = Math.min(stop, size - 1);
+                if (start > stop) {
+                    writeArrayHeader(reply, 0);
+                    return;
+                }
+                writeArrayHeader(reply, stop - start + 1);
+                for (byte[] value : list.subList(start, stop + 1))
+                    writeBulk(reply, value);
+            }
+        });
+        COMMANDS.put("LREM", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                String key = key(args[1]);
+                LinkedList<byte[]> list = s.getList(key);
+                int removed = 0;
+                if (list != null) {
+                    long count = parseLong(args[2]);
+                    long max = count == 0 ? Long.MAX_VALUE : Math.abs(count);
+                    Iterator<byte[]> it = count >= 0 ? list.iterator() : list.descendingIterator();
+                    while (it.hasNext() && removed < max) {
+                        if (Arrays.equals(it.next(), args[3])) {
+                            it.remove();
+                            removed++;
+                        }
+                    }
+                    if (list.isEmpty())
+                        s.remove(key);
+                    else
+                        s.touch(key);
+                }
+                writeInteger(reply, removed);
+            }
+        });
+        COMMANDS.put("ZADD", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                String key = key(args[1]);
+                SortedSet set = s.getOrCreateSortedSet(key);
+                int added = 0;
+                for (int i = 2; i + 1 < args.length; i += 2) {
+                    if (set.add(parseDouble(args[i]), key(args[i + 1])))
+                        added++;
+                }
+                s.touch(key);
+                writeInteger(reply, added);
+            }
+        });
+        COMMANDS.put("ZREM", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                String key = key(args[1]);
+                SortedSet set = s.getSortedSet(key);
+                int removed = 0;
+                if (set != null) {
+                    for (int i = 2; i < args.length; i++) {
+                        if (set.remove(key(args[i])))
+                            removed++;
+                    }
+                    if (set.scores.isEmpty())
+                        s.remove(key);
+                    else
+                        s.touch(key);
+                }
+                writeInteger(reply, removed);
+            }
+        });
+        COMMANDS.put("ZCARD", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                SortedSet set = s.getSortedSet(key(args[1]));
+                writeInteger(reply, set == null ? 0 : set.scores.size());
+            }
+        });
+        COMMANDS.put("ZSCORE", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                SortedSet set = s.getSortedSet(key(args[1]));
+                Double score = set == null ? null : set.scores.get(key(args[2]));
+                writeBulk(reply, score == null ? null : formatDouble(score));
+            }
+        });
+        COMMANDS.put("ZRANGEBYSCORE", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                SortedSet set = s.getSortedSet(key(args[1]));
+                String min = key(args[2]);
+                String max = key(args[3]);
+                boolean withScores = false;
+                long offset = 0;
+                long count = -1;
+                for (int i = 4; i < args.length; i++) {
+                    String option = key(args[i]).toUpperCase();
+                    if (option.equals("WITHSCORES")) {
+                        withScores = true;
+                    } else if (option.equals("LIMIT")) {
+                        offset = parseLong(args[++i]);
+                        count = parseLong(args[++i]);
+                    }
+                }
+                List<ScoredMember> result = new ArrayList<>();
+                if (set != null) {
+                    boolean minExclusive = min.startsWith("(");
+                    boolean maxExclusive = max.startsWith("(");
+                    double from = parseBound(minExclusive ? min.substring(1) : min);
+                    double to = parseBound(maxExclusive ? max.substring(1) : max);
+                    long skipped = 0;
+                    for (ScoredMember m : set.members.tailSet(new ScoredMember(from, ""), true)) {
+                        if (m.score > to || (maxExclusive && m.score == to))
+                            break;
+                        if (minExclusive && m.score == from)
+                            continue;
+                        if (skipped++ < offset)
+                            continue;
+                        if (count >= 0 && result.size() >= count)
+                            break;
+                        result.add(m);
+                    }
+                }
+                writeArrayHeader(reply, withScores ? result.size() * 2 : result.size());
+                for (ScoredMember m : result) {
+                    writeBulk(reply, m.member.getBytes(StandardCharsets.ISO_8859_1));
+                    if (withScores)
+                        writeBulk(reply, formatDouble(m.score));
+                }
+            }
+        });
+        COMMANDS.put("KEYS", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                s.purgeExpired();
+                Pattern pattern = globToRegex(key(args[1]));
+                List<String> keys = new ArrayList<>();
+                for (String key : s.data.keySet()) {
+                    if (pattern.matcher(key).matches())
+                        keys.add(key);
+                }
+                writeArrayHeader(reply, keys.size());
+                for (String key : keys)
+                    writeBulk(reply, key.getBytes(StandardCharsets.ISO_8859_1));
+            }
+        });
+        COMMANDS.put("SCAN", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                // the cursor is the hex encoded last returned key, "0" to start/end
+                String cursor = key(args[1]);
+                Pattern pattern = null;
+                int count = 10;
+                for (int i = 2; i < args.length; i++) {
+                    String option = key(args[i]).toUpperCase();
+                    if (option.equals("MATCH")) {
+                        pattern = globToRegex(key(args[++i]));
+                    } else if (option.equals("COUNT")) {
+                        count = (int) parseLong(args[++i]);
+                    }
+                }
+                s.purgeExpired();
+                NavigableSet<String> keys = cursor.equals("0") ? s.data.navigableKeySet()
+                        : s.data.navigableKeySet().tailSet(fromHex(cursor), false);
+                List<String> result = new ArrayList<>();
+                String last = null;
+                int visited = 0;
+                for (String key : keys) {
+                    if (visited++ >= count)
+                        break;
+                    last = key;
+                    if (pattern == null || pattern.matcher(key).matches())
+                        result.add(key);
+                }
+                boolean complete = last == null || s.data.higherKey(last) == null;
+                writeArrayHeader(reply, 2);
+                writeBulk(reply, (complete ? "0" : toHex(last)).getBytes(StandardCharsets.US_ASCII));
+                writeArrayHeader(reply, result.size());
+                for (String key : result)
+                    writeBulk(reply, key.getBytes(StandardCharsets.ISO_8859_1));
+            }
+        });
+        COMMANDS.put("PUBLISH", new Command() {
+            @Override
+            public void run(EmbeddedRedisServer s, byte[][] args, ByteArrayOutputStream reply) throws IOException {
+                Set<Connection> subscribers = s.subscriptions.get(key(args[1]));
+                int receivers = 0;
+                if (subscribers != null && !subscribers.isEmpty()) {
+                    ByteArrayOutputStream message = new ByteArrayOutputStream();
+                    writeArrayHeader(message, 3);
+                    writeBulk(message, "message".getBytes(StandardCharsets.US_ASCII));
+                    writeBulk(message, args[1]);
+                    writeBulk(message, args[2]);
+                    byte[] bytes = message.toByteArray();
+                    for (Connection subscriber : subscribers) {
+                        subscriber.push(bytes);
+                        receivers++;
+                    }
+                }
+                writeInteger(reply, receivers);
+            }
+        });
+    }
+
+    private void runCommand(byte[][] command, String name, ByteArrayOutputStream reply) throws IOException {
+        Command c = COMMANDS.get(name);
+        if (c == null) {
+            writeError(reply, "ERR unknown command '" + name + "'");
+            return;
+        }
+        try {
+            c.run(this, command, reply);
+        } catch (ClassCastException e) {
+            writeError(reply, "WRONGTYPE Operation against a key holding the wrong kind of value");
+        } catch (NumberFormatException e) {
+            writeError(reply, "ERR value is not a valid float or integer");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            writeError(reply, "ERR wrong number of arguments for '" + name.toLowerCase() + "' command");
+        }
+    }
+
+    // all the methods below must be called with the lock held
+
+    private Object get(String key) {
+        Long expiration = expirations.get(key);
+        if (expiration != null && expiration <= System.currentTimeMillis()) {
+            remove(key);
+            return null;
+        }
+        return data.get(key);
+    }
+
+    private byte[] getString(String key) {
+        return (byte[]) get(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private LinkedList<byte[]> getList(String key) {
+        return (LinkedList<byte[]>) get(key);
+    }
+
+    private LinkedList<byte[]> getOrCreateList(String key) {
+        LinkedList<byte[]> list = getList(key);
+        if (list == null) {
+            list = new LinkedList<>();
+            data.put(key, list);
+        }
+        return list;
+    }
+
+    private SortedSet getSortedSet(String key) {
+        return (SortedSet) get(key);
+    }
+
+    private SortedSet getOrCreateSortedSet(String key) {
+        SortedSet set = getSortedSet(key);
+        if (set == null) {
+            set = new SortedSet();
+            data.put(key, set);
+        }
+        return set;
+    }
+
+    private void put(String key, byte[] value) {
+        data.put(key, value);
+        expirations.remove(key);
+        touch(key);
+    }
+
+    private Object remove(String key) {
+        expirations.remove(key);
+        Object previous = data.remove(key);
+        if (previous != null)
+            touch(key);
+        return previous;
+    }
+
+    private void purgeExpired() {
+        if (expirations.isEmpty())
+            return;
+        long now = System.currentTimeMillis();
+        for (String key : new ArrayList<>(expirations.keySet())) {
+            if (expirations.get(key) <= now)
+                remove(key);
+        }
+    }
+
+    private void touch(String key) {
+        versions.put(key, ++version);
+    }
+
+    private long versionOf(String key) {
+        // an expired key is a modification
+        get(key);
+        Long v = versions.get(key);
+        return v == null ? 0 : v;
+    }
+
+    private static class ScoredMember implements Comparable<ScoredMember> {
+        final double score;
+        final String member;
+
+        ScoredMember(double score, String member) {
+            this.score = score;
+            this.member = member;
+        }
+
+        @Override
+        public int compareTo(ScoredMember o) {
+            int c = Double.compare(score, o.score);
+            return c != 0 ? c : member.compareTo(o.member);
+        }
+    }
+
+    private static class SortedSet {
+        final Map<String, Double> scores = new HashMap<>();
+        final TreeSet<ScoredMember> members = new TreeSet<>();
+
+        boolean add(double score, String member) {
+            Double previous = scores.put(member, score);
+            if (previous != null)
+                members.remove(new ScoredMember(previous, member));
+            members.add(new ScoredMember(score, member));
+            return previous == null;
+        }
+
+        boolean remove(String member) {
+            Double previous = scores.remove(member);
+            if (previous == null)
+                return false;
+            members.remove(new ScoredMember(previous, member));
+            return true;
+        }
+    }
+
+    // RESP protocol
+
+    private static byte[][] readCommand(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1)
+            return null;
+        if (b != '*')
+            throw new IOException("Only RESP arrays are supported");
+        int count = (int) readLine(in);
+        byte[][] args = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$')
+                throw new IOException("Bulk string expected");
+            int length = (int) readLine(in);
+            byte[] arg = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = in.read(arg, read, length - read);
+                if (n < 0)
+                    throw new EOFException();
+                read += n;
+            }
+            in.read(); // \r
+            in.read(); // \n
+            args[i] = arg;
+        }
+        return args;
+    }
+
+    private static long readLine(InputStream in) throws IOException {
+        long value = 0;
+        boolean negative = false;
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1)
+                throw new EOFException();
+            if (b == '-')
+                negative = true;
+            else
+                value = value * 10 + (b - '0');
+        }
+        in.read(); // \n
+        return negative ? -value : value;
+    }
+
+    private static void writeSimple(ByteArrayOutputStream out, String s) throws IOException {
+        out.write('+');
+        out.write(s.getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private static void writeError(ByteArrayOutputStream out, String s) throws IOException {
+        out.write('-');
+        out.write(s.getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private static void writeInteger(ByteArrayOutputStream out, long value) throws IOException {
+        out.write(':');
+        out.write(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private static void writeArrayHeader(ByteArrayOutputStream out, int size) throws IOException {
+        out.write('*');
+        out.write(Integer.toString(size).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private static void writeBulk(ByteArrayOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.write(NULL_BULK);
+            return;
+        }
+        out.write('$');
+        out.write(Integer.toString(value.length).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+        out.write(value);
+        out.write(CRLF);
+    }
+
+    private static String key(byte[] bytes) {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static long parseLong(byte[] bytes) {
+        return Long.parseLong(key(bytes));
+    }
+
+    private static double parseDouble(byte[] bytes) {
+        return parseBound(key(bytes));
+    }
+
+    private static double parseBound(String s) {
+        if (s.equalsIgnoreCase("-inf"))
+            return Double.NEGATIVE_INFINITY;
+        if (s.equalsIgnoreCase("+inf") || s.equalsIgnoreCase("inf"))
+            return Double.POSITIVE_INFINITY;
+        return Double.parseDouble(s);
+    }
+
+    private static byte[] formatDouble(double d) {
+        String s = d == Math.rint(d) && !Double.isInfinite(d) ? Long.toString((long) d) : Double.toString(d);
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static Pattern globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+            case '*':
+                regex.append(".*");
+                break;
+            case '?':
+                regex.append('.');
+                break;
+            case '\\':
+                if (i + 1 < glob.length())
+                    regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                break;
+            default:
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static String toHex(String key) {
+        StringBuilder b = new StringBuilder(key.length() * 2);
+        for (int i = 0; i < key.length(); i++) {
+            b.append(String.format("%02x", (int) key.charAt(i)));
+        }
+        return b.toString();
+    }
+
+    private static String fromHex(String hex) {
+        StringBuilder b = new StringBuilder(hex.length() / 2);
+        for (int i = 0; i + 1 < hex.length(); i += 2) {
+            b.append((char) Integer.parseInt(hex.substring(i, i + 2), 16));
+        }
+        return b.toString();
+    }
+
+    private static void pause(long nanos) {
+        // parking alone overshoots by tens of microseconds or more, spin for the end of the delay
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > SPIN_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+            remaining = deadline - System.nanoTime();
+        }
+        while (System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Expiration detection over a simulated clock for 100k to 1M registrations expiring every lifetime seconds : a
+ * {@link TimerWheelExpirationIndex}, a periodic full scan of id => expiration (what {@link CompactRegistrationStore}
+ * did) and a priority queue ordered by expiration, rescheduled entries being skipped when polled.
+ * <p>
+ * "reschedule" is a registration update, "expire" one second of the clock (the expired registrations register again
+ * to keep the population) and "second" one second of a server receiving population / updatePeriod updates per
+ * second. The setup checks the three indexes expire the same keys at the same time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExpirationIndexBench {
+
+    /**
+     * Expiration index as used by a store.
+     */
+    interface Index {
+
+        void schedule(String key, long expirationMillis);
+
+        /**
+         * @return the keys expired at now, removed from the index
+         */
+        List<String> expire(long nowMillis);
+    }
+
+    static class WheelIndex implements Index {
+        private final TimerWheelExpirationIndex<String> wheel;
+
+        WheelIndex(long nowMillis) {
+            wheel = new TimerWheelExpirationIndex<>(1000, nowMillis);
+        }
+
+        @Override
+        public void schedule(String key, long expirationMillis) {
+            wheel.schedule(key, expirationMillis);
+        }
+
+        @Override
+        public List<String> expire(long nowMillis) {
+            return wheel.advance(nowMillis);
+        }
+    }
+
+    static class ScanIndex implements Index {
+        private final Map<String, Long> expirations = new HashMap<>();
+
+        @Override
+        public void schedule(String key, long expirationMillis) {
+            expirations.put(key, expirationMillis);
+        }
+
+        @Override
+        public List<String> expire(long nowMillis) {
+            List<String> expired = new ArrayList<>();
+            for (Map.Entry<String, Long> e : expirations.entrySet()) {
+                if (e.getValue() <= nowMillis) {
+                    expired.add(e.getKey());
+                }
+            }
+            for (String key : expired) {
+                expirations.remove(key);
+            }
+            return expired;
+        }
+    }
+
+    static class QueueIndex implements Index {
+        private final Map<String, Long> expirations = new HashMap<>();
+        private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+
+        private static class Entry implements Comparable<Entry> {
+            private final String key;
+            private final long expiration;
+
+            Entry(String key, long expiration) {
+                this.key = key;
+                this.expiration = expiration;
+            }
+
+            @Override
+            public int compareTo(Entry o) {
+                return Long.compare(expiration, o.expiration);
+            }
+        }
+
+        @Override
+        public void schedule(String key, long expirationMillis) {
+            expirations.put(key, expirationMillis);
+            queue.offer(new Entry(key, expirationMillis));
+            // rescheduled entries stay in the queue until polled, rebuilt once they are the majority
+            if (queue.size() > 2 * expirations.size() + 1024) {
+                queue.clear();
+                for (Map.Entry<String, Long> e : expirations.entrySet()) {
+                    queue.offer(new Entry(e.getKey(), e.getValue()));
+                }
+            }
+        }
+
+        @Override
+        public List<String> expire(long nowMillis) {
+            List<String> expired = new ArrayList<>();
+            while (!queue.isEmpty() && queue.peek().expiration <= nowMillis) {
+                Entry entry = queue.poll();
+                Long current = expirations.get(entry.key);
+                if (current != null && current == entry.expiration) {
+                    expirations.remove(entry.key);
+                    expired.add(entry.key);
+                }
+            }
+            return expired;
+        }
+    }
+
+    @Param({ "100000", "1000000" })
+    public int population;
+
+    @Param({ "wheel", "scan", "queue" })
+    public String index;
+
+    @Param({ "300" })
+    public int lifetime;
+
+    /**
+     * Seconds between two updates of a registration, a bit shorter than the lifetime in practice.
+     */
+    @Param({ "270" })
+    public int updatePeriod;
+
+    public Index expirations;
+    public String[] keys;
+    public long now;
+    public Random random = new Random(0);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        check();
+        now = 1_600_000_000_000L;
+        expirations = newIndex(index, now);
+        keys = new String[population];
+        for (int i = 0; i < population; i++) {
+            keys[i] = "regid" + i;
+            // registered at any time of the last lifetime
+            expirations.schedule(keys[i], now + (long) (random.nextDouble() * lifetime * 1000));
+        }
+    }
+
+    private static Index newIndex(String index, long now) {
+        if (index.equals("wheel")) {
+            return new WheelIndex(now);
+        } else if (index.equals("scan")) {
+            return new ScanIndex();
+        } else if (index.equals("queue")) {
+            return new QueueIndex();
+        }
+        throw new IllegalArgumentException("Unknown index " + index);
+    }
+
+    /**
+     * Schedules the same random expirations, on whole seconds as the wheel rounds up to its tick, in the three indexes.
+     *
+     * @throws IllegalStateException if the indexes expire different keys
+     */
+    private static void check() {
+        Random random = new Random(1);
+        long start = 1_600_000_000_000L;
+        Index[] indexes = { new ScanIndex(), new WheelIndex(start), new QueueIndex() };
+        int total = 0;
+        for (long t = start; t < start + 3 * 3_600_000L; t += 1000) {
+            // overdue, near, far and beyond the wheel span expirations, rescheduled or not
+            for (int i = 0; i < 20; i++) {
+                String key = "k" + random.nextInt(2000);
+                long seconds;
+                switch (random.nextInt(4)) {
+                case 0:
+                    seconds = -random.nextInt(5);
+                    break;
+                case 1:
+                    seconds = random.nextInt(100);
+                    break;
+                case 2:
+                    seconds = random.nextInt(10_000);
+                    break;
+                default:
+                    seconds = (1L << 37) + random.nextInt(1000);
+                }
+                for (Index index : indexes) {
+                    index.schedule(key, t + seconds * 1000);
+                }
+            }
+            long now = t + 500;
+            List<String> expected = indexes[0].expire(now);
+            Collections.sort(expected);
+            total += expected.size();
+            for (int i = 1; i < indexes.length; i++) {
+                List<String> expired = indexes[i].expire(now);
+                Collections.sort(expired);
+                if (!expected.equals(expired)) {
+                    throw new IllegalStateException(String.format("%s at %d: %s instead of %s",
+                            indexes[i].getClass().getSimpleName(), now, expired, expected));
+                }
+            }
+        }
+        if (total == 0) {
+            throw new IllegalStateException("Nothing expired");
+        }
+    }
+
+    @Benchmark
+    public void reschedule() {
+        expirations.schedule(keys[random.nextInt(keys.length)], now + lifetime * 1000L);
+    }
+
+    @Benchmark
+    public int expire() {
+        now += 1000;
+        List<String> expired = expirations.expire(now);
+        for (String key : expired) {
+            expirations.schedule(key, now + lifetime * 1000L);
+        }
+        return expired.size();
+    }
+
+    @Benchmark
+    public int second() {
+        now += 1000;
+        for (int i = 0; i < population / updatePeriod; i++) {
+            expirations.schedule(keys[random.nextInt(keys.length)], now + lifetime * 1000L);
+        }
+        List<String> expired = expirations.expire(now);
+        for (String key : expired) {
+            expirations.schedule(key, now + lifetime * 1000L);
+        }
+        return expired.size();
+    }
+}
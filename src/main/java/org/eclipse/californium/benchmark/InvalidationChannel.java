@@ -0,0 +1,23 @@
+package org.eclipse.californium.benchmark;
+
+/**
+ * Broadcast registration invalidations between server nodes sharing the same registration store.
+ */
+public interface InvalidationChannel {
+
+    interface Listener {
+        /**
+         * Called when another node modified or removed this registration.
+         */
+        void invalidated(String registrationId);
+
+        /**
+         * Called when some invalidations may have been missed (e.g. after a reconnection).
+         */
+        void invalidatedAll();
+    }
+
+    void publish(String registrationId);
+
+    void setListener(Listener listener);
+}
@@ -0,0 +1,20 @@
+package org.eclipse.californium.benchmark;
+
+import org.eclipse.leshan.server.redis.serialization.RegistrationSerDes;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * The JSON format used by {@code RedisRegistrationStore}, deserialized as {@link LazyRegistration}s.
+ */
+public class LazyJsonRegistrationCodec implements RegistrationCodec {
+
+    @Override
+    public byte[] serialize(Registration registration) {
+        return RegistrationSerDes.bSerialize(registration);
+    }
+
+    @Override
+    public Registration deserialize(byte[] data) {
+        return LazyRegistration.deserialize(data);
+    }
+}
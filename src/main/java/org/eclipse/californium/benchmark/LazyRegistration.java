@@ -0,0 +1,347 @@
+package org.eclipse.californium.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.redis.serialization.IdentitySerDes;
+import org.eclipse.leshan.server.registration.Registration;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+
+/**
+ * {@link Registration} backed by its JSON serialization ({@code RedisRegistrationStore} format), decoding the object
+ * links and the additional attributes on first access.
+ * <p>
+ * Deserialization is a shallow scan of the top level object : the small fields (id, endpoint, identity, lifetime,
+ * dates, binding, version, sms number, root path) are decoded, the "objLink" and "addAttr" values are only located.
+ * Endpoint, lifetime, identity and expiration checks never touch the links. The first call needing them
+ * ({@link #getObjectLinks()}, supported objects, {@link #equals(Object)}...) decodes them with minimal-json, as
+ * {@link LinkFormatParsing#deserialize(JsonObject)} does, into a plain Registration all these calls are delegated to.
+ * <p>
+ * Thread safe, concurrent first accesses may decode the links more than once. A lazy registration equals the eager one
+ * with the same content, but Leshan's {@link Registration#equals(Object)} compares classes so the reverse is false.
+ */
+public class LazyRegistration extends Registration {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] data;
+    private final int linksStart;
+    private final int linksEnd;
+    private final int attributesStart;
+    private final int attributesEnd;
+    // null if not serialized, then computed from the links as Leshan does
+    private final String rootPath;
+
+    // decoded again from the data after a java deserialization
+    private transient volatile Registration full;
+
+    private LazyRegistration(byte[] data, Header header) {
+        super(header.id, header.endpoint, header.identity, header.lwM2mVersion, header.lifetime, header.smsNumber,
+                header.bindingMode, null, header.registrationDate, header.lastUpdate,
+                Collections.<String, String> emptyMap(), null);
+        this.data = data;
+        this.linksStart = header.linksStart;
+        this.linksEnd = header.linksEnd;
+        this.attributesStart = header.attributesStart;
+        this.attributesEnd = header.attributesEnd;
+        this.rootPath = header.rootPath;
+    }
+
+    /**
+     * @param data a registration serialized by {@code RegistrationSerDes}, kept as is (not copied)
+     * @throws IllegalArgumentException if the data is not a serialized registration
+     */
+    public static LazyRegistration deserialize(byte[] data) {
+        try {
+            return new LazyRegistration(data, new Scanner(data).scan());
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Unexpected end of registration", e);
+        }
+    }
+
+    /**
+     * @return true if the links have been decoded
+     */
+    public boolean isDecoded() {
+        return full != null;
+    }
+
+    /**
+     * @return the registration with its links, decoded on first call
+     */
+    public Registration decode() {
+        Registration registration = full;
+        if (registration == null) {
+            Registration.Builder b = new Registration.Builder(getId(), getEndpoint(), getIdentity());
+            b.bindingMode(getBindingMode());
+            b.lastUpdate(getLastUpdate());
+            b.lifeTimeInSec(getLifeTimeInSec());
+            b.lwM2mVersion(getLwM2mVersion());
+            b.registrationDate(getRegistrationDate());
+            if (getSmsNumber() != null) {
+                b.smsNumber(getSmsNumber());
+            }
+            if (linksStart >= 0) {
+                b.objectLinks(LinkFormatParsing.deserializeLinks(
+                        Json.parse(new String(data, linksStart, linksEnd - linksStart, StandardCharsets.UTF_8))
+                                .asArray(), null));
+            }
+            Map<String, String> addAttr = new HashMap<>();
+            if (attributesStart >= 0) {
+                JsonObject o = Json.parse(
+                        new String(data, attributesStart, attributesEnd - attributesStart, StandardCharsets.UTF_8))
+                        .asObject();
+                for (String k : o.names()) {
+                    addAttr.put(k, o.getString(k, ""));
+                }
+            }
+            b.additionalRegistrationAttributes(addAttr);
+            registration = b.build();
+            full = registration;
+        }
+        return registration;
+    }
+
+    @Override
+    public String getRootPath() {
+        return rootPath != null ? rootPath : decode().getRootPath();
+    }
+
+    @Override
+    public Link[] getObjectLinks() {
+        return decode().getObjectLinks();
+    }
+
+    @Override
+    public Link[] getSortedObjectLinks() {
+        return decode().getSortedObjectLinks();
+    }
+
+    @Override
+    public Map<String, String> getAdditionalRegistrationAttributes() {
+        return decode().getAdditionalRegistrationAttributes();
+    }
+
+    @Override
+    public Map<Integer, String> getSupportedObject() {
+        return decode().getSupportedObject();
+    }
+
+    @Override
+    public String getSupportedVersion(Integer objectid) {
+        return decode().getSupportedVersion(objectid);
+    }
+
+    @Override
+    public String toString() {
+        return decode().toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return decode().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj instanceof LazyRegistration)
+            return decode().equals(((LazyRegistration) obj).decode());
+        return decode().equals(obj);
+    }
+
+    /**
+     * Top level fields, values of the other fields are skipped.
+     */
+    private static class Header {
+        String id;
+        String endpoint;
+        Identity identity;
+        String lwM2mVersion = "1.0";
+        long lifetime;
+        String smsNumber;
+        BindingMode bindingMode;
+        Date registrationDate = new Date(0);
+        Date lastUpdate = new Date(0);
+        String rootPath;
+        int linksStart = -1;
+        int linksEnd;
+        int attributesStart = -1;
+        int attributesEnd;
+    }
+
+    /**
+     * Shallow JSON scanner, strings without escapes are decoded directly, others with minimal-json.
+     */
+    private static class Scanner {
+        private final byte[] buf;
+        private int pos;
+
+        Scanner(byte[] buf) {
+            this.buf = buf;
+        }
+
+        Header scan() {
+            Header header = new Header();
+            expect('{');
+            if (!consume('}')) {
+                do {
+                    String key = parseString();
+                    expect(':');
+                    switch (key) {
+                    case "regId":
+                        header.id = parseString();
+                        break;
+                    case "ep":
+                        header.endpoint = parseString();
+                        break;
+                    case "identity":
+                        int start = skipValue();
+                        header.identity = IdentitySerDes.deserialize(Json
+                                .parse(new String(buf, start, pos - start, StandardCharsets.UTF_8)).asObject());
+                        break;
+                    case "lt":
+                        header.lifetime = parseLong();
+                        break;
+                    case "lastUp":
+                        header.lastUpdate = new Date(parseLong());
+                        break;
+                    case "regDate":
+                        header.registrationDate = new Date(parseLong());
+                        break;
+                    case "bnd":
+                        header.bindingMode = BindingMode.valueOf(parseString());
+                        break;
+                    case "ver":
+                        header.lwM2mVersion = parseString();
+                        break;
+                    case "sms":
+                        header.smsNumber = parseString();
+                        break;
+                    case "root":
+                        header.rootPath = parseString();
+                        break;
+                    case "objLink":
+                        header.linksStart = skipValue();
+                        header.linksEnd = pos;
+                        break;
+                    case "addAttr":
+                        header.attributesStart = skipValue();
+                        header.attributesEnd = pos;
+                        break;
+                    default:
+                        skipValue();
+                    }
+                } while (consume(','));
+                expect('}');
+            }
+            if (header.identity == null)
+                throw error("Missing identity");
+            return header;
+        }
+
+        private String parseString() {
+            expect('"');
+            int start = pos;
+            boolean plain = true;
+            for (byte b = buf[pos]; b != '"'; b = buf[++pos]) {
+                if (b == '\\') {
+                    plain = false;
+                    pos++;
+                }
+            }
+            pos++;
+            if (plain)
+                return new String(buf, start, pos - start - 1, StandardCharsets.UTF_8);
+            return Json.parse(new String(buf, start - 1, pos - start + 1, StandardCharsets.UTF_8)).asString();
+        }
+
+        private long parseLong() {
+            skipWhitespace();
+            boolean negative = buf[pos] == '-';
+            if (negative)
+                pos++;
+            int start = pos;
+            long value = 0;
+            while (pos < buf.length && buf[pos] >= '0' && buf[pos] <= '9') {
+                value = value * 10 + (buf[pos++] - '0');
+            }
+            if (pos == start || pos - start > 18)
+                throw error("Invalid number");
+            return negative ? -value : value;
+        }
+
+        /**
+         * @return the start of the skipped value
+         */
+        private int skipValue() {
+            skipWhitespace();
+            int start = pos;
+            byte b = buf[pos];
+            if (b == '"') {
+                parseString();
+            } else if (b == '{' || b == '[') {
+                int depth = 0;
+                boolean inString = false;
+                do {
+                    byte c = buf[pos++];
+                    if (inString) {
+                        if (c == '\\')
+                            pos++;
+                        else if (c == '"')
+                            inString = false;
+                    } else if (c == '"') {
+                        inString = true;
+                    } else if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    }
+                } while (depth > 0);
+            } else {
+                // number or literal
+                while (pos < buf.length && buf[pos] != ',' && buf[pos] != '}' && buf[pos] != ']') {
+                    pos++;
+                }
+            }
+            return start;
+        }
+
+        private void skipWhitespace() {
+            while (pos < buf.length) {
+                byte b = buf[pos];
+                if (b != ' ' && b != '\n' && b != '\r' && b != '\t')
+                    return;
+                pos++;
+            }
+        }
+
+        private boolean consume(char c) {
+            skipWhitespace();
+            if (pos < buf.length && buf[pos] == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c))
+                throw error("'" + c + "' expected");
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + pos);
+        }
+    }
+}
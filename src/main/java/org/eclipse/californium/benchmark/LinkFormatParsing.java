@@ -1,24 +1,20 @@
 package org.eclipse.californium.benchmark;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Scanner;
-import java.util.StringTokenizer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.eclipse.leshan.core.Link;
 import org.eclipse.leshan.core.attributes.Attribute;
 import org.eclipse.leshan.core.model.ObjectModel;
-import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.request.BindingMode;
 import org.eclipse.leshan.core.request.Identity;
-import org.eclipse.leshan.core.util.Validate;
 import org.eclipse.leshan.server.redis.RedisRegistrationStore;
 import org.eclipse.leshan.server.redis.serialization.IdentitySerDes;
 import org.eclipse.leshan.server.redis.serialization.RegistrationSerDes;
@@ -27,15 +23,18 @@ import org.eclipse.leshan.server.registration.Registration.Builder;
 import org.eclipse.leshan.server.registration.RegistrationStore;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 
 import com.eclipsesource.json.Json;
 import com.eclipsesource.json.JsonArray;
 import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
 
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 
 public class LinkFormatParsing {
@@ -43,6 +42,13 @@ public class LinkFormatParsing {
     @State(Scope.Benchmark)
     public static class MyState {
 
+        /**
+         * Simulated Redis round trip time, e.g. "-p redisRttMillis=0,0.2,1".
+         */
+        @Param({ "0" })
+        public double redisRttMillis;
+
+        public BenchmarkRedis redis;
         public JedisPool j;
         public RegistrationStore store;
         public Registration reg;
@@ -50,20 +56,21 @@ public class LinkFormatParsing {
         public Pattern p;
         public String regser;
         public JsonObject regjson;
+        public byte[] payload;
+        public byte[] payload_long;
+        public ObjectLinkCounter counter = new ObjectLinkCounter();
+        public SupportedObjectIndex index_long;
+        public SupportedObjectIndexCache indexCache = new SupportedObjectIndexCache();
+        public byte[] regbytes;
+        public RegistrationCodec eagerCodec = new JsonRegistrationCodec();
+        public RegistrationCodec lazyCodec = new LazyJsonRegistrationCodec();
 
         public MyState() {
-            try {
-                j = new JedisPool(new URI("redis://localhost:6379"));
-            } catch (URISyntaxException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
-            store = new RedisRegistrationStore(j);
             Builder builder = new Registration.Builder("regid", "endpoint",Identity.unsecure(new InetSocketAddress("localhost", 4000)));
-            Link[] links = Link.parse("</1/0>,</1/1>,</3/0>,</44>;ver=“2.2”,</44/0>".getBytes());
+            payload = "</1/0>,</1/1>,</3/0>,</44>;ver=“2.2”,</44/0>".getBytes();
+            Link[] links = Link.parse(payload);
             builder.objectLinks(links);
             reg = builder.build();
-            store.addRegistration(reg);
             p = Pattern.compile("^\\Q" + "/" + "\\E(\\d+)(?:/\\d+)*$");
             
             builder = new Registration.Builder("regid_long", "endpoint2",Identity.unsecure(new InetSocketAddress("localhost", 4000)));
@@ -74,17 +81,73 @@ public class LinkFormatParsing {
                 links[i] = new Link("/"+i+"/0", attr);
             }
             builder.objectLinks(links);
+            payload_long = Link.serialize(links).getBytes();
             reg_long = builder.build();
-            store.addRegistration(reg_long);
             
+            index_long = SupportedObjectIndex.build(reg_long.getRootPath(), reg_long.getObjectLinks());
+
             regser = RegistrationSerDes.sSerialize(reg_long);
             regjson = (JsonObject) Json.parse(regser);
+            regbytes = RegistrationSerDes.bSerialize(reg_long);
+        }
+
+        @Setup(Level.Trial)
+        public void checkLazy() {
+            checkLazy(reg_long);
+            checkLazy(new Registration.Builder("regid", "end\"point",
+                    Identity.psk(new InetSocketAddress("127.0.0.1", 5684), "pskid"))
+                            .objectLinks(Link.parse("</root>;rt=\"oma.lwm2m\",</root/1/0>,</root/3/0>".getBytes()))
+                            .smsNumber("0123456789").lifeTimeInSec(3600L)
+                            .additionalRegistrationAttributes(Collections.singletonMap("a", "b")).build());
+        }
+
+        /**
+         * @throws IllegalStateException if the lazy registration differs from the eager one
+         */
+        private static void checkLazy(Registration registration) {
+            LazyRegistration lazy = LazyRegistration.deserialize(RegistrationSerDes.bSerialize(registration));
+            if (metadata(lazy) != metadata(registration) || !lazy.getEndpoint().equals(registration.getEndpoint())
+                    || !lazy.getRootPath().equals(registration.getRootPath()) || lazy.isDecoded()) {
+                throw new IllegalStateException(String.format("Lazy metadata differ:%n%s%n%s", registration, lazy));
+            }
+            Registration eager = RegistrationSerDes.deserialize(RegistrationSerDes.bSerialize(registration));
+            if (!lazy.equals(eager) || !lazy.toString().equals(eager.toString())
+                    || !lazy.getSupportedObject().equals(eager.getSupportedObject())) {
+                throw new IllegalStateException(String.format("Lazy registration differ:%n%s%n%s", eager, lazy));
+            }
+        }
+
+        @Setup(Level.Trial)
+        public void startRedis() throws IOException {
+            redis = new BenchmarkRedis(redisRttMillis);
+            j = redis.getPool();
+            store = new RedisRegistrationStore(j);
+            store.addRegistration(reg);
+            store.addRegistration(reg_long);
+        }
+
+        @TearDown(Level.Trial)
+        public void stopRedis() {
+            redis.close();
         }
 
         @Setup(Level.Invocation)
         public void prepare() {
         }
     }
+
+    /**
+     * Consume object links without allocation, the checksum avoids dead code elimination.
+     */
+    public static class ObjectLinkCounter implements ObjectLinkParser.Handler {
+        public int checksum;
+
+        @Override
+        public void objectLink(byte[] content, int objectId, int instanceId, int version, int versionStart,
+                int versionEnd) {
+            checksum += objectId + instanceId + version;
+        }
+    }
     
     @Benchmark
     public void short_registration(MyState state) {
@@ -101,7 +164,7 @@ public class LinkFormatParsing {
     @Benchmark
     public void short_registration_and_parse_supported_object_enhanced(MyState state) {
         Registration registration = state.store.getRegistration("regid");
-        getSupportedObject_enhanced4(registration.getRootPath(),registration.getObjectLinks());
+        getSupportedObject_enhanced(registration.getRootPath(),registration.getObjectLinks());
     }
     
     @Benchmark
@@ -109,6 +172,76 @@ public class LinkFormatParsing {
         state.store.getRegistration("regid_long");
     }
     
+    /*
+     * Split of long_registration_1_total by access : endpoint, lifetime, identity and expiration only (e.g. security
+     * checks, expiry) or object links. "lazy" benchmarks deserialize LazyRegistrations, fetching the same keys as
+     * RedisRegistrationStore.
+     */
+    @Benchmark
+    public long long_registration_1_total_metadata(MyState state) {
+        return metadata(state.store.getRegistration("regid_long"));
+    }
+
+    @Benchmark
+    public int long_registration_1_total_links(MyState state) {
+        return state.store.getRegistration("regid_long").getObjectLinks().length;
+    }
+
+    @Benchmark
+    public long long_registration_1_lazy_metadata(MyState state) {
+        return metadata(getRegistration(state.j, "regid_long", state.lazyCodec));
+    }
+
+    @Benchmark
+    public int long_registration_1_lazy_links(MyState state) {
+        return getRegistration(state.j, "regid_long", state.lazyCodec).getObjectLinks().length;
+    }
+
+    @Benchmark
+    public long long_registration_2_json_metadata(MyState state) {
+        return metadata(state.eagerCodec.deserialize(state.regbytes));
+    }
+
+    @Benchmark
+    public long long_registration_2_json_lazy_metadata(MyState state) {
+        return metadata(state.lazyCodec.deserialize(state.regbytes));
+    }
+
+    @Benchmark
+    public int long_registration_2_json_lazy_links(MyState state) {
+        return state.lazyCodec.deserialize(state.regbytes).getObjectLinks().length;
+    }
+
+    /**
+     * Fields read by security and expiration checks.
+     */
+    public static long metadata(Registration registration) {
+        if (registration.getIdentity().isSecure() || !registration.isAlive())
+            return -1;
+        return registration.getEndpoint().length() + registration.getLifeTimeInSec()
+                + registration.getExpirationTimeStamp();
+    }
+
+    /**
+     * Same requests as {@code RedisRegistrationStore.getRegistration(String)}.
+     */
+    public static Registration getRegistration(JedisPool pool, String registrationId, RegistrationCodec codec) {
+        try (Jedis j = pool.getResource()) {
+            byte[] endpoint = j.get(("EP:REGID:" + registrationId).getBytes(StandardCharsets.UTF_8));
+            if (endpoint == null)
+                return null;
+            byte[] data = j.get(concat("REG:EP:".getBytes(StandardCharsets.UTF_8), endpoint));
+            return data == null ? null : codec.deserialize(data);
+        }
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] c = new byte[a.length + b.length];
+        System.arraycopy(a, 0, c, 0, a.length);
+        System.arraycopy(b, 0, c, a.length, b.length);
+        return c;
+    }
+
     @Benchmark
     public void long_registration_2_json_total(MyState state) {
         deserialize(state.regser);
@@ -135,33 +268,81 @@ public class LinkFormatParsing {
     }
     
     @Benchmark
-    public void long_registration_5_get_enhanced2(MyState state) {
-        getSupportedObject_enhanced2(state.reg_long.getRootPath(), state.reg_long.getObjectLinks());
+    public void long_registration_1_total_with_supportedobj(MyState state) {
+        Registration registration = state.store.getRegistration("regid_long");
+        Pattern p = Pattern.compile("^\\Q" + registration.getRootPath() + "\\E(\\d+)(?:/\\d+)*$");
+        getSupportedObject(registration.getRootPath(),registration.getObjectLinks(), p);
     }
     
     @Benchmark
-    public void long_registration_5_get_enhanced3(MyState state) {
-        getSupportedObject_enhanced3(state.reg_long.getRootPath(), state.reg_long.getObjectLinks());
+    public void long_registration_1_total_with_supportedobj_enhanced(MyState state) {
+        Registration registration = state.store.getRegistration("regid_long");
+        getSupportedObject_enhanced(registration.getRootPath(), registration.getObjectLinks());
     }
     
     @Benchmark
-    public void long_registration_5_get_enhanced4(MyState state) {
-        getSupportedObject_enhanced4(state.reg_long.getRootPath(), state.reg_long.getObjectLinks());
+    public Map<Integer, String> short_payload_parse_enhanced(MyState state) {
+        return getSupportedObject_enhanced("/", Link.parse(state.payload));
     }
 
     @Benchmark
-    public void long_registration_1_total_with_supportedobj(MyState state) {
-        Registration registration = state.store.getRegistration("regid_long");
-        Pattern p = Pattern.compile("^\\Q" + registration.getRootPath() + "\\E(\\d+)(?:/\\d+)*$");
-        getSupportedObject(registration.getRootPath(),registration.getObjectLinks(), p);
+    public int short_payload_parse_bytes(MyState state) {
+        ObjectLinkParser.parse(state.payload, "/", state.counter);
+        return state.counter.checksum;
     }
-    
+
     @Benchmark
-    public void long_registration_1_total_with_supportedobj_enhanced(MyState state) {
+    public Map<Integer, String> long_payload_parse_enhanced(MyState state) {
+        return getSupportedObject_enhanced("/", Link.parse(state.payload_long));
+    }
+
+    @Benchmark
+    public int long_payload_parse_bytes(MyState state) {
+        ObjectLinkParser.parse(state.payload_long, "/", state.counter);
+        return state.counter.checksum;
+    }
+
+    /*
+     * Supported object index benchmarks, run them with "-prof gc" to get gc.alloc.rate.
+     */
+    @Benchmark
+    public boolean short_registration_and_cached_index(MyState state) {
+        Registration registration = state.store.getRegistration("regid");
+        return state.indexCache.get(registration).supports(44, "2.2");
+    }
+
+    @Benchmark
+    public boolean long_registration_1_total_with_cached_index(MyState state) {
         Registration registration = state.store.getRegistration("regid_long");
-        getSupportedObject_enhanced3(registration.getRootPath(), registration.getObjectLinks());
+        return state.indexCache.get(registration).supports(44, "2.1");
     }
-    
+
+    @Benchmark
+    public SupportedObjectIndex long_registration_6_index_build(MyState state) {
+        return SupportedObjectIndex.build(state.reg_long.getRootPath(), state.reg_long.getObjectLinks());
+    }
+
+    @Benchmark
+    public SupportedObjectIndex long_registration_6_index_parse(MyState state) {
+        return SupportedObjectIndex.parse(state.payload_long, "/");
+    }
+
+    @Benchmark
+    public boolean long_registration_6_lookup_enhanced(MyState state) {
+        return "2.1".equals(getSupportedObject_enhanced(state.reg_long.getRootPath(), state.reg_long.getObjectLinks())
+                .get(44));
+    }
+
+    @Benchmark
+    public boolean long_registration_6_lookup_index(MyState state) {
+        return state.index_long.supports(44, "2.1");
+    }
+
+    @Benchmark
+    public boolean long_registration_6_lookup_cached_index(MyState state) {
+        return state.indexCache.get(state.reg_long).supports(44, "2.1");
+    }
+
     public static Map<Integer, String> getSupportedObject(String rootPath, Link[] objectLinks, Pattern p  ){
         return getSupportedObject(rootPath, objectLinks, p, true);
     }
@@ -208,249 +389,48 @@ public class LinkFormatParsing {
     
     
     /**
-     * Build a Map (object Id => object Version) from root path and registration object links.
-     * better version
+     * Build a Map (object Id => object Version) from root path and registration object links, paths being parsed with
+     * {@link LwM2mPathParser}.
      */
-    public static Map<Integer, String> getSupportedObject_enhanced(String rootPath, Link[] objectLinks ) {
+    public static Map<Integer, String> getSupportedObject_enhanced(String rootPath, Link[] objectLinks) {
         Map<Integer, String> objects = new HashMap<>();
         for (Link link : objectLinks) {
             if (link != null) {
-                Integer objectId = getLwM2mPath(link.getUrl(), rootPath);
-                if(objectId != null) {
-                    
-                    try {
-                        // extract object id and version
-                        Object version = link.getAttributes().get(Attribute.OBJECT_VERSION);
-                        String currentVersion = objects.get(objectId);
+                long path = LwM2mPathParser.parse(link.getUrl(), rootPath);
+                if (path != LwM2mPathParser.INVALID && path != LwM2mPathParser.ROOT) {
+                    // extract object id and version
+                    int objectId = LwM2mPathParser.objectId(path);
+                    Object version = link.getAttributes().get(Attribute.OBJECT_VERSION);
+                    String currentVersion = objects.get(objectId);
 
-                        // store it in map
-                            if (currentVersion == null) {
-                                // we never find version for this object add it
-                                if (version instanceof String) {
-                                    objects.put(objectId, (String) version);
-                                } else {
-                                    objects.put(objectId, ObjectModel.DEFAULT_VERSION);
-                                }
-                            } else {
-                                // if version is already set, we override it only if new version is not DEFAULT_VERSION
-                                if (version instanceof String && !version.equals(ObjectModel.DEFAULT_VERSION)) {
-                                    objects.put(objectId, (String) version);
-                                }
-                            }
-                    } catch (NumberFormatException e) {
-                        // This should not happened except maybe if the number in url is too long...
-                        // In this case we just ignore it because this is not an object id.
-                    }
-                }
-            }
-        }
-        return objects;
-    }
-    
-    public static Map<Integer, String> getSupportedObject_enhanced2(String rootPath, Link[] objectLinks ) {
-        Map<Integer, String> objects = new HashMap<>();
-        for (Link link : objectLinks) {
-            if (link != null) {
-                Integer objectId = getLwM2mPath2(link.getUrl(), rootPath);
-                if(objectId != null) {
-                    
-                    try {
-                        // extract object id and version
-                        Object version = link.getAttributes().get(Attribute.OBJECT_VERSION);
-                        String currentVersion = objects.get(objectId);
-
-                        // store it in map
-                            if (currentVersion == null) {
-                                // we never find version for this object add it
-                                if (version instanceof String) {
-                                    objects.put(objectId, (String) version);
-                                } else {
-                                    objects.put(objectId, ObjectModel.DEFAULT_VERSION);
-                                }
-                            } else {
-                                // if version is already set, we override it only if new version is not DEFAULT_VERSION
-                                if (version instanceof String && !version.equals(ObjectModel.DEFAULT_VERSION)) {
-                                    objects.put(objectId, (String) version);
-                                }
-                            }
-                    } catch (NumberFormatException e) {
-                        // This should not happened except maybe if the number in url is too long...
-                        // In this case we just ignore it because this is not an object id.
+                    // store it in map
+                    if (currentVersion == null) {
+                        // we never find version for this object add it
+                        if (version instanceof String) {
+                            objects.put(objectId, (String) version);
+                        } else {
+                            objects.put(objectId, ObjectModel.DEFAULT_VERSION);
+                        }
+                    } else {
+                        // if version is already set, we override it only if new version is not DEFAULT_VERSION
+                        if (version instanceof String && !version.equals(ObjectModel.DEFAULT_VERSION)) {
+                            objects.put(objectId, (String) version);
+                        }
                     }
                 }
             }
         }
         return objects;
     }
-    
-    public static Map<Integer, String> getSupportedObject_enhanced3(String rootPath, Link[] objectLinks ) {
-        Map<Integer, String> objects = new HashMap<>();
-        for (Link link : objectLinks) {
-            if (link != null) {
-                Integer objectId = getLwM2mPath3(link.getUrl(), rootPath);
-                if(objectId != null) {
-                    
-                    try {
-                        // extract object id and version
-                        Object version = link.getAttributes().get(Attribute.OBJECT_VERSION);
-                        String currentVersion = objects.get(objectId);
 
-                        // store it in map
-                            if (currentVersion == null) {
-                                // we never find version for this object add it
-                                if (version instanceof String) {
-                                    objects.put(objectId, (String) version);
-                                } else {
-                                    objects.put(objectId, ObjectModel.DEFAULT_VERSION);
-                                }
-                            } else {
-                                // if version is already set, we override it only if new version is not DEFAULT_VERSION
-                                if (version instanceof String && !version.equals(ObjectModel.DEFAULT_VERSION)) {
-                                    objects.put(objectId, (String) version);
-                                }
-                            }
-                    } catch (NumberFormatException e) {
-                        // This should not happened except maybe if the number in url is too long...
-                        // In this case we just ignore it because this is not an object id.
-                    }
-                }
-            }
-        }
-        return objects;
-    }
-    
-    public static Map<Integer, String> getSupportedObject_enhanced4(String rootPath, Link[] objectLinks ) {
-        Map<Integer, String> objects = new HashMap<>();
-        for (Link link : objectLinks) {
-            if (link != null) {
-                Integer objectId = getLwM2mPath4(link.getUrl(), rootPath);
-                if(objectId != null) {
-                    
-                    try {
-                        // extract object id and version
-                        Object version = link.getAttributes().get(Attribute.OBJECT_VERSION);
-                        String currentVersion = objects.get(objectId);
-
-                        // store it in map
-                            if (currentVersion == null) {
-                                // we never find version for this object add it
-                                if (version instanceof String) {
-                                    objects.put(objectId, (String) version);
-                                } else {
-                                    objects.put(objectId, ObjectModel.DEFAULT_VERSION);
-                                }
-                            } else {
-                                // if version is already set, we override it only if new version is not DEFAULT_VERSION
-                                if (version instanceof String && !version.equals(ObjectModel.DEFAULT_VERSION)) {
-                                    objects.put(objectId, (String) version);
-                                }
-                            }
-                    } catch (NumberFormatException e) {
-                        // This should not happened except maybe if the number in url is too long...
-                        // In this case we just ignore it because this is not an object id.
-                    }
-                }
-            }
-        }
-        return objects;
-    }
-    
-    public static void main(String[] args) {
-        System.out.println(getLwM2mPath4("/0/1/22", "/"));
-    }
-    
-    public static Integer getLwM2mPath(String URI, String rootpath) {
-        if (!URI.startsWith(rootpath))
-            return null;
-        String path = URI.substring(rootpath.length());
-
-        Validate.notNull(path);
-        if (path.startsWith("/")) {
-            path = path.substring(1);
-        }
-        if (path.endsWith("/")) {
-            path = path.substring(0, path.length() - 1);
-        }
-        Scanner scanner = new Scanner(path);
-        scanner.useDelimiter("/");
-        int objectid = -1;
-        int  i = 0;
-        while (scanner.hasNext()) {
-                int nextInt = scanner.nextInt();
-                i++;
-                if (objectid == -1)
-                    objectid = nextInt;
-                if (i>3)
-                    return null;
-            
-        }
-        scanner.close();
-        return objectid;
+    public static Registration deserialize(JsonObject jObj) {
+        return deserialize(jObj, null);
     }
-    
-    public static Integer getLwM2mPath2(String URI, String rootpath) {
-        if (!URI.startsWith(rootpath))
-            return null;
-        String path = URI.substring(rootpath.length());
 
-       LwM2mPath lwM2mPath = new LwM2mPath(path);
-       if (lwM2mPath != null)
-           return lwM2mPath.getObjectId();
-                  return null;
-    }
-    
-    public static Integer getLwM2mPath3(String URI, String rootpath) {
-        if (!URI.startsWith(rootpath))
-            return null;
-        String path = URI.substring(rootpath.length());
-
-       StringTokenizer stringTokenizer = new StringTokenizer(path, "/");
-       int objectid = -1;
-       int i = 0;
-       while(stringTokenizer.hasMoreTokens()) {
-           
-           int nextInt = Integer.parseInt(stringTokenizer.nextToken());
-          // System.out.println(nextInt);
-           if (objectid == -1)
-               objectid = nextInt;
-           if (i>3)
-               return null;
-       }
-       return objectid;
-    }
-    
-    public static Integer getLwM2mPath4(String URI, String rootpath) {
-        if (!URI.startsWith(rootpath))
-            return null;
-       
-       int[] id = new int[3];
-       int j = 0;
-       boolean delimiter = true;
-       int currentIndex = rootpath.length();
-       for (int i = rootpath.length(); i < URI.length(); i++) {
-       {
-         char currentChar = URI.charAt(i);
-         if (currentChar == '/') {
-             if (delimiter == true) {
-                 return null;
-             }
-             else {
-                 id[j] = Integer.parseInt(URI.substring(currentIndex, i));
-                 currentIndex=i+1;
-                 j++;
-             }
-         } else if (i == URI.length() -1){
-             id[j] = Integer.parseInt(URI.substring(currentIndex));
-         }else {
-             delimiter = false;
-         }
-       }
-    }
-    return id[0];
-    }
-    
-    
-    public static Registration deserialize(JsonObject jObj) {
+    /**
+     * @param interner if not null, links are {@link CompactLink}s sharing their url and attributes
+     */
+    public static Registration deserialize(JsonObject jObj, LinkInterner interner) {
         Registration.Builder b = new Registration.Builder(jObj.getString("regId", null), jObj.getString("ep", null),
                 IdentitySerDes.deserialize(jObj.get("identity").asObject()));
         b.bindingMode(BindingMode.valueOf(jObj.getString("bnd", null)));
@@ -462,15 +442,37 @@ public class LinkFormatParsing {
             b.smsNumber(jObj.getString("sms", ""));
         }
 
-        JsonArray links = (JsonArray) jObj.get("objLink");
+        b.objectLinks(deserializeLinks((JsonArray) jObj.get("objLink"), interner));
+        Map<String, String> addAttr = new HashMap<>();
+        JsonObject o = (JsonObject) jObj.get("addAttr");
+        for (String k : o.names()) {
+            addAttr.put(k, o.getString(k, ""));
+        }
+        b.additionalRegistrationAttributes(addAttr);
+
+        return b.build();
+    }
+
+    /**
+     * @param links the "objLink" array of a serialized registration
+     * @param interner if not null, links are {@link CompactLink}s sharing their url and attributes
+     */
+    public static Link[] deserializeLinks(JsonArray links, LinkInterner interner) {
         Link[] linkObjs = new Link[links.size()];
+        // the interner copies the attributes, the same map can be reused for all links
+        Map<String, String> reusedAttMap = interner == null ? null : new HashMap<String, String>();
         for (int i = 0; i < links.size(); i++) {
             JsonObject ol = (JsonObject) links.get(i);
 
             JsonObject att = (JsonObject) ol.get("at");
             Map<String, String> attMap = Collections.emptyMap();
             if (!att.isEmpty()) {
-                attMap = new HashMap<>();
+                if (reusedAttMap == null) {
+                    attMap = new HashMap<>();
+                } else {
+                    attMap = reusedAttMap;
+                    attMap.clear();
+                }
                 for (String k : att.names()) {
                     JsonValue jsonValue = att.get(k);
                     if (jsonValue.isNull()) {
@@ -482,18 +484,11 @@ public class LinkFormatParsing {
                     }
                 }
             }
-            Link o = new Link(ol.getString("url", null), attMap);
+            Link o = interner == null ? new Link(ol.getString("url", null), attMap)
+                    : interner.link(ol.getString("url", null), attMap);
             linkObjs[i] = o;
         }
-        b.objectLinks(linkObjs);
-        Map<String, String> addAttr = new HashMap<>();
-        JsonObject o = (JsonObject) jObj.get("addAttr");
-        for (String k : o.names()) {
-            addAttr.put(k, o.getString(k, ""));
-        }
-        b.additionalRegistrationAttributes(addAttr);
-
-        return b.build();
+        return linkObjs;
     }
 
     public static Registration deserialize(byte[] data) {
@@ -0,0 +1,86 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.leshan.core.Link;
+
+/**
+ * Builds {@link CompactLink}s sharing urls and attribute maps.
+ * <p>
+ * Nearly all links of a registration carry the same attributes ({ver=2.1} or none) and the same urls come back in each
+ * registration, so one immutable map per distinct attribute content and one string per url are kept. Thread safe,
+ * nothing is ever removed : intern device independent content only.
+ */
+public class LinkInterner {
+
+    private final StringDictionary strings = new StringDictionary();
+    private final ConcurrentMap<Map<String, String>, Map<String, String>> attributeMaps = new ConcurrentHashMap<>();
+
+    public Link link(String url, Map<String, String> attributes) {
+        return new CompactLink(strings.intern(url), intern(attributes));
+    }
+
+    /**
+     * @return compact copies of the given links, e.g. the result of {@link Link#parse(byte[])}
+     */
+    public Link[] intern(Link[] links) {
+        if (links == null) {
+            return null;
+        }
+        Link[] compact = new Link[links.length];
+        for (int i = 0; i < links.length; i++) {
+            compact[i] = link(links[i].getUrl(), links[i].getAttributes());
+        }
+        return compact;
+    }
+
+    /**
+     * @return the shared immutable map with the same content
+     */
+    public Map<String, String> intern(Map<String, String> attributes) {
+        if (attributes == null || attributes.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> shared = attributeMaps.get(attributes);
+        if (shared != null) {
+            return shared;
+        }
+        Map<String, String> copy;
+        if (attributes.size() == 1) {
+            Entry<String, String> attribute = attributes.entrySet().iterator().next();
+            copy = Collections.singletonMap(strings.intern(attribute.getKey()), internValue(attribute.getValue()));
+        } else {
+            Map<String, String> map = new HashMap<>(attributes.size() * 2);
+            for (Entry<String, String> attribute : attributes.entrySet()) {
+                map.put(strings.intern(attribute.getKey()), internValue(attribute.getValue()));
+            }
+            copy = Collections.unmodifiableMap(map);
+        }
+        shared = attributeMaps.putIfAbsent(copy, copy);
+        return shared == null ? copy : shared;
+    }
+
+    /**
+     * @return the number of distinct attribute maps
+     */
+    public int getAttributeMapCount() {
+        return attributeMaps.size();
+    }
+
+    /**
+     * @return the number of distinct urls, attribute names and values
+     */
+    public int getStringCount() {
+        return strings.size();
+    }
+
+    private String internValue(String value) {
+        // attributes without value, e.g. ";obs"
+        return value == null ? null : strings.intern(value);
+    }
+}
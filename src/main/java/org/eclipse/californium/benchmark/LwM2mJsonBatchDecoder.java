@@ -0,0 +1,173 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.eclipse.leshan.core.json.jackson.LwM2mJsonJacksonEncoderDecoder;
+import org.eclipse.leshan.core.json.minimaljson.LwM2mJsonMinimalEncoderDecoder;
+
+/**
+ * Decodes bursts of LwM2M JSON payloads on a {@link ForkJoinPool}.
+ * <p>
+ * Batches smaller than the sequential threshold are decoded in the calling thread. Results are in the payloads order,
+ * a payload failing to decode only fails its own {@link Result}. {@link #close()} shuts the pool down when it was
+ * created by this decoder.
+ *
+ * @param <T> payload type, String for the Leshan codecs or byte[] for {@link LwM2mJsonStreamingDecoder}
+ */
+public class LwM2mJsonBatchDecoder<T> implements Closeable {
+
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 8;
+
+    /**
+     * Decodes one payload, must be thread safe.
+     */
+    public interface Decoder<T> {
+        JsonRootObject fromJsonLwM2m(T payload) throws LwM2mJsonException;
+    }
+
+    /**
+     * Decoded payload or its decoding error.
+     */
+    public static class Result {
+        private final JsonRootObject root;
+        private final LwM2mJsonException error;
+
+        Result(JsonRootObject root, LwM2mJsonException error) {
+            this.root = root;
+            this.error = error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public JsonRootObject getRoot() {
+            return root;
+        }
+
+        public LwM2mJsonException getError() {
+            return error;
+        }
+    }
+
+    private final Decoder<T> decoder;
+    private final ForkJoinPool pool;
+    private final boolean ownPool;
+    private final int sequentialThreshold;
+
+    /**
+     * Uses a pool with one thread per processor and the default threshold.
+     */
+    public LwM2mJsonBatchDecoder(Decoder<T> decoder) {
+        this(decoder, null, DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    /**
+     * @param pool decodes the batches, if null a pool with one thread per processor is created and shut down on
+     *        {@link #close()}
+     */
+    public LwM2mJsonBatchDecoder(Decoder<T> decoder, ForkJoinPool pool, int sequentialThreshold) {
+        this.decoder = decoder;
+        this.ownPool = pool == null;
+        this.pool = pool != null ? pool : new ForkJoinPool();
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    public List<Result> decode(List<T> payloads) {
+        Result[] results = new Result[payloads.size()];
+        if (results.length < sequentialThreshold || pool.getParallelism() == 1) {
+            decode(payloads, results, 0, results.length);
+        } else {
+            // a few tasks per worker so that a slow payload does not leave the others idle
+            int grain = Math.max(1, results.length / (pool.getParallelism() * 4));
+            pool.invoke(new DecodeTask(payloads, results, 0, results.length, grain));
+        }
+        return Arrays.asList(results);
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public void close() {
+        if (ownPool) {
+            pool.shutdown();
+        }
+    }
+
+    private void decode(List<T> payloads, Result[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            try {
+                results[i] = new Result(decoder.fromJsonLwM2m(payloads.get(i)), null);
+            } catch (LwM2mJsonException e) {
+                results[i] = new Result(null, e);
+            } catch (RuntimeException e) {
+                results[i] = new Result(null, new LwM2mJsonException("Unable to decode payload " + i, e));
+            }
+        }
+    }
+
+    private class DecodeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> payloads;
+        private final Result[] results;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        DecodeTask(List<T> payloads, Result[] results, int from, int to, int grain) {
+            this.payloads = payloads;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                decode(payloads, results, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new DecodeTask(payloads, results, from, middle, grain),
+                        new DecodeTask(payloads, results, middle, to, grain));
+            }
+        }
+    }
+
+    public static Decoder<String> minimal(final LwM2mJsonMinimalEncoderDecoder minimal) {
+        return new Decoder<String>() {
+            @Override
+            public JsonRootObject fromJsonLwM2m(String payload) throws LwM2mJsonException {
+                return minimal.fromJsonLwM2m(payload);
+            }
+        };
+    }
+
+    public static Decoder<String> jackson(final LwM2mJsonJacksonEncoderDecoder jackson) {
+        return new Decoder<String>() {
+            @Override
+            public JsonRootObject fromJsonLwM2m(String payload) throws LwM2mJsonException {
+                return jackson.fromJsonLwM2m(payload);
+            }
+        };
+    }
+
+    public static Decoder<byte[]> streaming(final LwM2mJsonStreamingDecoder streaming) {
+        return new Decoder<byte[]>() {
+            @Override
+            public JsonRootObject fromJsonLwM2m(byte[] payload) throws LwM2mJsonException {
+                return streaming.fromJsonLwM2m(payload);
+            }
+        };
+    }
+}
@@ -0,0 +1,149 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.json.JsonArrayEntry;
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ResourceModel;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.node.LwM2mMultipleResource;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.util.Base64;
+
+/**
+ * Conversion of a decoded LwM2M JSON payload ({@link JsonRootObject}) to the {@link LwM2mNode} of an object instance
+ * or resource path, the second half of {@code LwM2mNodeJsonDecoder.decode()} which does not expose it.
+ * <p>
+ * Same rules as Leshan for the common notification case : names are full paths once prefixed by the base name, types
+ * and multiplicity come from the model (the type of the JSON value for unknown resources) and values are converted as
+ * Leshan does (seconds to Date for TIME, Base64 for OPAQUE, "objectId:instanceId" to {@link ObjectLink} for OBJLNK).
+ * Timestamps are ignored, the entries are expected to be one sample of the resources. Entry paths are parsed with
+ * {@link LwM2mPathParser}.
+ * <p>
+ * Thread safe.
+ */
+public class LwM2mJsonNodeConverter {
+
+    private final LwM2mModel model;
+
+    public LwM2mJsonNodeConverter(LwM2mModel model) {
+        this.model = model;
+    }
+
+    /**
+     * @param path an object instance or resource path
+     * @return an {@link LwM2mObjectInstance} or a {@link LwM2mResource} depending on the path
+     * @throws CodecException if the content does not match the path or the model
+     */
+    public LwM2mNode convert(JsonRootObject root, LwM2mPath path) {
+        if (!path.isObjectInstance() && !path.isResource())
+            throw new CodecException("Unsupported path %s", path);
+        int objectId = path.getObjectId();
+        int instanceId = path.getObjectInstanceId();
+        String baseName = root.getBaseName() != null ? root.getBaseName() : "";
+
+        // resource id => value, or resource instance id => value for multiple resources
+        Map<Integer, Object> values = new LinkedHashMap<>();
+        Map<Integer, Type> types = new HashMap<>();
+        for (JsonArrayEntry entry : root.getResourceList()) {
+            String name = entry.getName() != null ? baseName + entry.getName() : baseName;
+            long entryPath = LwM2mPathParser.parse(name);
+            int depth = LwM2mPathParser.depth(entryPath);
+            if (entryPath == LwM2mPathParser.INVALID || depth < 3)
+                throw new CodecException("Invalid resource path [%s] for requested path [%s]", name, path);
+            if (LwM2mPathParser.objectId(entryPath) != objectId
+                    || LwM2mPathParser.instanceId(entryPath) != instanceId)
+                throw new CodecException("resource path [%s] does not match requested path [%s].", name, path);
+
+            int resourceId = LwM2mPathParser.resourceId(entryPath);
+            ResourceModel resourceModel = model.getResourceModel(objectId, resourceId);
+            Type type = resourceModel != null ? resourceModel.type : entry.getType();
+            if (type == null)
+                throw new CodecException("No value for resource [%s]", name);
+            boolean multiple = resourceModel != null ? resourceModel.multiple : depth == 4;
+            Object value = value(entry.getResourceValue(), type, name);
+            if (multiple) {
+                if (depth != 4)
+                    throw new CodecException("Resource instance expected for multiple resource [%s]", name);
+                @SuppressWarnings("unchecked")
+                Map<Integer, Object> instances = (Map<Integer, Object>) values.get(resourceId);
+                if (instances == null) {
+                    instances = new LinkedHashMap<>();
+                    values.put(resourceId, instances);
+                }
+                instances.put(LwM2mPathParser.resourceInstanceId(entryPath), value);
+            } else {
+                if (depth != 3)
+                    throw new CodecException("Unexpected resource instance for single resource [%s]", name);
+                values.put(resourceId, value);
+            }
+            types.put(resourceId, type);
+        }
+
+        Map<Integer, LwM2mResource> resources = new LinkedHashMap<>(values.size() * 2);
+        for (Map.Entry<Integer, Object> e : values.entrySet()) {
+            int resourceId = e.getKey();
+            Type type = types.get(resourceId);
+            if (e.getValue() instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<Integer, ?> instances = (Map<Integer, ?>) e.getValue();
+                resources.put(resourceId, LwM2mMultipleResource.newResource(resourceId, instances, type));
+            } else {
+                resources.put(resourceId, LwM2mSingleResource.newResource(resourceId, e.getValue(), type));
+            }
+        }
+
+        if (path.isResource()) {
+            LwM2mResource resource = resources.get(path.getResourceId());
+            if (resource == null || resources.size() != 1)
+                throw new CodecException("One resource should be present in the payload [path:%s]", path);
+            return resource;
+        }
+        return new LwM2mObjectInstance(instanceId, resources.values());
+    }
+
+    private static Object value(Object value, Type type, String name) {
+        try {
+            switch (type) {
+            case INTEGER:
+                return ((Number) value).longValue();
+            case FLOAT:
+                return ((Number) value).doubleValue();
+            case TIME:
+                return new Date(((Number) value).longValue() * 1000L);
+            case OPAQUE:
+                return Base64.decodeBase64((String) value);
+            case OBJLNK:
+                return objectLink((String) value);
+            case BOOLEAN:
+            case STRING:
+                return value;
+            default:
+                throw new CodecException("Unsupported type %s for path %s", type, name);
+            }
+        } catch (ClassCastException | IllegalArgumentException e) {
+            throw new CodecException(e, "Invalid content [%s] for type %s for path %s", value, type, name);
+        }
+    }
+
+    /**
+     * Same format as {@code ObjectLink.decodeFromString()} of Leshan 2.
+     */
+    private static ObjectLink objectLink(String value) {
+        int separator = value.indexOf(':');
+        if (separator < 0)
+            throw new IllegalArgumentException("Missing ':' in object link " + value);
+        return new ObjectLink(Integer.parseInt(value.substring(0, separator)),
+                Integer.parseInt(value.substring(separator + 1)));
+    }
+}
@@ -0,0 +1,449 @@
+package org.eclipse.californium.benchmark;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.json.JsonArrayEntry;
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+
+/**
+ * LwM2M JSON decoder reading the payload bytes directly, with a streaming tokenizer : no intermediate String for the
+ * whole payload and no tree model. Only the names and string values are materialized.
+ * <p>
+ * Behaves like the Jackson decoder : unknown fields are ignored, "v" is an Integer, Long, BigInteger or Double
+ * depending on the literal, "t" and "bt" are truncated to long, and an entry without value is rejected.
+ * <p>
+ * Thread safe.
+ */
+public class LwM2mJsonStreamingDecoder {
+
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    public JsonRootObject fromJsonLwM2m(byte[] content) throws LwM2mJsonException {
+        return fromJsonLwM2m(content, 0, content.length);
+    }
+
+    public JsonRootObject fromJsonLwM2m(byte[] content, int offset, int length) throws LwM2mJsonException {
+        try {
+            return new Parser(content, offset, offset + length).parseRoot();
+        } catch (IndexOutOfBoundsException e) {
+            throw new LwM2mJsonException("Unable to parse json bytes : unexpected end of content", e);
+        }
+    }
+
+    /**
+     * Decode the remaining bytes of the buffer, its position is not modified.
+     */
+    public JsonRootObject fromJsonLwM2m(ByteBuffer content) throws LwM2mJsonException {
+        if (content.hasArray()) {
+            return fromJsonLwM2m(content.array(), content.arrayOffset() + content.position(), content.remaining());
+        }
+        byte[] copy = new byte[content.remaining()];
+        content.duplicate().get(copy);
+        return fromJsonLwM2m(copy);
+    }
+
+    private static class Parser {
+        private final byte[] buf;
+        private final int end;
+        private int pos;
+
+        Parser(byte[] buf, int start, int end) {
+            this.buf = buf;
+            this.pos = start;
+            this.end = end;
+        }
+
+        JsonRootObject parseRoot() throws LwM2mJsonException {
+            JsonRootObject root = new JsonRootObject();
+            List<JsonArrayEntry> entries = null;
+            expect('{');
+            if (!consume('}')) {
+                do {
+                    int keyStart = parseKey();
+                    int keyLength = pos - keyStart - 1;
+                    expect(':');
+                    if (is(keyStart, keyLength, 'e')) {
+                        if (peek() == '[') {
+                            entries = parseEntries();
+                        } else {
+                            skipValue();
+                        }
+                    } else if (is(keyStart, keyLength, 'b', 'n')) {
+                        if (peek() == '"') {
+                            root.setBaseName(parseString());
+                        } else {
+                            skipValue();
+                        }
+                    } else if (is(keyStart, keyLength, 'b', 't')) {
+                        Number bt = parseNumberOrSkip();
+                        if (bt != null)
+                            root.setBaseTime(bt.longValue());
+                    } else {
+                        skipValue();
+                    }
+                } while (consume(','));
+                expect('}');
+            }
+            skipWhitespace();
+            if (pos != end)
+                throw error("Unexpected content after root object");
+            if (entries == null)
+                throw error("'e' field is missing");
+            root.setResourceList(entries);
+            return root;
+        }
+
+        private List<JsonArrayEntry> parseEntries() throws LwM2mJsonException {
+            List<JsonArrayEntry> entries = new ArrayList<>();
+            expect('[');
+            if (consume(']'))
+                return entries;
+            do {
+                entries.add(parseEntry());
+            } while (consume(','));
+            expect(']');
+            return entries;
+        }
+
+        private JsonArrayEntry parseEntry() throws LwM2mJsonException {
+            JsonArrayEntry entry = new JsonArrayEntry();
+            expect('{');
+            if (!consume('}')) {
+                do {
+                    int keyStart = parseKey();
+                    int keyLength = pos - keyStart - 1;
+                    expect(':');
+                    byte next = peek();
+                    if (is(keyStart, keyLength, 'n')) {
+                        if (next == '"') {
+                            entry.setName(parseString());
+                        } else {
+                            skipValue();
+                        }
+                    } else if (is(keyStart, keyLength, 'v')) {
+                        Number v = parseNumberOrSkip();
+                        if (v != null)
+                            entry.setFloatValue(v);
+                    } else if (is(keyStart, keyLength, 't')) {
+                        Number t = parseNumberOrSkip();
+                        if (t != null)
+                            entry.setTime(t.longValue());
+                    } else if (is(keyStart, keyLength, 's', 'v')) {
+                        if (next == '"') {
+                            entry.setStringValue(parseString());
+                        } else {
+                            skipValue();
+                        }
+                    } else if (is(keyStart, keyLength, 'o', 'v')) {
+                        if (next == '"') {
+                            entry.setObjectLinkValue(parseString());
+                        } else {
+                            skipValue();
+                        }
+                    } else if (is(keyStart, keyLength, 'b', 'v')) {
+                        if (next == 't' || next == 'f') {
+                            entry.setBooleanValue(parseBoolean());
+                        } else {
+                            skipValue();
+                        }
+                    } else {
+                        skipValue();
+                    }
+                } while (consume(','));
+                expect('}');
+            }
+            if (entry.getType() == null)
+                throw error("Invalid JSON array entry: one value must be present");
+            return entry;
+        }
+
+        /**
+         * Parse a key without decoding it.
+         *
+         * @return the start of the key content, pos is after the closing quote.
+         */
+        private int parseKey() throws LwM2mJsonException {
+            expect('"');
+            int start = pos;
+            while (true) {
+                if (pos >= end)
+                    throw error("Unterminated string");
+                byte b = buf[pos++];
+                if (b == '"')
+                    return start;
+                if (b == '\\')
+                    pos++;
+            }
+        }
+
+        private boolean is(int start, int length, char c) {
+            return length == 1 && buf[start] == c;
+        }
+
+        private boolean is(int start, int length, char c1, char c2) {
+            return length == 2 && buf[start] == c1 && buf[start + 1] == c2;
+        }
+
+        private String parseString() throws LwM2mJsonException {
+            expect('"');
+            int start = pos;
+            boolean ascii = true;
+            while (true) {
+                if (pos >= end)
+                    throw error("Unterminated string");
+                byte b = buf[pos];
+                if (b == '"') {
+                    String s = new String(buf, start, pos - start,
+                            ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+                    pos++;
+                    return s;
+                }
+                if (b == '\\') {
+                    return parseEscapedString(start);
+                }
+                if (b < 0) {
+                    ascii = false;
+                } else if (b < 0x20) {
+                    throw error("Unescaped control character in string");
+                }
+                pos++;
+            }
+        }
+
+        private String parseEscapedString(int start) throws LwM2mJsonException {
+            // slow path : decode what was already read and continue char by char
+            StringBuilder s = new StringBuilder(new String(buf, start, pos - start, StandardCharsets.UTF_8));
+            while (true) {
+                int segment = pos;
+                while (pos < end && buf[pos] != '"' && buf[pos] != '\\') {
+                    pos++;
+                }
+                if (pos >= end)
+                    throw error("Unterminated string");
+                s.append(new String(buf, segment, pos - segment, StandardCharsets.UTF_8));
+                if (buf[pos++] == '"')
+                    return s.toString();
+                byte escaped = buf[pos++];
+                switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    s.append((char) escaped);
+                    break;
+                case 'b':
+                    s.append('\b');
+                    break;
+                case 'f':
+                    s.append('\f');
+                    break;
+                case 'n':
+                    s.append('\n');
+                    break;
+                case 'r':
+                    s.append('\r');
+                    break;
+                case 't':
+                    s.append('\t');
+                    break;
+                case 'u':
+                    int c = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(buf[pos++], 16);
+                        if (digit < 0)
+                            throw error("Invalid unicode escape");
+                        c = c << 4 | digit;
+                    }
+                    s.append((char) c);
+                    break;
+                default:
+                    throw error("Invalid escape sequence");
+                }
+            }
+        }
+
+        private Boolean parseBoolean() throws LwM2mJsonException {
+            if (match("true"))
+                return Boolean.TRUE;
+            if (match("false"))
+                return Boolean.FALSE;
+            throw error("Invalid literal");
+        }
+
+        private Number parseNumberOrSkip() throws LwM2mJsonException {
+            byte b = peek();
+            if (b == '-' || (b >= '0' && b <= '9'))
+                return parseNumber();
+            skipValue();
+            return null;
+        }
+
+        private Number parseNumber() throws LwM2mJsonException {
+            int start = pos;
+            boolean negative = buf[pos] == '-';
+            if (negative)
+                pos++;
+            long mantissa = 0;
+            int digits = 0;
+            int intDigits = 0;
+            while (pos < end && isDigit(buf[pos])) {
+                if (digits < 18)
+                    mantissa = mantissa * 10 + (buf[pos] - '0');
+                digits++;
+                intDigits++;
+                pos++;
+            }
+            if (intDigits == 0)
+                throw error("Invalid number");
+            boolean floating = false;
+            int fractionDigits = 0;
+            if (pos < end && buf[pos] == '.') {
+                floating = true;
+                pos++;
+                while (pos < end && isDigit(buf[pos])) {
+                    if (digits < 18) {
+                        mantissa = mantissa * 10 + (buf[pos] - '0');
+                        fractionDigits++;
+                    }
+                    digits++;
+                    pos++;
+                }
+            }
+            int exponent = 0;
+            if (pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+                floating = true;
+                pos++;
+                boolean negativeExponent = false;
+                if (pos < end && (buf[pos] == '+' || buf[pos] == '-')) {
+                    negativeExponent = buf[pos] == '-';
+                    pos++;
+                }
+                if (pos >= end || !isDigit(buf[pos]))
+                    throw error("Invalid number");
+                while (pos < end && isDigit(buf[pos])) {
+                    if (exponent < 10000)
+                        exponent = exponent * 10 + (buf[pos] - '0');
+                    pos++;
+                }
+                if (negativeExponent)
+                    exponent = -exponent;
+            }
+
+            if (!floating) {
+                if (digits <= 18) {
+                    long value = negative ? -mantissa : mantissa;
+                    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+                        return Integer.valueOf((int) value);
+                    return Long.valueOf(value);
+                }
+                BigInteger value = new BigInteger(new String(buf, start, pos - start, StandardCharsets.ISO_8859_1));
+                if (value.bitLength() < 64)
+                    return Long.valueOf(value.longValue());
+                return value;
+            }
+
+            // fast path, exact when both the mantissa and the power of ten are exactly representable as double
+            int scale = exponent - fractionDigits;
+            if (digits <= 15 && scale >= -22 && scale <= 22) {
+                double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+                return Double.valueOf(negative ? -value : value);
+            }
+            return Double.valueOf(new String(buf, start, pos - start, StandardCharsets.ISO_8859_1));
+        }
+
+        private void skipValue() throws LwM2mJsonException {
+            byte b = peek();
+            switch (b) {
+            case '"':
+                parseKey();
+                return;
+            case '{':
+            case '[':
+                int depth = 0;
+                boolean inString = false;
+                do {
+                    if (pos >= end)
+                        throw error("Unexpected end of content");
+                    byte c = buf[pos++];
+                    if (inString) {
+                        if (c == '\\')
+                            pos++;
+                        else if (c == '"')
+                            inString = false;
+                    } else if (c == '"') {
+                        inString = true;
+                    } else if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    }
+                } while (depth > 0);
+                return;
+            case 't':
+            case 'f':
+                parseBoolean();
+                return;
+            case 'n':
+                if (match("null"))
+                    return;
+                throw error("Invalid literal");
+            default:
+                parseNumber();
+            }
+        }
+
+        private boolean match(String literal) {
+            int length = literal.length();
+            if (pos + length > end)
+                return false;
+            for (int i = 0; i < length; i++) {
+                if (buf[pos + i] != literal.charAt(i))
+                    return false;
+            }
+            pos += length;
+            return true;
+        }
+
+        private static boolean isDigit(byte b) {
+            return b >= '0' && b <= '9';
+        }
+
+        private void skipWhitespace() {
+            while (pos < end) {
+                byte b = buf[pos];
+                if (b != ' ' && b != '\n' && b != '\r' && b != '\t')
+                    return;
+                pos++;
+            }
+        }
+
+        private byte peek() throws LwM2mJsonException {
+            skipWhitespace();
+            if (pos >= end)
+                throw error("Unexpected end of content");
+            return buf[pos];
+        }
+
+        private boolean consume(char c) throws LwM2mJsonException {
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) throws LwM2mJsonException {
+            if (!consume(c))
+                throw error("'" + c + "' expected");
+        }
+
+        private LwM2mJsonException error(String message) {
+            return new LwM2mJsonException("Unable to parse json bytes : %s at offset %d", message, pos);
+        }
+    }
+}
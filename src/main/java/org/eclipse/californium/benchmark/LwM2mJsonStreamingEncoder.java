@@ -0,0 +1,454 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.leshan.core.json.JsonArrayEntry;
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+
+/**
+ * LwM2M JSON encoder writing UTF-8 directly into a caller supplied buffer, no intermediate String or tree model.
+ * <p>
+ * The output is byte-identical to {@code LwM2mJsonJacksonEncoderDecoder.toJsonLwM2m(root).getBytes(UTF_8)} : same
+ * field order (bn, e, bt and n, value, t), same number formatting and same string escaping.
+ * <p>
+ * With base factoring, the base name and base time of the root are recomputed to shorten the payload : the base name
+ * becomes the longest common prefix, up to a '/', of the entry names (bn + n), and the base time the earliest entry
+ * time (bt + t), entries at that time having no "t". Each is only changed when it saves bytes, and only when every
+ * entry has a name (resp. every entry or the root has a time) so that the resolved names and times are unchanged.
+ * <p>
+ * Thread safe, use a {@link ByteBufferPool} to share buffers between threads.
+ */
+public class LwM2mJsonStreamingEncoder {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+    // 0 : no escape, -1 : \\u00XX, other : 2 chars escape
+    private static final int[] ESCAPES = new int[128];
+    static {
+        for (int i = 0; i < 32; i++) {
+            ESCAPES[i] = -1;
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+    }
+
+    private final ByteBufferPool pool;
+    private final boolean factorBase;
+
+    public LwM2mJsonStreamingEncoder() {
+        this(new ByteBufferPool(1024, 64, 256 * 1024));
+    }
+
+    public LwM2mJsonStreamingEncoder(ByteBufferPool pool) {
+        this(pool, false);
+    }
+
+    /**
+     * @param factorBase true to recompute the base name and base time of the root to shorten the payload
+     */
+    public LwM2mJsonStreamingEncoder(ByteBufferPool pool, boolean factorBase) {
+        this.pool = pool;
+        this.factorBase = factorBase;
+    }
+
+    /**
+     * Encode at the position of the buffer and advance it.
+     *
+     * @return the given buffer, or if it was too small (or not backed by an array), a larger heap buffer containing the
+     *         bytes before the position of the given one followed by the encoded content. Always use the returned
+     *         buffer.
+     */
+    public ByteBuffer encode(JsonRootObject root, ByteBuffer buffer) throws LwM2mJsonException {
+        Sink sink;
+        if (buffer.hasArray()) {
+            sink = new Sink(buffer.array(), buffer.arrayOffset(), buffer.arrayOffset() + buffer.position(),
+                    buffer.arrayOffset() + buffer.limit());
+        } else {
+            byte[] copy = new byte[Math.max(buffer.capacity(), 64)];
+            ByteBuffer head = buffer.duplicate();
+            head.flip();
+            head.get(copy, 0, head.remaining());
+            sink = new Sink(copy, 0, head.limit(), copy.length);
+        }
+        encode(root, sink);
+        if (buffer.hasArray() && sink.buf == buffer.array()) {
+            buffer.position(sink.pos - buffer.arrayOffset());
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.wrap(sink.buf);
+        grown.position(sink.pos);
+        return grown;
+    }
+
+    /**
+     * Encode to the stream using a pooled buffer.
+     */
+    public void encode(JsonRootObject root, OutputStream out) throws LwM2mJsonException, IOException {
+        ByteBuffer buffer = pool.acquire();
+        try {
+            buffer = encode(root, buffer);
+            out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    public byte[] toJsonLwM2m(JsonRootObject root) throws LwM2mJsonException {
+        ByteBuffer buffer = pool.acquire();
+        try {
+            buffer = encode(root, buffer);
+            return Arrays.copyOfRange(buffer.array(), buffer.arrayOffset(), buffer.arrayOffset() + buffer.position());
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    public ByteBufferPool getPool() {
+        return pool;
+    }
+
+    public boolean isFactoringBase() {
+        return factorBase;
+    }
+
+    private void encode(JsonRootObject root, Sink sink) throws LwM2mJsonException {
+        List<JsonArrayEntry> entries = root.getResourceList();
+        Base base = factorBase && entries != null && !entries.isEmpty() ? new Base(root, entries) : null;
+        sink.write('{');
+        boolean first = true;
+        if (base != null && base.nameFrom >= 0) {
+            if (base.nameFrom > 0) {
+                sink.writeKey("bn", first);
+                sink.writeString(base.name, base.firstName, 0, base.nameFrom);
+                first = false;
+            }
+        } else if (root.getBaseName() != null) {
+            sink.writeKey("bn", first);
+            sink.writeString(root.getBaseName());
+            first = false;
+        }
+        if (entries != null) {
+            sink.writeKey("e", first);
+            first = false;
+            sink.write('[');
+            for (int i = 0; i < entries.size(); i++) {
+                if (i > 0)
+                    sink.write(',');
+                encode(entries.get(i), sink, base);
+            }
+            sink.write(']');
+        }
+        if (base != null && base.factorTime) {
+            sink.writeKey("bt", first);
+            sink.writeLong(base.time);
+        } else if (root.getBaseTime() != null) {
+            sink.writeKey("bt", first);
+            sink.writeLong(root.getBaseTime());
+        }
+        sink.write('}');
+    }
+
+    /**
+     * Base name and base time factored out of the entries.
+     */
+    private static class Base {
+        // original base name, "" if none
+        final String name;
+        final String firstName;
+        // entry names are written from this index of bn + n, the new base name being the chars before, -1 to keep
+        // the original base name and names
+        int nameFrom = -1;
+        // original base time, 0 if none
+        final long rootTime;
+        boolean factorTime;
+        long time;
+
+        Base(JsonRootObject root, List<JsonArrayEntry> entries) {
+            name = root.getBaseName() != null ? root.getBaseName() : "";
+            firstName = entries.get(0).getName();
+            rootTime = root.getBaseTime() != null ? root.getBaseTime() : 0;
+            factorName(root.getBaseName() != null, entries);
+            factorTime(root.getBaseTime(), entries);
+        }
+
+        private void factorName(boolean hasBaseName, List<JsonArrayEntry> entries) {
+            if (firstName == null)
+                return;
+            int common = firstName.length();
+            long nameChars = 0;
+            for (JsonArrayEntry entry : entries) {
+                String n = entry.getName();
+                if (n == null)
+                    return;
+                nameChars += n.length();
+                int k = 0;
+                int length = Math.min(common, n.length());
+                while (k < length && n.charAt(k) == firstName.charAt(k)) {
+                    k++;
+                }
+                common = k;
+            }
+            // cut after the last '/' of the common prefix
+            int cut = 0;
+            for (int i = name.length() + common - 1; i >= 0; i--) {
+                if (charAt(i) == '/') {
+                    cut = i + 1;
+                    break;
+                }
+            }
+            // "bn":"", with its comma
+            long size = (hasBaseName ? name.length() + 8 : 0) + nameChars;
+            long factored = (cut > 0 ? cut + 8 : 0) + nameChars + (long) entries.size() * (name.length() - cut);
+            if (factored < size)
+                nameFrom = cut;
+        }
+
+        private char charAt(int i) {
+            return i < name.length() ? name.charAt(i) : firstName.charAt(i - name.length());
+        }
+
+        private void factorTime(Long baseTime, List<JsonArrayEntry> entries) {
+            // "bt": with its comma, ,"t":
+            long size = baseTime != null ? 6 + digits(baseTime) : 0;
+            long min = Long.MAX_VALUE;
+            for (JsonArrayEntry entry : entries) {
+                Long t = entry.getTime();
+                if (t == null && baseTime == null)
+                    return;
+                if (t != null)
+                    size += 5 + digits(t);
+                min = Math.min(min, rootTime + (t != null ? t : 0));
+            }
+            long factored = 6 + digits(min);
+            for (JsonArrayEntry entry : entries) {
+                long t = rootTime + (entry.getTime() != null ? entry.getTime() : 0) - min;
+                if (t != 0)
+                    factored += 5 + digits(t);
+            }
+            if (factored < size) {
+                factorTime = true;
+                time = min;
+            }
+        }
+
+        private static int digits(long value) {
+            return Long.toString(value).length();
+        }
+    }
+
+    private void encode(JsonArrayEntry entry, Sink sink, Base base) throws LwM2mJsonException {
+        sink.write('{');
+        boolean first = true;
+        if (entry.getName() != null) {
+            sink.writeKey("n", first);
+            if (base != null && base.nameFrom >= 0) {
+                sink.writeString(base.name, entry.getName(), base.nameFrom,
+                        base.name.length() + entry.getName().length());
+            } else {
+                sink.writeString(entry.getName());
+            }
+            first = false;
+        }
+        Type type = entry.getType();
+        if (type == Type.FLOAT) {
+            sink.writeKey("v", first);
+            sink.writeNumber(entry.getFloatValue());
+        } else if (type == Type.BOOLEAN) {
+            sink.writeKey("bv", first);
+            sink.writeAscii(entry.getBooleanValue() ? "true" : "false");
+        } else if (type == Type.OBJLNK) {
+            sink.writeKey("ov", first);
+            sink.writeString(entry.getObjectLinkValue());
+        } else if (type == Type.STRING) {
+            sink.writeKey("sv", first);
+            sink.writeString(entry.getStringValue());
+        } else {
+            throw new LwM2mJsonException("JsonArrayEntry MUST have a value : %s", entry);
+        }
+        Long time = entry.getTime();
+        if (base != null && base.factorTime) {
+            long t = base.rootTime + (time != null ? time : 0) - base.time;
+            time = t != 0 ? t : null;
+        }
+        if (time != null) {
+            sink.writeKey("t", false);
+            sink.writeLong(time);
+        }
+        sink.write('}');
+    }
+
+    /**
+     * Growable view on a byte array, starting at the position of the caller buffer.
+     */
+    private static class Sink {
+        byte[] buf;
+        int offset;
+        int pos;
+        int limit;
+
+        Sink(byte[] buf, int offset, int pos, int limit) {
+            this.buf = buf;
+            this.offset = offset;
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        void ensure(int n) {
+            if (pos + n > limit) {
+                int size = Math.max((limit - offset) * 2, pos - offset + n);
+                byte[] grown = new byte[size];
+                System.arraycopy(buf, offset, grown, 0, pos - offset);
+                pos -= offset;
+                buf = grown;
+                offset = 0;
+                limit = size;
+            }
+        }
+
+        void write(char c) {
+            ensure(1);
+            buf[pos++] = (byte) c;
+        }
+
+        void writeAscii(String s) {
+            int length = s.length();
+            ensure(length);
+            for (int i = 0; i < length; i++) {
+                buf[pos++] = (byte) s.charAt(i);
+            }
+        }
+
+        void writeKey(String key, boolean first) {
+            ensure(key.length() + 4);
+            if (!first)
+                buf[pos++] = ',';
+            buf[pos++] = '"';
+            for (int i = 0; i < key.length(); i++) {
+                buf[pos++] = (byte) key.charAt(i);
+            }
+            buf[pos++] = '"';
+            buf[pos++] = ':';
+        }
+
+        void writeString(String s) {
+            ensure(2);
+            buf[pos++] = '"';
+            writeChars(s, 0, s.length());
+            ensure(1);
+            buf[pos++] = '"';
+        }
+
+        /**
+         * Write the chars [from, to[ of a + b as a string.
+         */
+        void writeString(String a, String b, int from, int to) {
+            ensure(2);
+            buf[pos++] = '"';
+            if (from < a.length())
+                writeChars(a, from, Math.min(to, a.length()));
+            if (to > a.length())
+                writeChars(b, Math.max(from - a.length(), 0), to - a.length());
+            ensure(1);
+            buf[pos++] = '"';
+        }
+
+        private void writeChars(String s, int from, int end) {
+            // worst case : 6 bytes per char for \\u00XX or 3 bytes UTF-8
+            ensure((end - from) * 6);
+            for (int i = from; i < end; i++) {
+                char c = s.charAt(i);
+                if (c < 128) {
+                    int escape = ESCAPES[c];
+                    if (escape == 0) {
+                        buf[pos++] = (byte) c;
+                    } else if (escape > 0) {
+                        buf[pos++] = '\\';
+                        buf[pos++] = (byte) escape;
+                    } else {
+                        buf[pos++] = '\\';
+                        buf[pos++] = 'u';
+                        buf[pos++] = '0';
+                        buf[pos++] = '0';
+                        buf[pos++] = HEX[c >> 4];
+                        buf[pos++] = HEX[c & 0xF];
+                    }
+                } else if (c < 0x800) {
+                    buf[pos++] = (byte) (0xC0 | c >> 6);
+                    buf[pos++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf[pos++] = (byte) (0xF0 | cp >> 18);
+                    buf[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    buf[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    buf[pos++] = (byte) (0x80 | cp & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    // malformed, as String.getBytes(UTF_8)
+                    buf[pos++] = '?';
+                } else {
+                    buf[pos++] = (byte) (0xE0 | c >> 12);
+                    buf[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    buf[pos++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+
+        void writeLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                writeAscii(Long.toString(value));
+                return;
+            }
+            ensure(20);
+            if (value < 0) {
+                buf[pos++] = '-';
+                value = -value;
+            }
+            int digits = 1;
+            for (long v = value; v >= 10; v /= 10) {
+                digits++;
+            }
+            int p = pos + digits;
+            pos = p;
+            do {
+                buf[--p] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+        }
+
+        void writeNumber(Number value) {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short
+                    || value instanceof Byte) {
+                writeLong(value.longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                double d = value.doubleValue();
+                if (Double.isNaN(d) || Double.isInfinite(d)) {
+                    // non numeric values are quoted
+                    writeString(value.toString());
+                } else if (value instanceof Float) {
+                    writeAscii(value.toString());
+                } else if (d == Math.rint(d) && Math.abs(d) < 1e7 && !(d == 0 && 1 / d < 0)) {
+                    // same as Double.toString for whole values below 10^7, without allocation
+                    writeLong((long) d);
+                    writeAscii(".0");
+                } else {
+                    writeAscii(Double.toString(d));
+                }
+            } else if (value instanceof BigInteger || value instanceof BigDecimal) {
+                writeAscii(value.toString());
+            } else {
+                writeAscii(Double.toString(value.doubleValue()));
+            }
+        }
+    }
+}
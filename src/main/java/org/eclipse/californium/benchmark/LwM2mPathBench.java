@@ -0,0 +1,90 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Object ids of the object link urls of the 5-link and 1000-link registrations of {@link LinkFormatParsing}, with
+ * {@code new LwM2mPath(String)}, the regular expression of {@code getSupportedObject} and {@link LwM2mPathParser}.
+ * <p>
+ * {@code LwM2mPathParserTest} checks the parser against LwM2mPath on these urls and on random paths.
+ */
+public class LwM2mPathBench {
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        @Param({ "short", "long" })
+        public String registration;
+
+        public String rootPath = "/";
+        public String[] urls;
+        public Pattern pattern = Pattern.compile("^\\Q" + rootPath + "\\E(\\d+)(?:/\\d+)*$");
+
+        @Setup(Level.Trial)
+        public void setup() {
+            LinkFormatParsing.MyState registrations = new LinkFormatParsing.MyState();
+            Link[] links;
+            if (registration.equals("short")) {
+                links = registrations.reg.getObjectLinks();
+            } else if (registration.equals("long")) {
+                links = registrations.reg_long.getObjectLinks();
+            } else {
+                throw new IllegalArgumentException("Unknown registration " + registration);
+            }
+            urls = new String[links.length];
+            for (int i = 0; i < links.length; i++) {
+                urls[i] = links[i].getUrl();
+            }
+        }
+    }
+
+    @Benchmark
+    public int lwm2mPath(MyState state) {
+        int checksum = 0;
+        for (String url : state.urls) {
+            if (url.startsWith(state.rootPath)) {
+                try {
+                    LwM2mPath path = new LwM2mPath(url.substring(state.rootPath.length()));
+                    if (!path.isRoot())
+                        checksum += path.getObjectId();
+                } catch (RuntimeException e) {
+                    // not an object link
+                }
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int regex(MyState state) {
+        int checksum = 0;
+        for (String url : state.urls) {
+            Matcher m = state.pattern.matcher(url);
+            if (m.matches()) {
+                checksum += Integer.parseInt(m.group(1));
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public int packed(MyState state) {
+        int checksum = 0;
+        for (String url : state.urls) {
+            long path = LwM2mPathParser.parse(url, state.rootPath);
+            if (path != LwM2mPathParser.INVALID && path != LwM2mPathParser.ROOT)
+                checksum += LwM2mPathParser.objectId(path);
+        }
+        return checksum;
+    }
+}
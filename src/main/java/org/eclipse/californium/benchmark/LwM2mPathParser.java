@@ -0,0 +1,179 @@
+package org.eclipse.californium.benchmark;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+
+/**
+ * Single pass, allocation free parser for LwM2M paths "/objectId/instanceId/resourceId/resourceInstanceId".
+ * <p>
+ * The path is returned packed in a long, 16 bits per id from the object id (most significant) to the resource instance
+ * id, an undefined id being 0xFFFF. Use {@link #objectId(long)} and the other accessors to read it. Paths are parsed as
+ * {@code new LwM2mPath(String)} does, with a leading and a trailing '/' being optional, except that ids are plain
+ * decimal digits (no sign) and 65535, reserved by LwM2M, is rejected for every id. Malformed paths are
+ * {@link #INVALID}.
+ */
+public class LwM2mPathParser {
+
+    /** The root path "/", all ids undefined */
+    public static final long ROOT = -1L;
+    /** Not a valid path, an undefined object id followed by defined ids */
+    public static final long INVALID = 0xFFFF000000000000L;
+    /** Value of an undefined id */
+    public static final int UNDEFINED = -1;
+
+    private static final int UNDEFINED_ID = 0xFFFF;
+
+    /**
+     * Parse a path relative to "/".
+     */
+    public static long parse(String path) {
+        return parse(path, 0, path.length());
+    }
+
+    /**
+     * Parse the url of an object link relative to the root path of the registration, as the supported objects of a
+     * registration are computed.
+     *
+     * @return the packed path or {@link #INVALID}, also when the url does not start with the root path
+     */
+    public static long parse(String url, String rootPath) {
+        if (!url.startsWith(rootPath))
+            return INVALID;
+        return parse(url, rootPath.length(), url.length());
+    }
+
+    /**
+     * Parse the given part of a string.
+     */
+    public static long parse(String s, int start, int end) {
+        if (start < end && s.charAt(start) == '/')
+            start++;
+        if (end > start && s.charAt(end - 1) == '/')
+            end--;
+        long path = 0;
+        int depth = 0;
+        if (start < end) {
+            int id = 0;
+            int digits = 0;
+            for (int i = start; i <= end; i++) {
+                char c = i < end ? s.charAt(i) : '/';
+                if (c >= '0' && c <= '9') {
+                    id = id * 10 + (c - '0');
+                    if (id >= UNDEFINED_ID)
+                        return INVALID;
+                    digits++;
+                } else if (c == '/' && digits > 0 && depth < 4) {
+                    path = path << 16 | id;
+                    depth++;
+                    id = 0;
+                    digits = 0;
+                } else {
+                    return INVALID;
+                }
+            }
+        }
+        for (; depth < 4; depth++) {
+            path = path << 16 | UNDEFINED_ID;
+        }
+        return path;
+    }
+
+    /**
+     * @param ids the defined ids, from the object id, each in [0, 65535[
+     * @throws IllegalArgumentException if there are more than 4 ids or an id is out of range
+     */
+    public static long pack(int... ids) {
+        if (ids.length > 4)
+            throw new IllegalArgumentException("Invalid length for path: " + ids.length);
+        long path = 0;
+        for (int depth = 0; depth < 4; depth++) {
+            int id = UNDEFINED_ID;
+            if (depth < ids.length) {
+                id = ids[depth];
+                if (id < 0 || id >= UNDEFINED_ID)
+                    throw new IllegalArgumentException("Invalid id " + id);
+            }
+            path = path << 16 | id;
+        }
+        return path;
+    }
+
+    public static boolean isValid(long path) {
+        // defined ids are a prefix
+        boolean undefined = false;
+        for (int shift = 48; shift >= 0; shift -= 16) {
+            boolean current = (path >>> shift & UNDEFINED_ID) == UNDEFINED_ID;
+            if (undefined && !current)
+                return false;
+            undefined = current;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of defined ids, 0 for the root path
+     */
+    public static int depth(long path) {
+        int depth = 0;
+        for (int shift = 48; shift >= 0 && (path >>> shift & UNDEFINED_ID) != UNDEFINED_ID; shift -= 16) {
+            depth++;
+        }
+        return depth;
+    }
+
+    public static int objectId(long path) {
+        return id(path, 48);
+    }
+
+    public static int instanceId(long path) {
+        return id(path, 32);
+    }
+
+    public static int resourceId(long path) {
+        return id(path, 16);
+    }
+
+    public static int resourceInstanceId(long path) {
+        return id(path, 0);
+    }
+
+    private static int id(long path, int shift) {
+        int id = (int) (path >>> shift) & UNDEFINED_ID;
+        return id == UNDEFINED_ID ? UNDEFINED : id;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the path is not valid
+     */
+    public static LwM2mPath toLwM2mPath(long path) {
+        if (!isValid(path))
+            throw new IllegalArgumentException("Invalid packed path " + Long.toHexString(path));
+        switch (depth(path)) {
+        case 0:
+            return LwM2mPath.ROOTPATH;
+        case 1:
+            return new LwM2mPath(objectId(path));
+        case 2:
+            return new LwM2mPath(objectId(path), instanceId(path));
+        case 3:
+            return new LwM2mPath(objectId(path), instanceId(path), resourceId(path));
+        default:
+            return new LwM2mPath(objectId(path), instanceId(path), resourceId(path), resourceInstanceId(path));
+        }
+    }
+
+    /**
+     * @return the path as "/o/i/r/ri", "/" for the root path
+     */
+    public static String toString(long path) {
+        if (!isValid(path))
+            return "INVALID";
+        int depth = depth(path);
+        if (depth == 0)
+            return "/";
+        StringBuilder s = new StringBuilder(depth * 6);
+        for (int shift = 48; shift > 48 - depth * 16; shift -= 16) {
+            s.append('/').append(id(path, shift));
+        }
+        return s.toString();
+    }
+}
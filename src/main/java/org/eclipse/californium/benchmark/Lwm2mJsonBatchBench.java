@@ -0,0 +1,108 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Bursts of notifications decoded one by one or with {@link LwM2mJsonBatchDecoder}, for the payloads of
+ * {@link Lwm2mJsonBench}.
+ * <p>
+ * An operation decodes a whole burst, alternating the small and the normal payload. "parallelism" is the size of the
+ * fork/join pool, the "notifications" column is the aggregate decoding throughput in notifications/s, to compare with
+ * the sequential benchmarks (which do not use the pool, run them with "-p parallelism=1").
+ */
+public class Lwm2mJsonBatchBench {
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        @Param({ "1", "2", "4", "8" })
+        public int parallelism;
+
+        @Param({ "64", "1024" })
+        public int burst;
+
+        public Lwm2mJsonBench.MyState payloads;
+        public List<String> notifications;
+        public ForkJoinPool pool;
+        public LwM2mJsonBatchDecoder<String> minimal;
+        public LwM2mJsonBatchDecoder<String> jackson;
+
+        @Setup(Level.Trial)
+        public void setup() throws LwM2mJsonException {
+            payloads = new Lwm2mJsonBench.MyState();
+            notifications = new ArrayList<>(burst);
+            for (int i = 0; i < burst; i++) {
+                notifications.add(i % 2 == 0 ? payloads.smallPayload : payloads.payload);
+            }
+            pool = new ForkJoinPool(parallelism);
+            minimal = new LwM2mJsonBatchDecoder<>(LwM2mJsonBatchDecoder.minimal(payloads.minimal), pool,
+                    LwM2mJsonBatchDecoder.DEFAULT_SEQUENTIAL_THRESHOLD);
+            jackson = new LwM2mJsonBatchDecoder<>(LwM2mJsonBatchDecoder.jackson(payloads.jackson), pool,
+                    LwM2mJsonBatchDecoder.DEFAULT_SEQUENTIAL_THRESHOLD);
+
+            List<LwM2mJsonBatchDecoder.Result> results = jackson.decode(notifications);
+            for (int i = 0; i < burst; i++) {
+                JsonRootObject expected = payloads.jackson.fromJsonLwM2m(notifications.get(i));
+                if (!results.get(i).isSuccess() || !expected.equals(results.get(i).getRoot())) {
+                    throw new IllegalStateException("batch decoding differs for notification " + i);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Decoded {
+        public long notifications;
+    }
+
+    @Benchmark
+    public int minimalSequential(MyState state, Decoded decoded) throws LwM2mJsonException {
+        int resources = 0;
+        for (String notification : state.notifications) {
+            resources += state.payloads.minimal.fromJsonLwM2m(notification).getResourceList().size();
+        }
+        decoded.notifications += state.burst;
+        return resources;
+    }
+
+    @Benchmark
+    public int jacksonSequential(MyState state, Decoded decoded) throws LwM2mJsonException {
+        int resources = 0;
+        for (String notification : state.notifications) {
+            resources += state.payloads.jackson.fromJsonLwM2m(notification).getResourceList().size();
+        }
+        decoded.notifications += state.burst;
+        return resources;
+    }
+
+    @Benchmark
+    public List<LwM2mJsonBatchDecoder.Result> minimalBatch(MyState state, Decoded decoded) {
+        decoded.notifications += state.burst;
+        return state.minimal.decode(state.notifications);
+    }
+
+    @Benchmark
+    public List<LwM2mJsonBatchDecoder.Result> jacksonBatch(MyState state, Decoded decoded) {
+        decoded.notifications += state.burst;
+        return state.jackson.decode(state.notifications);
+    }
+}
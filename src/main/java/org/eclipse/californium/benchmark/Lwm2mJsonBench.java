@@ -1,13 +1,18 @@
 package org.eclipse.californium.benchmark;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.util.Arrays;
 
 import org.eclipse.leshan.core.json.JsonRootObject;
 import org.eclipse.leshan.core.json.LwM2mJsonException;
 import org.eclipse.leshan.core.json.jackson.LwM2mJsonJacksonEncoderDecoder;
 import org.eclipse.leshan.core.json.minimaljson.LwM2mJsonMinimalEncoderDecoder;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 
 public class Lwm2mJsonBench {
@@ -17,12 +22,20 @@ public class Lwm2mJsonBench {
 
         public LwM2mJsonMinimalEncoderDecoder minimal;
         public LwM2mJsonJacksonEncoderDecoder jackson;
+        public LwM2mJsonStreamingDecoder streaming;
+        public LwM2mJsonStreamingEncoder streamingEncoder;
+        public ByteBufferPool pool;
         public String smallPayload;
         public String payload;
         public String bigPayload;
         public JsonRootObject smallRootObject;
         public JsonRootObject rootObject;
         public JsonRootObject bigRootObject;
+        // payloads as received from CoAP
+        public byte[] smallBytes;
+        public byte[] bytes;
+        public byte[] bigBytes;
+        public ByteBuffer buffer;
 
         public MyState() {
             try {
@@ -30,6 +43,9 @@ public class Lwm2mJsonBench {
                 // decoder
                 minimal = new LwM2mJsonMinimalEncoderDecoder();
                 jackson = new LwM2mJsonJacksonEncoderDecoder();
+                streaming = new LwM2mJsonStreamingDecoder();
+                pool = new ByteBufferPool(1024, 64, 256 * 1024);
+                streamingEncoder = new LwM2mJsonStreamingEncoder(pool);
 
                 // string to decode
                 StringBuilder b;
@@ -90,10 +106,58 @@ public class Lwm2mJsonBench {
                 bigPayload = b.toString();
                 bigRootObject = jackson.fromJsonLwM2m(bigPayload);
                 minimal.fromJsonLwM2m(bigPayload);
+
+                smallBytes = smallPayload.getBytes(StandardCharsets.UTF_8);
+                bytes = payload.getBytes(StandardCharsets.UTF_8);
+                bigBytes = bigPayload.getBytes(StandardCharsets.UTF_8);
+                buffer = ByteBuffer.wrap(bytes);
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }
+
+        /**
+         * Fails the setup, unlike the constructor which only prints its errors.
+         */
+        @Setup(Level.Trial)
+        public void checkDecoder() throws LwM2mJsonException {
+            check(smallRootObject, streaming.fromJsonLwM2m(smallBytes));
+            check(rootObject, streaming.fromJsonLwM2m(bytes));
+            check(bigRootObject, streaming.fromJsonLwM2m(bigBytes));
+        }
+
+        private static void check(JsonRootObject expected, JsonRootObject actual) {
+            if (!expected.equals(actual))
+                throw new IllegalStateException("streaming decoder result differs from jackson : " + actual);
+        }
+
+        @Setup(Level.Trial)
+        public void checkEncoder() throws LwM2mJsonException {
+            checkEncoder(smallRootObject);
+            checkEncoder(rootObject);
+            checkEncoder(bigRootObject);
+            // all fields and value types, escaping and non ASCII
+            checkEncoder(jackson.fromJsonLwM2m("{\"bn\":\"/3/0/\",\"e\":["
+                    + "{\"n\":\"0\",\"sv\":\"a \\\"b\\\" \\\\ \\n\\u0001 \u00e9\u20ac\"},"
+                    + "{\"n\":\"1\",\"v\":-0.5,\"t\":-10},{\"n\":\"2\",\"v\":4294967296},{\"n\":\"3\",\"v\":1.0E20},"
+                    + "{\"n\":\"4\",\"bv\":false},{\"n\":\"5\",\"ov\":\"3:0\"}],\"bt\":25462634}"));
+        }
+
+        private void checkEncoder(JsonRootObject root) throws LwM2mJsonException {
+            byte[] expected = jackson.toJsonLwM2m(root).getBytes(StandardCharsets.UTF_8);
+            byte[] actual = streamingEncoder.toJsonLwM2m(root);
+            if (!Arrays.equals(expected, actual))
+                throw new IllegalStateException("streaming encoder output differs from jackson : "
+                        + new String(actual, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Buffer reused by one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class EncodeBuffer {
+        public ByteBuffer buffer = ByteBuffer.allocate(1024);
     }
 
     @Benchmark
@@ -155,4 +219,149 @@ public class Lwm2mJsonBench {
     public void minimalEncodeBig(MyState state) throws GeneralSecurityException, LwM2mJsonException {
         state.minimal.toJsonLwM2m(state.bigRootObject);
     }
+
+    @Benchmark
+    public JsonRootObject streamingDecodeSmall(MyState state) throws LwM2mJsonException {
+        return state.streaming.fromJsonLwM2m(state.smallBytes);
+    }
+
+    @Benchmark
+    public JsonRootObject streamingDecode(MyState state) throws LwM2mJsonException {
+        return state.streaming.fromJsonLwM2m(state.bytes);
+    }
+
+    @Benchmark
+    public JsonRootObject streamingDecodeBig(MyState state) throws LwM2mJsonException {
+        return state.streaming.fromJsonLwM2m(state.bigBytes);
+    }
+
+    @Benchmark
+    public JsonRootObject streamingDecodeByteBuffer(MyState state) throws LwM2mJsonException {
+        return state.streaming.fromJsonLwM2m(state.buffer);
+    }
+
+    // decode from bytes with the String based decoders, including the conversion they hide
+
+    @Benchmark
+    public String bytesToStringSmall(MyState state) {
+        return new String(state.smallBytes, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String bytesToString(MyState state) {
+        return new String(state.bytes, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String bytesToStringBig(MyState state) {
+        return new String(state.bigBytes, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public JsonRootObject jacksonDecodeBytesSmall(MyState state) throws LwM2mJsonException {
+        return state.jackson.fromJsonLwM2m(new String(state.smallBytes, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public JsonRootObject jacksonDecodeBytes(MyState state) throws LwM2mJsonException {
+        return state.jackson.fromJsonLwM2m(new String(state.bytes, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public JsonRootObject jacksonDecodeBytesBig(MyState state) throws LwM2mJsonException {
+        return state.jackson.fromJsonLwM2m(new String(state.bigBytes, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public JsonRootObject minimalDecodeBytesSmall(MyState state) throws LwM2mJsonException {
+        return state.minimal.fromJsonLwM2m(new String(state.smallBytes, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public JsonRootObject minimalDecodeBytes(MyState state) throws LwM2mJsonException {
+        return state.minimal.fromJsonLwM2m(new String(state.bytes, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public JsonRootObject minimalDecodeBytesBig(MyState state) throws LwM2mJsonException {
+        return state.minimal.fromJsonLwM2m(new String(state.bigBytes, StandardCharsets.UTF_8));
+    }
+
+    // encoding to wire-ready bytes, use "-prof gc" to get B/op
+
+    @Benchmark
+    public byte[] jacksonEncodeBytesSmall(MyState state) throws LwM2mJsonException {
+        return state.jackson.toJsonLwM2m(state.smallRootObject).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] jacksonEncodeBytes(MyState state) throws LwM2mJsonException {
+        return state.jackson.toJsonLwM2m(state.rootObject).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] jacksonEncodeBytesBig(MyState state) throws LwM2mJsonException {
+        return state.jackson.toJsonLwM2m(state.bigRootObject).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] minimalEncodeBytesSmall(MyState state) throws LwM2mJsonException {
+        return state.minimal.toJsonLwM2m(state.smallRootObject).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] minimalEncodeBytes(MyState state) throws LwM2mJsonException {
+        return state.minimal.toJsonLwM2m(state.rootObject).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] minimalEncodeBytesBig(MyState state) throws LwM2mJsonException {
+        return state.minimal.toJsonLwM2m(state.bigRootObject).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int streamingEncodeSmall(MyState state, EncodeBuffer b) throws LwM2mJsonException {
+        b.buffer.clear();
+        b.buffer = state.streamingEncoder.encode(state.smallRootObject, b.buffer);
+        return b.buffer.position();
+    }
+
+    @Benchmark
+    public int streamingEncode(MyState state, EncodeBuffer b) throws LwM2mJsonException {
+        b.buffer.clear();
+        b.buffer = state.streamingEncoder.encode(state.rootObject, b.buffer);
+        return b.buffer.position();
+    }
+
+    @Benchmark
+    public int streamingEncodeBig(MyState state, EncodeBuffer b) throws LwM2mJsonException {
+        b.buffer.clear();
+        b.buffer = state.streamingEncoder.encode(state.bigRootObject, b.buffer);
+        return b.buffer.position();
+    }
+
+    @Benchmark
+    public int streamingEncodePooledSmall(MyState state) throws LwM2mJsonException {
+        return encodePooled(state, state.smallRootObject);
+    }
+
+    @Benchmark
+    public int streamingEncodePooled(MyState state) throws LwM2mJsonException {
+        return encodePooled(state, state.rootObject);
+    }
+
+    @Benchmark
+    public int streamingEncodePooledBig(MyState state) throws LwM2mJsonException {
+        return encodePooled(state, state.bigRootObject);
+    }
+
+    private static int encodePooled(MyState state, JsonRootObject root) throws LwM2mJsonException {
+        ByteBuffer buffer = state.pool.acquire();
+        try {
+            buffer = state.streamingEncoder.encode(root, buffer);
+            return buffer.position();
+        } finally {
+            state.pool.release(buffer);
+        }
+    }
 }
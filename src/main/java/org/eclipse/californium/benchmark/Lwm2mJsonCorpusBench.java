@@ -0,0 +1,242 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.eclipse.leshan.core.json.jackson.LwM2mJsonJacksonEncoderDecoder;
+import org.eclipse.leshan.core.json.minimaljson.LwM2mJsonMinimalEncoderDecoder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * LwM2M JSON decoders and encoders over payload files instead of the fixed payloads of {@link Lwm2mJsonBench}.
+ * <p>
+ * Payloads are the "*.json" files of the corpus directory, "corpus/lwm2m-json" of the working directory or the one
+ * given by the "benchmark.corpus" system property (to pass to the forked JVM with -jvmArgsAppend), and the multi
+ * megabyte payloads built by {@link Lwm2mJsonCorpusGenerator}, named "generated:" followed by the generator name. Drop
+ * captured payloads in the directory and select them with "-p payload=a.json,b.json". The default "all" cycles through
+ * the files of the directory on each operation, so its result mixes their sizes, while {@link #main(String[])} runs
+ * one trial per file and per generated payload. The "bytes" column is the payload throughput in bytes/s.
+ * <p>
+ * Files are memory mapped and the decoder benchmarks read them from the mapping. The encoder benchmarks keep the
+ * decoded trees of the selected payloads on the heap. Payloads up to {@link #CHECK_LIMIT} bytes are decoded and
+ * encoded once at setup to check the streaming codec against Jackson.
+ * <p>
+ * The sample corpus is synthetic and hand-written in the shape of the usual device and sensor objects.
+ */
+public class Lwm2mJsonCorpusBench {
+
+    public static final String CORPUS_PROPERTY = "benchmark.corpus";
+    public static final String DEFAULT_CORPUS = "corpus/lwm2m-json";
+    public static final String GENERATED = "generated:";
+    public static final String[] GENERATED_PAYLOADS = { GENERATED + Lwm2mJsonCorpusGenerator.MULTI_INSTANCE + 50000,
+            GENERATED + Lwm2mJsonCorpusGenerator.TIMESERIES + 150000 };
+    /**
+     * Size of the largest payload checked at setup.
+     */
+    public static final int CHECK_LIMIT = 256 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class Corpus {
+
+        /**
+         * "all", the names of corpus files or generated payloads.
+         */
+        @Param({ "all" })
+        public String payload;
+
+        public LwM2mJsonMinimalEncoderDecoder minimal = new LwM2mJsonMinimalEncoderDecoder();
+        public LwM2mJsonJacksonEncoderDecoder jackson = new LwM2mJsonJacksonEncoderDecoder();
+        public LwM2mJsonStreamingDecoder streaming = new LwM2mJsonStreamingDecoder();
+        public String[] names;
+        // read only, use duplicate() to read them
+        public ByteBuffer[] payloads;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException, LwM2mJsonException {
+            File directory = getCorpusDirectory();
+            if (payload.equals("all")) {
+                File[] files = listPayloads(directory);
+                names = new String[files.length];
+                payloads = new ByteBuffer[files.length];
+                for (int i = 0; i < files.length; i++) {
+                    names[i] = files[i].getName();
+                    payloads[i] = map(files[i]);
+                }
+            } else if (payload.startsWith(GENERATED)) {
+                names = new String[] { payload };
+                payloads = new ByteBuffer[] { ByteBuffer
+                        .wrap(Lwm2mJsonCorpusGenerator.generate(payload.substring(GENERATED.length())))
+                        .asReadOnlyBuffer() };
+            } else {
+                names = new String[] { payload };
+                payloads = new ByteBuffer[] { map(new File(directory, payload)) };
+            }
+            for (int i = 0; i < payloads.length; i++) {
+                if (payloads[i].remaining() <= CHECK_LIMIT) {
+                    JsonRootObject expected = jackson.fromJsonLwM2m(decodeUtf8(payloads[i]));
+                    if (!expected.equals(streaming.fromJsonLwM2m(payloads[i].duplicate()))) {
+                        throw new IllegalStateException(
+                                "streaming decoder result differs from jackson for " + names[i]);
+                    }
+                }
+            }
+        }
+
+        private static ByteBuffer map(File file) throws IOException {
+            // the mapping stays valid once the channel is closed
+            try (RandomAccessFile f = new RandomAccessFile(file, "r"); FileChannel channel = f.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+    }
+
+    /**
+     * Jackson decoded payloads, only built by the encoder benchmarks.
+     */
+    @State(Scope.Benchmark)
+    public static class RootObjects {
+
+        public LwM2mJsonStreamingEncoder streamingEncoder = new LwM2mJsonStreamingEncoder(
+                new ByteBufferPool(1024, 64, 256 * 1024));
+        public JsonRootObject[] roots;
+
+        @Setup(Level.Trial)
+        public void setup(Corpus corpus) throws LwM2mJsonException {
+            roots = new JsonRootObject[corpus.payloads.length];
+            for (int i = 0; i < roots.length; i++) {
+                roots[i] = corpus.jackson.fromJsonLwM2m(decodeUtf8(corpus.payloads[i]));
+                if (corpus.payloads[i].remaining() <= CHECK_LIMIT) {
+                    byte[] expected = corpus.jackson.toJsonLwM2m(roots[i]).getBytes(StandardCharsets.UTF_8);
+                    if (!Arrays.equals(expected, streamingEncoder.toJsonLwM2m(roots[i]))) {
+                        throw new IllegalStateException(
+                                "streaming encoder output differs from jackson for " + corpus.names[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Position of a benchmark thread in the corpus and its payload throughput.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Cursor {
+        public long bytes;
+        private int index;
+
+        int next(int count) {
+            int current = index;
+            index = current + 1 == count ? 0 : current + 1;
+            return current;
+        }
+    }
+
+    public static File getCorpusDirectory() {
+        return new File(System.getProperty(CORPUS_PROPERTY, DEFAULT_CORPUS));
+    }
+
+    /**
+     * @return the payload files of the corpus directory, sorted by name
+     */
+    public static File[] listPayloads(File directory) {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(".json");
+            }
+        });
+        if (files == null || files.length == 0) {
+            throw new IllegalStateException("No payload in corpus " + directory.getAbsolutePath());
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * Runs the benchmarks of this class once per payload of the corpus directory and per generated payload, other
+     * arguments are JMH options.
+     */
+    public static void main(String[] args) throws Exception {
+        File directory = getCorpusDirectory().getAbsoluteFile();
+        File[] files = listPayloads(directory);
+        String[] names = Arrays.copyOf(GENERATED_PAYLOADS, files.length + GENERATED_PAYLOADS.length);
+        for (int i = 0; i < files.length; i++) {
+            names[GENERATED_PAYLOADS.length + i] = files[i].getName();
+        }
+        CommandLineOptions options = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options).param("payload", names)
+                .jvmArgsAppend("-D" + CORPUS_PROPERTY + "=" + directory.getPath());
+        if (options.getIncludes().isEmpty()) {
+            builder.include(Lwm2mJsonCorpusBench.class.getSimpleName());
+        }
+        new Runner(builder.build()).run();
+    }
+
+    static String decodeUtf8(ByteBuffer payload) {
+        return StandardCharsets.UTF_8.decode(payload.duplicate()).toString();
+    }
+
+    @Benchmark
+    public JsonRootObject streamingDecode(Corpus corpus, Cursor cursor) throws LwM2mJsonException {
+        ByteBuffer payload = corpus.payloads[cursor.next(corpus.payloads.length)];
+        cursor.bytes += payload.remaining();
+        return corpus.streaming.fromJsonLwM2m(payload.duplicate());
+    }
+
+    @Benchmark
+    public JsonRootObject jacksonDecode(Corpus corpus, Cursor cursor) throws LwM2mJsonException {
+        ByteBuffer payload = corpus.payloads[cursor.next(corpus.payloads.length)];
+        cursor.bytes += payload.remaining();
+        return corpus.jackson.fromJsonLwM2m(decodeUtf8(payload));
+    }
+
+    @Benchmark
+    public JsonRootObject minimalDecode(Corpus corpus, Cursor cursor) throws LwM2mJsonException {
+        ByteBuffer payload = corpus.payloads[cursor.next(corpus.payloads.length)];
+        cursor.bytes += payload.remaining();
+        return corpus.minimal.fromJsonLwM2m(decodeUtf8(payload));
+    }
+
+    @Benchmark
+    public byte[] jacksonEncode(Corpus corpus, RootObjects roots, Cursor cursor) throws LwM2mJsonException {
+        int i = cursor.next(roots.roots.length);
+        cursor.bytes += corpus.payloads[i].remaining();
+        return corpus.jackson.toJsonLwM2m(roots.roots[i]).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] minimalEncode(Corpus corpus, RootObjects roots, Cursor cursor) throws LwM2mJsonException {
+        int i = cursor.next(roots.roots.length);
+        cursor.bytes += corpus.payloads[i].remaining();
+        return corpus.minimal.toJsonLwM2m(roots.roots[i]).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int streamingEncode(Corpus corpus, RootObjects roots, Cursor cursor, Lwm2mJsonBench.EncodeBuffer b)
+            throws LwM2mJsonException {
+        int i = cursor.next(roots.roots.length);
+        cursor.bytes += corpus.payloads[i].remaining();
+        b.buffer.clear();
+        b.buffer = roots.streamingEncoder.encode(roots.roots[i], b.buffer);
+        return b.buffer.position();
+    }
+}
@@ -0,0 +1,107 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Synthetic LwM2M JSON payloads too large to be kept in the corpus directory, built from a fixed seed so each run
+ * decodes the same bytes.
+ * <p>
+ * "multi-instance-N" is N entries of temperature sensor instances (/3303) with relative times, "timeseries-bn-bt-N" N
+ * one-minute samples of a single resource factored with a base name. {@link #main(String[])} writes them as files, e.g.
+ * to try them with other decoders.
+ */
+public class Lwm2mJsonCorpusGenerator {
+
+    public static final String MULTI_INSTANCE = "multi-instance-";
+    public static final String TIMESERIES = "timeseries-bn-bt-";
+
+    /**
+     * @param name the payload name, a prefix followed by the number of entries
+     * @return the UTF-8 payload
+     */
+    public static byte[] generate(String name) {
+        Random random = new Random(name.hashCode());
+        if (name.startsWith(MULTI_INSTANCE)) {
+            return multiInstance(Integer.parseInt(name.substring(MULTI_INSTANCE.length())), random);
+        } else if (name.startsWith(TIMESERIES)) {
+            return timeseries(Integer.parseInt(name.substring(TIMESERIES.length())), random);
+        }
+        throw new IllegalArgumentException("Unknown generated payload " + name);
+    }
+
+    private static byte[] multiInstance(int entries, Random random) {
+        StringBuilder b = new StringBuilder(entries * 45);
+        b.append("{\"bn\":\"/3303/\",\"e\":[");
+        for (int i = 0; i < entries; i++) {
+            if (i > 0)
+                b.append(',');
+            int instance = i / 10;
+            b.append("{\"n\":\"").append(instance).append('/');
+            switch (i % 10) {
+            case 0:
+                b.append("5700\",\"v\":").append(decimal(random, 0, 40, 1000));
+                break;
+            case 1:
+                b.append("5701\",\"sv\":\"Cel\"");
+                break;
+            case 2:
+            case 3:
+            case 4:
+            case 5:
+                b.append(5601 + i % 10 - 2).append("\",\"v\":").append(decimal(random, 0, 100, 1000));
+                break;
+            case 6:
+                b.append("5605\",\"bv\":").append(random.nextBoolean());
+                break;
+            case 7:
+                b.append("5518\",\"v\":").append(decimal(random, 0, 100, 100));
+                break;
+            default:
+                b.append("5750\",\"sv\":\"sensor ").append(instance).append(" room ").append(random.nextInt(500))
+                        .append('"');
+            }
+            b.append(",\"t\":").append(-random.nextInt(86400)).append('}');
+        }
+        b.append("]}");
+        return b.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] timeseries(int entries, Random random) {
+        StringBuilder b = new StringBuilder(entries * 32);
+        b.append("{\"bn\":\"/3303/0/5700\",\"e\":[");
+        for (int i = 0; i < entries; i++) {
+            if (i > 0)
+                b.append(',');
+            b.append("{\"n\":\"\",\"v\":").append(decimal(random, 15, 30, 100)).append(",\"t\":").append(-60L * i)
+                    .append('}');
+        }
+        b.append("],\"bt\":1600000000}");
+        return b.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static double decimal(Random random, int min, int max, int scale) {
+        return Math.round((min + random.nextDouble() * (max - min)) * scale) / (double) scale;
+    }
+
+    /**
+     * Writes the named payloads as "name.json" files.
+     *
+     * @param args the output directory, then the payload names
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: Lwm2mJsonCorpusGenerator <directory> <name>...");
+            return;
+        }
+        for (int i = 1; i < args.length; i++) {
+            try (OutputStream out = new FileOutputStream(new File(args[0], args[i] + ".json"))) {
+                out.write(generate(args[i]));
+            }
+        }
+    }
+}
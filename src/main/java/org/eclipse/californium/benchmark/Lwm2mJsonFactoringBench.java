@@ -0,0 +1,133 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.json.JsonArrayEntry;
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link LwM2mJsonStreamingEncoder} with and without base name / base time factoring : encoding cost against payload
+ * size ("payloadBytes" counter), and decoding of both payloads.
+ * <p>
+ * Data sets : "big" is the big payload of {@link Lwm2mJsonBench} (its names have no common prefix, only the analysis
+ * cost shows), "absolute" the same entries named with full paths, "resource" the 1000 instances of resource /3/0/7
+ * and "timeseries" 1000 timestamped samples of a temperature sensor with absolute times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Lwm2mJsonFactoringBench {
+
+    @Param({ "big", "absolute", "resource", "timeseries" })
+    public String dataset;
+
+    public Lwm2mJsonBench.MyState lwm2m;
+    public LwM2mJsonStreamingEncoder factoringEncoder;
+
+    public JsonRootObject root;
+    public byte[] bytes;
+    public byte[] factoredBytes;
+
+    @Setup(Level.Trial)
+    public void setup() throws LwM2mJsonException {
+        lwm2m = new Lwm2mJsonBench.MyState();
+        factoringEncoder = new LwM2mJsonStreamingEncoder(lwm2m.pool, true);
+        root = dataset(dataset, lwm2m.bigRootObject);
+        bytes = lwm2m.streamingEncoder.toJsonLwM2m(root);
+        factoredBytes = factoringEncoder.toJsonLwM2m(root);
+        System.out.printf("%n%s: %d bytes, %d bytes factored%n", dataset, bytes.length, factoredBytes.length);
+    }
+
+    /**
+     * @param big the big payload of {@link Lwm2mJsonBench}
+     */
+    static JsonRootObject dataset(String dataset, JsonRootObject big) {
+        List<JsonArrayEntry> entries = new ArrayList<>();
+        if (dataset.equals("big")) {
+            return big;
+        } else if (dataset.equals("absolute")) {
+            for (JsonArrayEntry entry : big.getResourceList()) {
+                entries.add(entry("/3/0/" + entry.getName(), entry.getFloatValue(), entry.getStringValue(), null));
+            }
+            return root(null, entries);
+        } else if (dataset.equals("resource")) {
+            for (JsonArrayEntry entry : big.getResourceList()) {
+                if (entry.getName().startsWith("7/"))
+                    entries.add(entry(entry.getName(), entry.getFloatValue(), null, null));
+            }
+            return root("/3/0/", entries);
+        } else if (dataset.equals("timeseries")) {
+            for (int i = 0; i < 1000; i++) {
+                entries.add(entry("/3303/0/5700", 20 + (i % 50) / 10.0, null, 1600000000L + i * 10));
+            }
+            return root(null, entries);
+        }
+        throw new IllegalArgumentException("Unknown dataset " + dataset);
+    }
+
+    private static JsonRootObject root(String baseName, List<JsonArrayEntry> entries) {
+        JsonRootObject root = new JsonRootObject();
+        root.setBaseName(baseName);
+        root.setResourceList(entries);
+        return root;
+    }
+
+    private static JsonArrayEntry entry(String name, Number value, String stringValue, Long time) {
+        JsonArrayEntry entry = new JsonArrayEntry();
+        entry.setName(name);
+        if (stringValue != null) {
+            entry.setStringValue(stringValue);
+        } else {
+            entry.setFloatValue(value);
+        }
+        entry.setTime(time);
+        return entry;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Size {
+        public long payloadBytes;
+    }
+
+    @Benchmark
+    public int encode(Size size, Lwm2mJsonBench.EncodeBuffer b) throws LwM2mJsonException {
+        b.buffer.clear();
+        b.buffer = lwm2m.streamingEncoder.encode(root, b.buffer);
+        size.payloadBytes = b.buffer.position();
+        return b.buffer.position();
+    }
+
+    @Benchmark
+    public int encodeFactored(Size size, Lwm2mJsonBench.EncodeBuffer b) throws LwM2mJsonException {
+        b.buffer.clear();
+        b.buffer = factoringEncoder.encode(root, b.buffer);
+        size.payloadBytes = b.buffer.position();
+        return b.buffer.position();
+    }
+
+    @Benchmark
+    public JsonRootObject decode(Size size) throws LwM2mJsonException {
+        size.payloadBytes = bytes.length;
+        return lwm2m.streaming.fromJsonLwM2m(bytes);
+    }
+
+    @Benchmark
+    public JsonRootObject decodeFactored(Size size) throws LwM2mJsonException {
+        size.payloadBytes = factoredBytes.length;
+        return lwm2m.streaming.fromJsonLwM2m(factoredBytes);
+    }
+}
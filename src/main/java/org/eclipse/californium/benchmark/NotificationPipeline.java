@@ -0,0 +1,400 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationStore;
+
+/**
+ * Notification processing in four stages : registration lookup, payload decoding ({@link LwM2mJsonStreamingDecoder}),
+ * conversion to {@link LwM2mNode} ({@link LwM2mJsonNodeConverter}) and listener dispatch.
+ * <p>
+ * Each stage runs in its own thread, taking up to maxBatch notifications at once from its bounded input queue. The
+ * lookup stage loads the distinct registrations of a batch with one {@link RegistrationLookup} call (e.g. one Redis
+ * MGET with {@link RedisBulkRegistrationLoader}). A stage blocks when the queue of the next one is full, so a slow
+ * stage eventually blocks {@link #submit(Notification)}; {@link #offer(Notification)} drops the notification instead.
+ * <p>
+ * Notifications of unknown registrations or with invalid payloads are reported to {@link Listener#onError} and
+ * counted as dropped, a failing {@link Listener#onNotification} too. The listener is called from the stage threads.
+ * {@link #close()} processes the submitted notifications before stopping the stages, notifications submitted once it
+ * started are rejected.
+ */
+public class NotificationPipeline implements Closeable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_BATCH = 64;
+
+    public interface Listener {
+
+        void onNotification(Notification notification, Registration registration, LwM2mNode node);
+
+        /**
+         * Must not throw.
+         */
+        void onError(Notification notification, Exception error);
+    }
+
+    /**
+     * Batch registration lookup.
+     */
+    public interface RegistrationLookup {
+
+        /**
+         * @return the registrations by id, unknown ids are absent
+         */
+        Map<String, Registration> getRegistrations(Collection<String> registrationIds);
+    }
+
+    /**
+     * A received notification, filled by the stages.
+     */
+    public static class Notification {
+        private final String registrationId;
+        private final LwM2mPath path;
+        private final byte[] payload;
+        private final long receivedNanos;
+
+        // written by a stage before being handed over to the next one through a queue
+        private Registration registration;
+        private JsonRootObject root;
+        private LwM2mNode node;
+        private boolean failed;
+
+        public Notification(String registrationId, LwM2mPath path, byte[] payload) {
+            this(registrationId, path, payload, System.nanoTime());
+        }
+
+        public Notification(String registrationId, LwM2mPath path, byte[] payload, long receivedNanos) {
+            this.registrationId = registrationId;
+            this.path = path;
+            this.payload = payload;
+            this.receivedNanos = receivedNanos;
+        }
+
+        public String getRegistrationId() {
+            return registrationId;
+        }
+
+        public LwM2mPath getPath() {
+            return path;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+
+        /**
+         * @return the {@link System#nanoTime()} of reception
+         */
+        public long getReceivedNanos() {
+            return receivedNanos;
+        }
+    }
+
+    // end of stream, forwarded by each stage to the next one before it stops
+    private static final Notification STOP = new Notification(null, null, null, 0);
+
+    private final LwM2mJsonStreamingDecoder decoder;
+    private final LwM2mJsonNodeConverter converter;
+    private final Listener listener;
+    private final int maxBatch;
+
+    private final BlockingQueue<Notification> lookupQueue;
+    private final List<Thread> threads = new ArrayList<>();
+    // read locked while submitting, write locked to close, so nothing is queued behind STOP
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedNotifications = new AtomicLong();
+
+    public NotificationPipeline(RegistrationLookup lookup, LwM2mJsonNodeConverter converter, Listener listener) {
+        this(lookup, converter, listener, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH);
+    }
+
+    /**
+     * @param queueCapacity capacity of the input queue of each stage
+     * @param maxBatch maximum number of notifications processed at once by a stage, 1 to disable batching
+     */
+    public NotificationPipeline(final RegistrationLookup lookup, final LwM2mJsonNodeConverter converter,
+            final Listener listener, int queueCapacity, int maxBatch) {
+        if (queueCapacity < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("queue capacity and batch size must be positive");
+        }
+        this.decoder = new LwM2mJsonStreamingDecoder();
+        this.converter = converter;
+        this.listener = listener;
+        this.maxBatch = maxBatch;
+
+        BlockingQueue<Notification> dispatchQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Notification> convertQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Notification> decodeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        lookupQueue = new ArrayBlockingQueue<>(queueCapacity);
+
+        start("lookup", lookupQueue, decodeQueue, new Stage() {
+            @Override
+            public void process(List<Notification> batch) {
+                Set<String> ids = new HashSet<>(batch.size() * 2);
+                for (Notification notification : batch) {
+                    ids.add(notification.registrationId);
+                }
+                Map<String, Registration> registrations = lookup.getRegistrations(ids);
+                for (Notification notification : batch) {
+                    notification.registration = registrations.get(notification.registrationId);
+                    if (notification.registration == null) {
+                        fail(notification, new IllegalStateException(
+                                "Unknown registration " + notification.registrationId));
+                    }
+                }
+            }
+        });
+        start("decode", decodeQueue, convertQueue, new Stage() {
+            @Override
+            public void process(List<Notification> batch) {
+                for (Notification notification : batch) {
+                    if (notification.registration != null) {
+                        try {
+                            notification.root = decoder.fromJsonLwM2m(notification.payload);
+                        } catch (LwM2mJsonException e) {
+                            fail(notification, e);
+                        }
+                    }
+                }
+            }
+        });
+        start("convert", convertQueue, dispatchQueue, new Stage() {
+            @Override
+            public void process(List<Notification> batch) {
+                for (Notification notification : batch) {
+                    if (notification.root != null) {
+                        try {
+                            notification.node = converter.convert(notification.root, notification.path);
+                        } catch (CodecException e) {
+                            fail(notification, e);
+                        }
+                    }
+                }
+            }
+        });
+        start("dispatch", dispatchQueue, null, new Stage() {
+            @Override
+            public void process(List<Notification> batch) {
+                for (Notification notification : batch) {
+                    if (notification.node != null) {
+                        try {
+                            listener.onNotification(notification, notification.registration, notification.node);
+                            processed.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            fail(notification, e);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Blocks while the pipeline is full.
+     *
+     * @throws InterruptedException if interrupted while waiting for space
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public void submit(Notification notification) throws InterruptedException {
+        closeLock.readLock().lock();
+        try {
+            checkNotClosed();
+            lookupQueue.put(notification);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return false if the pipeline is full, the notification is then dropped
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public boolean offer(Notification notification) {
+        closeLock.readLock().lock();
+        try {
+            checkNotClosed();
+            if (lookupQueue.offer(notification))
+                return true;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return the number of notifications dispatched to the listener
+     */
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    /**
+     * @return the number of notifications rejected by {@link #offer(Notification)} or failing in a stage
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the average number of notifications processed at once by a stage
+     */
+    public double getAverageBatchSize() {
+        long b = batches.get();
+        return b == 0 ? 0 : (double) batchedNotifications.get() / b;
+    }
+
+    /**
+     * Process the submitted notifications, then stop the stages.
+     */
+    @Override
+    public void close() {
+        boolean interrupted = false;
+        try {
+            // waits for the blocked submissions, the stages keep draining the queues meanwhile
+            closeLock.writeLock().lock();
+            try {
+                if (!closed) {
+                    closed = true;
+                    lookupQueue.put(STOP);
+                }
+            } finally {
+                closeLock.writeLock().unlock();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("Pipeline closed");
+        }
+    }
+
+    private interface Stage {
+        void process(List<Notification> batch);
+    }
+
+    private void start(String name, final BlockingQueue<Notification> in, final BlockingQueue<Notification> out,
+            final Stage stage) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                List<Notification> batch = new ArrayList<>(maxBatch);
+                try {
+                    boolean stopped = false;
+                    while (!stopped) {
+                        batch.add(in.take());
+                        in.drainTo(batch, maxBatch - 1);
+                        stopped = batch.get(batch.size() - 1) == STOP;
+                        if (stopped) {
+                            batch.remove(batch.size() - 1);
+                        }
+                        batches.incrementAndGet();
+                        batchedNotifications.addAndGet(batch.size());
+                        try {
+                            stage.process(batch);
+                        } catch (RuntimeException e) {
+                            // e.g. store unavailable, the rest of the batch fails
+                            for (Notification notification : batch) {
+                                if (!notification.failed) {
+                                    fail(notification, e);
+                                }
+                            }
+                        }
+                        if (out != null) {
+                            for (Notification notification : batch) {
+                                // failed notifications are not forwarded
+                                if (notification.registration != null) {
+                                    out.put(notification);
+                                }
+                            }
+                            if (stopped) {
+                                out.put(STOP);
+                            }
+                        }
+                        batch.clear();
+                    }
+                } catch (InterruptedException e) {
+                    // closed
+                }
+            }
+        }, "NotificationPipeline-" + name);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+    }
+
+    private void fail(Notification notification, Exception error) {
+        notification.failed = true;
+        notification.registration = null;
+        notification.root = null;
+        notification.node = null;
+        dropped.incrementAndGet();
+        listener.onError(notification, error);
+    }
+
+    /**
+     * @return a lookup calling {@link RegistrationStore#getRegistration(String)} for each id
+     */
+    public static RegistrationLookup lookup(final RegistrationStore store) {
+        return new RegistrationLookup() {
+            @Override
+            public Map<String, Registration> getRegistrations(Collection<String> registrationIds) {
+                Map<String, Registration> registrations = new HashMap<>(registrationIds.size() * 2);
+                for (String id : registrationIds) {
+                    Registration registration = store.getRegistration(id);
+                    if (registration != null) {
+                        registrations.put(id, registration);
+                    }
+                }
+                return registrations;
+            }
+        };
+    }
+
+    /**
+     * @return a lookup loading each batch with MGETs
+     */
+    public static RegistrationLookup lookup(final RedisBulkRegistrationLoader loader) {
+        return new RegistrationLookup() {
+            @Override
+            public Map<String, Registration> getRegistrations(Collection<String> registrationIds) {
+                return loader.getRegistrations(registrationIds);
+            }
+        };
+    }
+}
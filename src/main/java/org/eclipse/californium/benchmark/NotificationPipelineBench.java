@@ -0,0 +1,232 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.node.codec.json.LwM2mNodeJsonDecoder;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.redis.RedisRegistrationStore;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import redis.clients.jedis.JedisPoolConfig;
+
+/**
+ * Bursts of notifications from Zipf distributed devices, through the naive per-message chain (Redis lookup, decode,
+ * node conversion, listener) or through a {@link NotificationPipeline}, with registrations looked up one by one
+ * ("store") or with one MGET per batch ("bulk").
+ * <p>
+ * The "notifications" column is the end-to-end throughput in notifications/s. "p50Micros" and "p99Micros" report the
+ * latency from reception (all notifications of a burst arrive together) to dispatch over the last burst. maxBatch=1
+ * disables batching. The setup checks {@link LwM2mJsonNodeConverter} against Leshan's JSON decoder.
+ */
+public class NotificationPipelineBench {
+
+    private static final LwM2mPath DEVICE = new LwM2mPath(3, 0);
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        @Param({ "1000" })
+        public int population;
+
+        @Param({ "1024" })
+        public int burst;
+
+        @Param({ "1", "64" })
+        public int maxBatch;
+
+        @Param({ "store", "bulk" })
+        public String lookup;
+
+        @Param({ "0" })
+        public double redisRttMillis;
+
+        public BenchmarkRedis redis;
+        public RegistrationStore store;
+        public RedisBulkRegistrationLoader loader;
+        public LwM2mJsonStreamingDecoder decoder = new LwM2mJsonStreamingDecoder();
+        public LwM2mJsonNodeConverter converter;
+        public BurstListener listener = new BurstListener();
+        public NotificationPipeline pipeline;
+        public ZipfDistribution devices;
+        public byte[][] payloads;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException, LwM2mJsonException {
+            LwM2mModel model = new StaticModel(ObjectLoader.loadDefault());
+            converter = new LwM2mJsonNodeConverter(model);
+            // device object notification and a single resource change
+            Lwm2mJsonBench.MyState lwm2m = new Lwm2mJsonBench.MyState();
+            payloads = new byte[][] {
+                    lwm2m.payload.replace("{\"e\":", "{\"bn\":\"/3/0/\",\"e\":").getBytes(StandardCharsets.UTF_8),
+                    "{\"bn\":\"/3/0/\",\"e\":[{\"n\":\"9\",\"v\":87}]}".getBytes(StandardCharsets.UTF_8) };
+            for (byte[] payload : payloads) {
+                check(model, payload, DEVICE, LwM2mObjectInstance.class);
+            }
+            check(model, payloads[1], new LwM2mPath(3, 0, 9), LwM2mResource.class);
+
+            JedisPoolConfig config = new JedisPoolConfig();
+            config.setMaxTotal(64);
+            config.setMaxIdle(64);
+            redis = new BenchmarkRedis(redisRttMillis, config);
+            store = new RedisRegistrationStore(redis.getPool());
+            Link[] links = Link.parse("</1/0>,</1/1>,</3/0>,</44>;ver=2.2,</44/0>".getBytes());
+            for (int i = 0; i < population; i++) {
+                Registration.Builder builder = new Registration.Builder("regid" + i, "endpoint" + i,
+                        Identity.unsecure(new InetSocketAddress("localhost", 4000 + i % 60000)));
+                builder.objectLinks(links);
+                store.addRegistration(builder.build());
+            }
+            devices = new ZipfDistribution(population, 1.2);
+
+            NotificationPipeline.RegistrationLookup registrations;
+            if (lookup.equals("store")) {
+                registrations = NotificationPipeline.lookup(store);
+            } else if (lookup.equals("bulk")) {
+                loader = new RedisBulkRegistrationLoader(redis.getPool(), new JsonRegistrationCodec(),
+                        RedisBulkRegistrationLoader.DEFAULT_BATCH_SIZE, null);
+                registrations = NotificationPipeline.lookup(loader);
+            } else {
+                throw new IllegalArgumentException("Unknown lookup " + lookup);
+            }
+            pipeline = new NotificationPipeline(registrations, converter, listener,
+                    NotificationPipeline.DEFAULT_QUEUE_CAPACITY, maxBatch);
+        }
+
+        /**
+         * @throws IllegalStateException if the converter and Leshan's decoder differ
+         */
+        private void check(LwM2mModel model, byte[] payload, LwM2mPath path, Class<? extends LwM2mNode> nodeClass)
+                throws LwM2mJsonException {
+            LwM2mNode expected = LwM2mNodeJsonDecoder.decode(payload, path, model, nodeClass);
+            LwM2mNode actual = converter.convert(decoder.fromJsonLwM2m(payload), path);
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException(String.format("Conversion of %s on %s failed:%n%s%n%s",
+                        new String(payload, StandardCharsets.UTF_8), path, expected, actual));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pipeline.close();
+            System.out.printf("%nprocessed: %d, dropped: %d, average batch: %.1f%n", pipeline.getProcessedCount(),
+                    pipeline.getDroppedCount(), pipeline.getAverageBatchSize());
+            if (loader != null) {
+                loader.close();
+            }
+            redis.close();
+        }
+
+        public NotificationPipeline.Notification next(long receivedNanos, int i) {
+            return new NotificationPipeline.Notification("regid" + devices.sample(ThreadLocalRandom.current()),
+                    DEVICE, payloads[i % payloads.length], receivedNanos);
+        }
+    }
+
+    /**
+     * Counts down the dispatched notifications of the current burst and keeps their latency.
+     */
+    public static class BurstListener implements NotificationPipeline.Listener {
+        private volatile CountDownLatch remaining;
+        private long[] latencies = new long[0];
+        // written by the dispatching thread only, read once the burst is complete
+        private int count;
+
+        public void start(int burst) {
+            if (latencies.length < burst) {
+                latencies = new long[burst];
+            }
+            count = 0;
+            remaining = new CountDownLatch(burst);
+        }
+
+        @Override
+        public void onNotification(NotificationPipeline.Notification notification, Registration registration,
+                LwM2mNode node) {
+            latencies[count++] = System.nanoTime() - notification.getReceivedNanos();
+            remaining.countDown();
+        }
+
+        @Override
+        public void onError(NotificationPipeline.Notification notification, Exception error) {
+            remaining.countDown();
+        }
+
+        public void await(Latency latency) throws InterruptedException {
+            remaining.await();
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            if (sorted.length > 0) {
+                latency.p50Micros = TimeUnit.NANOSECONDS.toMicros(sorted[sorted.length / 2]);
+                latency.p99Micros = TimeUnit.NANOSECONDS.toMicros(sorted[(int) (sorted.length * 0.99)]);
+            }
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Processed {
+        public long notifications;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Latency {
+        public long p50Micros;
+        public long p99Micros;
+    }
+
+    @Benchmark
+    public void sequential(MyState state, Processed processed, Latency latency)
+            throws LwM2mJsonException, InterruptedException {
+        state.listener.start(state.burst);
+        long received = System.nanoTime();
+        for (int i = 0; i < state.burst; i++) {
+            NotificationPipeline.Notification notification = state.next(received, i);
+            Registration registration = state.store.getRegistration(notification.getRegistrationId());
+            if (registration == null) {
+                state.listener.onError(notification, new IllegalStateException("Unknown registration"));
+                continue;
+            }
+            LwM2mNode node = state.converter.convert(state.decoder.fromJsonLwM2m(notification.getPayload()),
+                    notification.getPath());
+            state.listener.onNotification(notification, registration, node);
+        }
+        state.listener.await(latency);
+        processed.notifications += state.burst;
+    }
+
+    @Benchmark
+    public void pipeline(MyState state, Processed processed, Latency latency) throws InterruptedException {
+        state.listener.start(state.burst);
+        long received = System.nanoTime();
+        for (int i = 0; i < state.burst; i++) {
+            state.pipeline.submit(state.next(received, i));
+        }
+        state.listener.await(latency);
+        processed.notifications += state.burst;
+    }
+}
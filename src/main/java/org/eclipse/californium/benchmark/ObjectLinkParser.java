@@ -0,0 +1,231 @@
+package org.eclipse.californium.benchmark;
+
+/**
+ * Single pass parser for CoRE link-format registration payloads.
+ * <p>
+ * Unlike {@code Link.parse(byte[])} this parser works directly on the raw bytes and does not create any
+ * {@code Link}, {@code String} or {@code Map}: for each link whose url is {@code rootPath + objectId[/instanceId...]}
+ * the {@link Handler} is called with the object id, the instance id and the "ver" attribute packed in an int.
+ * Links which are not object links (e.g. {@code </>;rt="oma.lwm2m"} or non numeric paths) are skipped.
+ */
+public class ObjectLinkParser {
+
+    /** Version value used when the link has no "ver" attribute */
+    public static final int NO_VERSION = -1;
+    /** Version value used when the "ver" attribute is not a valid "major.minor" version */
+    public static final int INVALID_VERSION = -2;
+    /** Instance id used when the link targets the object itself */
+    public static final int NO_INSTANCE = -1;
+
+    private static final byte[] VERSION_KEY = { 'v', 'e', 'r' };
+
+    public interface Handler {
+        /**
+         * Called for each object link found in the payload.
+         *
+         * @param content the parsed payload
+         * @param objectId the object id
+         * @param instanceId the instance id or {@link #NO_INSTANCE}
+         * @param version the packed version (see {@link ObjectLinkParser#major(int)}), {@link #NO_VERSION} or
+         *        {@link #INVALID_VERSION}
+         * @param versionStart index of the raw "ver" value in content (quotes excluded) or -1
+         * @param versionEnd index after the raw "ver" value in content or -1
+         */
+        void objectLink(byte[] content, int objectId, int instanceId, int version, int versionStart, int versionEnd);
+    }
+
+    public static int parse(byte[] content, String rootPath, Handler handler) {
+        return parse(content, 0, content.length, rootPath, handler);
+    }
+
+    /**
+     * Parse the given part of a link-format payload.
+     *
+     * @return the number of object links reported to the handler
+     */
+    public static int parse(byte[] content, int offset, int length, String rootPath, Handler handler) {
+        int end = offset + length;
+        int pos = offset;
+        int count = 0;
+        while (pos < end) {
+            pos = skipSpaces(content, pos, end);
+            if (pos >= end)
+                break;
+            if (content[pos] != '<') {
+                // malformed link, ignore it
+                pos = skipLink(content, pos, end);
+                continue;
+            }
+
+            // url : rootPath + objectId[/instanceId[/...]]
+            int urlStart = pos + 1;
+            int urlEnd = urlStart;
+            while (urlEnd < end && content[urlEnd] != '>')
+                urlEnd++;
+            if (urlEnd >= end)
+                break;
+
+            int objectId = -1;
+            int instanceId = NO_INSTANCE;
+            int p = matchRootPath(content, urlStart, urlEnd, rootPath);
+            if (p >= 0 && p < urlEnd) {
+                // first segment is the object id
+                int segmentIndex = 0;
+                long value = 0;
+                int digits = 0;
+                boolean valid = true;
+                for (; p <= urlEnd && valid; p++) {
+                    byte b = p < urlEnd ? content[p] : (byte) '/';
+                    if (b >= '0' && b <= '9') {
+                        value = value * 10 + (b - '0');
+                        digits++;
+                        valid = value <= Integer.MAX_VALUE;
+                    } else if (b == '/' && digits > 0) {
+                        if (segmentIndex == 0) {
+                            objectId = (int) value;
+                        } else if (segmentIndex == 1) {
+                            instanceId = (int) value;
+                        }
+                        segmentIndex++;
+                        value = 0;
+                        digits = 0;
+                    } else {
+                        // not a digit or empty segment (e.g. "//" or trailing "/")
+                        valid = false;
+                    }
+                }
+                if (!valid) {
+                    objectId = -1;
+                }
+            }
+
+            // attributes
+            pos = urlEnd + 1;
+            int version = NO_VERSION;
+            int versionStart = -1;
+            int versionEnd = -1;
+            while (pos < end && content[pos] == ';') {
+                int keyStart = ++pos;
+                while (pos < end && content[pos] != '=' && content[pos] != ';' && content[pos] != ',')
+                    pos++;
+                int keyEnd = pos;
+                if (pos < end && content[pos] == '=') {
+                    pos++;
+                    int valueStart;
+                    int valueEnd;
+                    if (pos < end && content[pos] == '"') {
+                        valueStart = ++pos;
+                        while (pos < end && content[pos] != '"') {
+                            if (content[pos] == '\\')
+                                pos++;
+                            pos++;
+                        }
+                        valueEnd = Math.min(pos, end);
+                        pos++;
+                    } else {
+                        valueStart = pos;
+                        while (pos < end && content[pos] != ';' && content[pos] != ',')
+                            pos++;
+                        valueEnd = pos;
+                    }
+                    if (equals(content, keyStart, keyEnd, VERSION_KEY)) {
+                        versionStart = valueStart;
+                        versionEnd = valueEnd;
+                        version = parseVersion(content, valueStart, valueEnd);
+                    }
+                }
+            }
+            pos = skipLink(content, pos, end);
+
+            if (objectId >= 0) {
+                handler.objectLink(content, objectId, instanceId, version, versionStart, versionEnd);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Parse a "major.minor" version.
+     *
+     * @return the packed version or {@link #INVALID_VERSION}
+     */
+    public static int parseVersion(byte[] content, int start, int end) {
+        int major = 0;
+        int minor = 0;
+        int dot = -1;
+        for (int i = start; i < end; i++) {
+            byte b = content[i];
+            if (b >= '0' && b <= '9') {
+                if (dot < 0) {
+                    major = major * 10 + (b - '0');
+                } else {
+                    minor = minor * 10 + (b - '0');
+                }
+                if (major > 0xFFFF || minor > 0xFFFF)
+                    return INVALID_VERSION;
+            } else if (b == '.' && dot < 0 && i > start) {
+                dot = i;
+            } else {
+                return INVALID_VERSION;
+            }
+        }
+        if (dot < 0 || dot == end - 1)
+            return INVALID_VERSION;
+        return major << 16 | minor;
+    }
+
+    public static int major(int version) {
+        return version >>> 16;
+    }
+
+    public static int minor(int version) {
+        return version & 0xFFFF;
+    }
+
+    private static int matchRootPath(byte[] content, int start, int end, String rootPath) {
+        int length = rootPath.length();
+        if (end - start < length)
+            return -1;
+        for (int i = 0; i < length; i++) {
+            if (content[start + i] != rootPath.charAt(i))
+                return -1;
+        }
+        return start + length;
+    }
+
+    private static boolean equals(byte[] content, int start, int end, byte[] expected) {
+        if (end - start != expected.length)
+            return false;
+        for (int i = 0; i < expected.length; i++) {
+            if (content[start + i] != expected[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static int skipSpaces(byte[] content, int pos, int end) {
+        while (pos < end && (content[pos] == ' ' || content[pos] == '\n' || content[pos] == '\r'))
+            pos++;
+        return pos;
+    }
+
+    /** Move after the next ',' which is not in a quoted string */
+    private static int skipLink(byte[] content, int pos, int end) {
+        boolean quoted = false;
+        while (pos < end) {
+            byte b = content[pos++];
+            if (quoted) {
+                if (b == '\\')
+                    pos++;
+                else if (b == '"')
+                    quoted = false;
+            } else if (b == '"') {
+                quoted = true;
+            } else if (b == ',') {
+                break;
+            }
+        }
+        return pos;
+    }
+}
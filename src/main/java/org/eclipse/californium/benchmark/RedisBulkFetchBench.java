@@ -0,0 +1,124 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.redis.RedisRegistrationStore;
+import org.eclipse.leshan.server.registration.Registration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import redis.clients.jedis.JedisPoolConfig;
+
+/**
+ * Loading many registrations from Redis : one getRegistration per id against {@link RedisBulkRegistrationLoader}, and
+ * RedisRegistrationStore.getAllRegistrations() against the bulk iteration. The store holds exactly "registrations"
+ * clients, all of them are loaded by each operation (ids in random order).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RedisBulkFetchBench {
+
+    @Param({ "100", "1000", "10000" })
+    public int registrations;
+
+    @Param({ "0", "0.2" })
+    public double redisRttMillis;
+
+    @Param({ "256" })
+    public int batchSize;
+
+    public BenchmarkRedis redis;
+    public RedisRegistrationStore store;
+    public RedisBulkRegistrationLoader loader;
+    public List<String> ids;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        JedisPoolConfig config = new JedisPoolConfig();
+        config.setMaxTotal(64);
+        config.setMaxIdle(64);
+        redis = new BenchmarkRedis(redisRttMillis, config);
+        store = new RedisRegistrationStore(redis.getPool());
+        loader = new RedisBulkRegistrationLoader(redis.getPool(), new JsonRegistrationCodec(), batchSize, null);
+
+        // populated without the simulated latency
+        EmbeddedRedisServer server = redis.getServer();
+        if (server != null) {
+            server.setLatency(0, TimeUnit.NANOSECONDS);
+        }
+        Link[] links = Link.parse("</1/0>,</1/1>,</3/0>,</44>;ver=2.2,</44/0>".getBytes());
+        ids = new ArrayList<>(registrations);
+        for (int i = 0; i < registrations; i++) {
+            Registration.Builder builder = new Registration.Builder("regid" + i, "endpoint" + i,
+                    Identity.unsecure(new InetSocketAddress("localhost", 4000 + i % 60000)));
+            builder.objectLinks(links);
+            store.addRegistration(builder.build());
+            ids.add("regid" + i);
+        }
+        Collections.shuffle(ids, new Random(1));
+        if (server != null) {
+            server.setLatency((long) (redisRttMillis * 1_000_000), TimeUnit.NANOSECONDS);
+        }
+
+        if (loader.getRegistrations(ids).size() != registrations
+                || loader.getAllRegistrations().size() != registrations) {
+            throw new IllegalStateException("Bulk loader does not find all the registrations");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        loader.close();
+        redis.close();
+    }
+
+    @Benchmark
+    public int sequentialGetRegistration() {
+        int found = 0;
+        for (String id : ids) {
+            if (store.getRegistration(id) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public Map<String, Registration> bulkGetRegistrations() {
+        return loader.getRegistrations(ids);
+    }
+
+    @Benchmark
+    public int storeGetAllRegistrations() {
+        int count = 0;
+        for (Iterator<Registration> it = store.getAllRegistrations(); it.hasNext();) {
+            it.next();
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public List<Registration> bulkGetAllRegistrations() {
+        return loader.getAllRegistrations();
+    }
+}
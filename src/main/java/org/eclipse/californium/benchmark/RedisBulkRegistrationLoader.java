@@ -0,0 +1,216 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.leshan.server.registration.Registration;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Bulk reads of the registrations stored by {@code RedisRegistrationStore}, using its key layout.
+ * <p>
+ * Registrations are loaded by batches, each batch is a task fetching its keys with MGET on its own connection then
+ * deserializing them, so round trips and deserialization of several batches run in parallel. By ids, a batch costs two
+ * round trips (ids to endpoints, then endpoints to registrations) whatever its size. Iterating over all registrations,
+ * the calling thread SCANs the keys while the previous pages are fetched and deserialized.
+ * <p>
+ * The connection pool should allow one connection per executor thread, plus one for the SCAN.
+ */
+public class RedisBulkRegistrationLoader implements Closeable {
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    // RedisRegistrationStore keys
+    private static final String REG_EP = "REG:EP:";
+    private static final String REG_EP_REGID_IDX = "EP:REGID:";
+
+    private final JedisPool pool;
+    private final RegistrationCodec codec;
+    private final int batchSize;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+
+    /**
+     * Loads registrations serialized by RedisRegistrationStore, using one thread per processor.
+     */
+    public RedisBulkRegistrationLoader(JedisPool pool) {
+        this(pool, new JsonRegistrationCodec(), DEFAULT_BATCH_SIZE, null);
+    }
+
+    /**
+     * @param executor runs the batches, if null a fixed pool with one thread per processor is created and shut down on
+     *        {@link #close()}
+     */
+    public RedisBulkRegistrationLoader(JedisPool pool, RegistrationCodec codec, int batchSize,
+            ExecutorService executor) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be positive");
+        }
+        this.pool = pool;
+        this.codec = codec;
+        this.batchSize = batchSize;
+        this.ownExecutor = executor == null;
+        this.executor = executor != null ? executor
+                : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "RedisBulkRegistrationLoader");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * @return the registrations by id, unknown ids are absent
+     */
+    public Map<String, Registration> getRegistrations(Collection<String> registrationIds) {
+        List<Future<List<Registration>>> batches = new ArrayList<>(registrationIds.size() / batchSize + 1);
+        Iterator<String> ids = registrationIds.iterator();
+        while (ids.hasNext()) {
+            final List<String> batch = new ArrayList<>(batchSize);
+            while (ids.hasNext() && batch.size() < batchSize) {
+                batch.add(ids.next());
+            }
+            batches.add(executor.submit(new Callable<List<Registration>>() {
+                @Override
+                public List<Registration> call() {
+                    return loadByIds(batch);
+                }
+            }));
+        }
+        Map<String, Registration> registrations = new HashMap<>(registrationIds.size() * 2);
+        for (Future<List<Registration>> batch : batches) {
+            for (Registration registration : get(batch)) {
+                registrations.put(registration.getId(), registration);
+            }
+        }
+        return registrations;
+    }
+
+    public List<Registration> getAllRegistrations() {
+        List<Future<List<Registration>>> batches = new ArrayList<>();
+        try (Jedis j = pool.getResource()) {
+            ScanParams params = new ScanParams().match(REG_EP + "*").count(batchSize);
+            byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+            do {
+                ScanResult<byte[]> page = j.scan(cursor, params);
+                final List<byte[]> keys = page.getResult();
+                if (!keys.isEmpty()) {
+                    batches.add(executor.submit(new Callable<List<Registration>>() {
+                        @Override
+                        public List<Registration> call() {
+                            return loadByKeys(keys);
+                        }
+                    }));
+                }
+                cursor = page.getCursorAsBytes();
+            } while (!isStart(cursor));
+        }
+        List<Registration> registrations = new ArrayList<>(batches.size() * batchSize);
+        for (Future<List<Registration>> batch : batches) {
+            registrations.addAll(get(batch));
+        }
+        return registrations;
+    }
+
+    @Override
+    public void close() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private List<Registration> loadByIds(List<String> ids) {
+        byte[][] idKeys = new byte[ids.size()][];
+        for (int i = 0; i < idKeys.length; i++) {
+            idKeys[i] = (REG_EP_REGID_IDX + ids.get(i)).getBytes(StandardCharsets.UTF_8);
+        }
+        List<byte[]> endpoints;
+        try (Jedis j = pool.getResource()) {
+            endpoints = j.mget(idKeys);
+        }
+        Set<String> found = new HashSet<>(ids.size() * 2);
+        List<byte[]> keys = new ArrayList<>(ids.size());
+        for (int i = 0; i < idKeys.length; i++) {
+            byte[] endpoint = endpoints.get(i);
+            if (endpoint != null) {
+                found.add(ids.get(i));
+                keys.add(key(REG_EP, endpoint));
+            }
+        }
+        List<Registration> registrations = loadByKeys(keys);
+        // the endpoint may have registered again with another id between the two reads
+        for (Iterator<Registration> it = registrations.iterator(); it.hasNext();) {
+            Registration registration = it.next();
+            if (!found.contains(registration.getId())) {
+                it.remove();
+            }
+        }
+        return registrations;
+    }
+
+    private List<Registration> loadByKeys(List<byte[]> keys) {
+        List<Registration> registrations = new ArrayList<>(keys.size());
+        if (keys.isEmpty()) {
+            return registrations;
+        }
+        List<byte[]> values;
+        try (Jedis j = pool.getResource()) {
+            values = j.mget(keys.toArray(new byte[keys.size()][]));
+        }
+        // deserialized once the connection is back in the pool
+        for (byte[] value : values) {
+            // removed meanwhile
+            if (value != null) {
+                registrations.add(codec.deserialize(value));
+            }
+        }
+        return registrations;
+    }
+
+    private static byte[] key(String prefix, byte[] suffix) {
+        byte[] p = prefix.getBytes(StandardCharsets.UTF_8);
+        byte[] key = new byte[p.length + suffix.length];
+        System.arraycopy(p, 0, key, 0, p.length);
+        System.arraycopy(suffix, 0, key, p.length, suffix.length);
+        return key;
+    }
+
+    private static boolean isStart(byte[] cursor) {
+        return cursor.length == 1 && cursor[0] == '0';
+    }
+
+    private static List<Registration> get(Future<List<Registration>> batch) {
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("Interrupted while loading registrations", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JedisException("Unable to load registrations", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.UUID;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * {@link InvalidationChannel} using Redis pub/sub. Messages are "nodeId:registrationId", a node ignores its own
+ * messages.
+ */
+public class RedisInvalidationChannel implements InvalidationChannel {
+
+    public static final String DEFAULT_CHANNEL = "REG:INVALIDATION";
+    private static final long RECONNECT_DELAY = 1000;
+
+    private final JedisPool pool;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final String prefix = nodeId + ":";
+
+    private volatile Listener listener;
+    private volatile boolean running;
+    private Thread thread;
+
+    private final JedisPubSub subscriber = new JedisPubSub() {
+        @Override
+        public void onMessage(String channel, String message) {
+            Listener l = listener;
+            if (l != null && !message.startsWith(prefix)) {
+                int separator = message.indexOf(':');
+                l.invalidated(message.substring(separator + 1));
+            }
+        }
+    };
+
+    public RedisInvalidationChannel(JedisPool pool) {
+        this(pool, DEFAULT_CHANNEL);
+    }
+
+    public RedisInvalidationChannel(JedisPool pool, String channel) {
+        this.pool = pool;
+        this.channel = channel;
+    }
+
+    @Override
+    public void publish(String registrationId) {
+        try (Jedis j = pool.getResource()) {
+            j.publish(channel, prefix + registrationId);
+        }
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (running)
+            return;
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean reconnection = false;
+                while (running) {
+                    try (Jedis j = pool.getResource()) {
+                        if (reconnection) {
+                            // we may have missed some messages
+                            Listener l = listener;
+                            if (l != null)
+                                l.invalidatedAll();
+                        }
+                        // blocks until unsubscribe
+                        j.subscribe(subscriber, channel);
+                    } catch (JedisException e) {
+                        if (running) {
+                            try {
+                                Thread.sleep(RECONNECT_DELAY);
+                            } catch (InterruptedException ie) {
+                                return;
+                            }
+                        }
+                    }
+                    reconnection = true;
+                }
+            }
+        }, "RedisInvalidationChannel");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (!running)
+            return;
+        running = false;
+        if (subscriber.isSubscribed()) {
+            subscriber.unsubscribe();
+        }
+        thread.join(RECONNECT_DELAY * 2);
+        thread = null;
+    }
+}
@@ -0,0 +1,100 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.redis.RedisRegistrationStore;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import redis.clients.jedis.JedisPool;
+
+/**
+ * Cached vs uncached getRegistration under a Zipf access pattern. Use "-bm sample" to get latency percentiles.
+ */
+public class RegistrationCacheBench {
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        @Param({ "10000" })
+        public int population;
+
+        @Param({ "1000" })
+        public int cacheSize;
+
+        @Param({ "0.8", "1.2" })
+        public double skew;
+
+        @Param({ "0" })
+        public double redisRttMillis;
+
+        public BenchmarkRedis redis;
+        public JedisPool j;
+        public RegistrationStore store;
+        public CachingRegistrationStore cachingStore;
+        public ZipfDistribution keys;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            redis = new BenchmarkRedis(redisRttMillis);
+            j = redis.getPool();
+            store = new RedisRegistrationStore(j);
+            cachingStore = new CachingRegistrationStore(store, cacheSize);
+            Link[] links = Link.parse("</1/0>,</1/1>,</3/0>,</44>;ver=2.2,</44/0>".getBytes());
+            for (int i = 0; i < population; i++) {
+                Registration.Builder builder = new Registration.Builder("regid" + i, "endpoint" + i,
+                        Identity.unsecure(new InetSocketAddress("localhost", 4000 + i % 60000)));
+                builder.objectLinks(links);
+                store.addRegistration(builder.build());
+            }
+            keys = new ZipfDistribution(population, skew);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.out.printf("%nhit rate: %.3f, evictions: %d, average load time: %.0f ns%n",
+                    cachingStore.getHitRate(), cachingStore.getEvictionCount(), cachingStore.getAverageLoadTime());
+            redis.close();
+        }
+    }
+
+    /**
+     * Per operation hit/miss, only accurate with one benchmark thread (store totals are printed at tear down).
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long hits;
+        public long misses;
+    }
+
+    @Benchmark
+    public Registration uncached_getRegistration(MyState state) {
+        return state.store.getRegistration("regid" + state.keys.sample(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public Registration cached_getRegistration(MyState state, Counters counters) {
+        long misses = state.cachingStore.getMissCount();
+        Registration registration = state.cachingStore
+                .getRegistration("regid" + state.keys.sample(ThreadLocalRandom.current()));
+        if (state.cachingStore.getMissCount() == misses) {
+            counters.hits++;
+        } else {
+            counters.misses++;
+        }
+        return registration;
+    }
+}
@@ -0,0 +1,13 @@
+package org.eclipse.californium.benchmark;
+
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Serialize/Deserialize a {@link Registration} in the form stored in Redis.
+ */
+public interface RegistrationCodec {
+
+    byte[] serialize(Registration registration);
+
+    Registration deserialize(byte[] data);
+}
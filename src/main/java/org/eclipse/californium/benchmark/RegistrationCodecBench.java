@@ -0,0 +1,107 @@
+package org.eclipse.californium.benchmark;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.redis.serialization.RegistrationSerDes;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.Registration.Builder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compare the JSON format of {@code RedisRegistrationStore} with {@link BinaryRegistrationCodec} for the 1000 links
+ * registration of {@link LinkFormatParsing}. The "storedBytes" counter reports the size of the serialized value,
+ * set by a single thread as JMH sums the counters of all threads. The round trip is checked by
+ * {@code BinaryRegistrationCodecTest}.
+ */
+public class RegistrationCodecBench {
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        public Registration reg_long;
+        public String regser;
+        public byte[] regjson;
+        public byte[] regbin;
+        public RegistrationCodec json = new JsonRegistrationCodec();
+        public RegistrationCodec binary = new BinaryRegistrationCodec();
+        // the thread reporting the stored size
+        public AtomicBoolean sizeReporter = new AtomicBoolean();
+
+        public MyState() {
+            Builder builder = new Registration.Builder("regid_long", "endpoint2",
+                    Identity.unsecure(new InetSocketAddress("localhost", 4000)));
+            Link[] links = new Link[1000];
+            for (int i = 0; i < links.length; i++) {
+                HashMap<String, String> attr = new HashMap<>();
+                attr.put("ver", "2.1");
+                links[i] = new Link("/" + i + "/0", attr);
+            }
+            builder.objectLinks(links);
+            reg_long = builder.build();
+
+            regser = RegistrationSerDes.sSerialize(reg_long);
+            regjson = json.serialize(reg_long);
+            regbin = binary.serialize(reg_long);
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Size {
+        private boolean reporter;
+
+        public long storedBytes;
+
+        @Setup(Level.Trial)
+        public void setup(MyState state) {
+            reporter = state.sizeReporter.compareAndSet(false, true);
+        }
+
+        void report(long bytes) {
+            if (reporter) {
+                storedBytes = bytes;
+            }
+        }
+    }
+
+    @Benchmark
+    public String json_serialize(MyState state, Size size) {
+        String s = RegistrationSerDes.sSerialize(state.reg_long);
+        size.report(state.regjson.length);
+        return s;
+    }
+
+    @Benchmark
+    public Registration json_deserialize(MyState state, Size size) {
+        size.report(state.regjson.length);
+        return RegistrationSerDes.deserialize(state.regjson);
+    }
+
+    @Benchmark
+    public Registration json_deserialize_repo(MyState state, Size size) {
+        size.report(state.regjson.length);
+        return LinkFormatParsing.deserialize(state.regser);
+    }
+
+    @Benchmark
+    public byte[] binary_serialize(MyState state, Size size) {
+        byte[] b = state.binary.serialize(state.reg_long);
+        size.report(b.length);
+        return b;
+    }
+
+    @Benchmark
+    public Registration binary_deserialize(MyState state, Size size) {
+        size.report(state.regbin.length);
+        return state.binary.deserialize(state.regbin);
+    }
+}
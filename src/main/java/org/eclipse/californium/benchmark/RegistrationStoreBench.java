@@ -0,0 +1,86 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.redis.RedisRegistrationStore;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.UpdatedRegistration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * RedisRegistrationStore throughput/latency against the embedded Redis at several simulated round trip times. Use
+ * "-bm sample" to get latency percentiles.
+ */
+public class RegistrationStoreBench {
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        @Param({ "0", "0.2", "1" })
+        public double redisRttMillis;
+
+        @Param({ "1000" })
+        public int population;
+
+        public BenchmarkRedis redis;
+        public RedisRegistrationStore store;
+        public Link[] links;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            redis = new BenchmarkRedis(redisRttMillis);
+            store = new RedisRegistrationStore(redis.getPool());
+            links = Link.parse("</1/0>,</1/1>,</3/0>,</44>;ver=2.2,</44/0>".getBytes());
+            for (int i = 0; i < population; i++) {
+                store.addRegistration(newRegistration(i));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            redis.close();
+        }
+
+        public Registration newRegistration(int i) {
+            Registration.Builder builder = new Registration.Builder("regid" + i, "endpoint" + i,
+                    Identity.unsecure(new InetSocketAddress("localhost", 4000 + i % 60000)));
+            builder.objectLinks(links);
+            return builder.build();
+        }
+    }
+
+    @Benchmark
+    public Registration getRegistration(MyState state) {
+        return state.store.getRegistration("regid" + ThreadLocalRandom.current().nextInt(state.population));
+    }
+
+    @Benchmark
+    public Registration getRegistrationByEndpoint(MyState state) {
+        return state.store.getRegistrationByEndpoint("endpoint" + ThreadLocalRandom.current().nextInt(state.population));
+    }
+
+    @Benchmark
+    public UpdatedRegistration updateRegistration(MyState state) {
+        int i = ThreadLocalRandom.current().nextInt(state.population);
+        return state.store.updateRegistration(new RegistrationUpdate("regid" + i,
+                Identity.unsecure(new InetSocketAddress("localhost", 4000 + i % 60000)), null, null, null, null,
+                null));
+    }
+
+    @Benchmark
+    public Object addRegistration(MyState state) {
+        // replaces an existing registration : same endpoint, same id
+        return state.store.addRegistration(state.newRegistration(ThreadLocalRandom.current().nextInt(state.population)));
+    }
+}
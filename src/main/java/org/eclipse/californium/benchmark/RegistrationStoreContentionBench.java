@@ -0,0 +1,165 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.californium.registration.InMemoryRegistrationStore;
+import org.eclipse.leshan.server.redis.RedisRegistrationStore;
+import org.eclipse.leshan.server.registration.Deregistration;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.UpdatedRegistration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import redis.clients.jedis.JedisPoolConfig;
+
+/**
+ * Concurrent lookups, updates and re-registrations against the in-memory and Redis registration stores.
+ * <p>
+ * "mixed" does readPercent lookups and updates for the others, scale it with "-t 1,2,4,8". The groups run dedicated
+ * reader and writer threads (3 to 1) and report each side separately. Use "-bm sample" to get latency percentiles and
+ * "-p population=1000000" for a million devices (in-memory, a real Redis is advised beyond that).
+ */
+public class RegistrationStoreContentionBench {
+
+    @State(Scope.Benchmark)
+    public static class Stores {
+
+        @Param({ "memory", "redis" })
+        public String store;
+
+        @Param({ "1000", "100000" })
+        public int population;
+
+        @Param({ "90" })
+        public int readPercent;
+
+        @Param({ "0" })
+        public double redisRttMillis;
+
+        public BenchmarkRedis redis;
+        public RegistrationStore registrationStore;
+        public Link[] links;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException, InterruptedException {
+            links = Link.parse("</1/0>,</1/1>,</3/0>,</44>;ver=2.2,</44/0>".getBytes());
+            if (store.equals("memory")) {
+                registrationStore = new InMemoryRegistrationStore();
+            } else if (store.equals("redis")) {
+                // enough connections to not measure the pool
+                JedisPoolConfig config = new JedisPoolConfig();
+                config.setMaxTotal(256);
+                config.setMaxIdle(256);
+                redis = new BenchmarkRedis(redisRttMillis, config);
+                registrationStore = new RedisRegistrationStore(redis.getPool());
+            } else {
+                throw new IllegalArgumentException("Unknown store " + store);
+            }
+            populate();
+        }
+
+        private void populate() throws InterruptedException {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            final int chunk = (population + 7) / 8;
+            for (int t = 0; t < 8; t++) {
+                final int from = t * chunk;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = from; i < Math.min(from + chunk, population); i++) {
+                            registrationStore.addRegistration(newRegistration(i));
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (registrationStore instanceof InMemoryRegistrationStore) {
+                ((InMemoryRegistrationStore) registrationStore).destroy();
+            }
+            if (redis != null) {
+                redis.close();
+            }
+        }
+
+        public int randomClient() {
+            return ThreadLocalRandom.current().nextInt(population);
+        }
+
+        public Registration newRegistration(int i) {
+            Registration.Builder builder = new Registration.Builder("regid" + i, "endpoint" + i, identity(i));
+            builder.objectLinks(links);
+            return builder.build();
+        }
+
+        public RegistrationUpdate newUpdate(int i) {
+            return new RegistrationUpdate("regid" + i, identity(i), null, null, null, null, null);
+        }
+
+        private static Identity identity(int i) {
+            return Identity.unsecure(new InetSocketAddress("localhost", 4000 + i % 60000));
+        }
+    }
+
+    @Benchmark
+    public Object mixed(Stores s) {
+        int i = s.randomClient();
+        if (ThreadLocalRandom.current().nextInt(100) < s.readPercent) {
+            return s.registrationStore.getRegistration("regid" + i);
+        }
+        return s.registrationStore.updateRegistration(s.newUpdate(i));
+    }
+
+    @Benchmark
+    @Group("update")
+    @GroupThreads(3)
+    public Registration update_lookup(Stores s) {
+        return s.registrationStore.getRegistration("regid" + s.randomClient());
+    }
+
+    @Benchmark
+    @Group("update")
+    @GroupThreads(1)
+    public UpdatedRegistration update_write(Stores s) {
+        return s.registrationStore.updateRegistration(s.newUpdate(s.randomClient()));
+    }
+
+    @Benchmark
+    @Group("register")
+    @GroupThreads(3)
+    public Registration register_lookupByEndpoint(Stores s) {
+        return s.registrationStore.getRegistrationByEndpoint("endpoint" + s.randomClient());
+    }
+
+    /**
+     * Deregister then register again, so the population does not change.
+     */
+    @Benchmark
+    @Group("register")
+    @GroupThreads(1)
+    public Deregistration register_write(Stores s) {
+        int i = s.randomClient();
+        s.registrationStore.removeRegistration("regid" + i);
+        return s.registrationStore.addRegistration(s.newRegistration(i));
+    }
+}
@@ -0,0 +1,551 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.MessageObserverAdapter;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.util.DaemonThreadFactory;
+import org.eclipse.leshan.core.Link;
+
+/**
+ * Registration storm against a LwM2M server over loopback UDP : simulated clients register, update and deregister with
+ * plain Californium requests, new client lifecycles starting at an offered registration rate.
+ * <p>
+ * A lifecycle is a registration (POST /rd with the object links), updates (POST /rd/{id}), each one sent
+ * updateIntervalMillis after the previous response, then a deregistration (DELETE /rd/{id}). It starts on an idle
+ * client, or is rejected when all clients are busy or maxInFlight requests are pending, and ends at its first failure.
+ * Requests still unanswered after the CoAP retransmissions time out, which is how an overloaded server drops them (full
+ * socket buffer or exchange queue). Latencies are measured from the first transmission to the response, so they
+ * include the retransmissions.
+ * <p>
+ * The clients are spread over a few UDP sockets, one {@link CoapEndpoint} each, sharing executors. One run at a time.
+ */
+public class RegistrationStorm implements Closeable {
+
+    public static final int DEFAULT_SOCKETS = 64;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 10_000;
+    public static final int DEFAULT_MAX_SAMPLES = 1 << 20;
+    /**
+     * Time given to the last lifecycles beyond their longest duration, e.g. for a saturated executor.
+     */
+    public static final long GRACE_MILLIS = 5000;
+
+    /**
+     * Outcome of a run.
+     */
+    public static class Result {
+        private final long elapsedNanos;
+        private final long offered;
+        private final long registrations;
+        private final long updates;
+        private final long deregistrations;
+        private final long rejected;
+        private final long timeouts;
+        private final long errors;
+        private final long missing;
+        private final long retransmissions;
+        private final long[] registrationLatencies;
+        private final long[] latencies;
+
+        private Result(long elapsedNanos, long offered, long registrations, long updates, long deregistrations,
+                long rejected, long timeouts, long errors, long missing, long retransmissions,
+                long[] registrationLatencies, long[] latencies) {
+            this.elapsedNanos = elapsedNanos;
+            this.offered = offered;
+            this.registrations = registrations;
+            this.updates = updates;
+            this.deregistrations = deregistrations;
+            this.rejected = rejected;
+            this.timeouts = timeouts;
+            this.errors = errors;
+            this.missing = missing;
+            this.retransmissions = retransmissions;
+            this.registrationLatencies = registrationLatencies;
+            this.latencies = latencies;
+        }
+
+        /**
+         * @return the time from the first registration to the end of the last lifecycle
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return the number of lifecycles the rate called for
+         */
+        public long getOffered() {
+            return offered;
+        }
+
+        /**
+         * @return the number of successful registrations
+         */
+        public long getRegistrations() {
+            return registrations;
+        }
+
+        public long getUpdates() {
+            return updates;
+        }
+
+        public long getDeregistrations() {
+            return deregistrations;
+        }
+
+        /**
+         * @return the number of lifecycles not started, all clients being busy or too many requests pending
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return the number of requests without response after the retransmissions
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /**
+         * @return the number of requests with an unexpected response code or failing to be sent
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return the number of lifecycles without outcome at the end of the run : not started or still waiting for
+         *         a response, which the request timeout should have prevented
+         */
+        public long getMissing() {
+            return missing;
+        }
+
+        /**
+         * @return the number of lifecycles not completed : rejected, timed out, failed or missing
+         */
+        public long getDropped() {
+            return rejected + timeouts + errors + missing;
+        }
+
+        public long getRetransmissions() {
+            return retransmissions;
+        }
+
+        public double getRegistrationsPerSecond() {
+            return elapsedNanos == 0 ? 0 : registrations * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return the registration latency percentile in nanoseconds, 0 without registration
+         */
+        public long getRegistrationLatency(double percentile) {
+            return percentile(registrationLatencies, percentile);
+        }
+
+        /**
+         * @return the latency percentile of all requests in nanoseconds, 0 without response
+         */
+        public long getLatency(double percentile) {
+            return percentile(latencies, percentile);
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0)
+                return 0;
+            return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile / 100))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%.0f registrations/s, offered: %d, registrations: %d, updates: %d, deregistrations: %d, "
+                            + "rejected: %d, timeouts: %d, errors: %d, missing: %d, retransmissions: %d, "
+                            + "registration latency p50/p99: %d/%d us, latency p50/p99/max: %d/%d/%d us",
+                    getRegistrationsPerSecond(), offered, registrations, updates, deregistrations, rejected,
+                    timeouts, errors, missing, retransmissions, getRegistrationLatency(50) / 1000,
+                    getRegistrationLatency(99) / 1000, getLatency(50) / 1000, getLatency(99) / 1000,
+                    getLatency(100) / 1000);
+        }
+    }
+
+    /**
+     * Latencies of a run, beyond the capacity they are not kept.
+     */
+    private static class Latencies {
+        private final long[] values;
+        private final AtomicInteger count = new AtomicInteger();
+
+        Latencies(int capacity) {
+            values = new long[capacity];
+        }
+
+        void add(long nanos) {
+            int i = count.getAndIncrement();
+            if (i < values.length) {
+                values[i] = nanos;
+            }
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(values, Math.min(values.length, count.get()));
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        void clear() {
+            count.set(0);
+        }
+    }
+
+    private class Client {
+        private final String endpoint;
+        private final CoapEndpoint coap;
+        private final AtomicBoolean busy = new AtomicBoolean();
+        // written before each request, read in its response callback
+        private volatile String location;
+        private volatile int remainingUpdates;
+
+        Client(String endpoint, CoapEndpoint coap) {
+            this.endpoint = endpoint;
+            this.coap = coap;
+        }
+    }
+
+    private enum Kind {
+        REGISTER(ResponseCode.CREATED), UPDATE(ResponseCode.CHANGED), DEREGISTER(ResponseCode.DELETED);
+
+        private final ResponseCode expected;
+
+        Kind(ResponseCode expected) {
+            this.expected = expected;
+        }
+    }
+
+    private final AddressEndpointContext server;
+    private final byte[] objectLinks;
+    private final int maxInFlight;
+    private final long requestTimeoutMillis;
+    private final ScheduledExecutorService executor;
+    private final ScheduledExecutorService secondaryExecutor;
+    private final List<CoapEndpoint> endpoints = new ArrayList<>();
+    private final Client[] clients;
+
+    // current run, the callbacks of the lifecycles left over by a previous run are ignored
+    private volatile int generation;
+    private volatile int updates;
+    private volatile long updateIntervalMillis;
+    private int nextClient;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger activeLifecycles = new AtomicInteger();
+    private final AtomicLong lastCompletion = new AtomicLong();
+    private final AtomicLong registrations = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong deregistrations = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong retransmissions = new AtomicLong();
+    private final Latencies registrationLatencies;
+    private final Latencies latencies;
+
+    public RegistrationStorm(InetSocketAddress server, int clients, Link[] objectLinks) throws IOException {
+        this(server, clients, DEFAULT_SOCKETS, objectLinks, DEFAULT_MAX_IN_FLIGHT, clientConfig(2000, 1),
+                DEFAULT_MAX_SAMPLES);
+    }
+
+    /**
+     * @param sockets number of client UDP sockets, at most clients
+     * @param maxInFlight maximum number of pending requests before new lifecycles are rejected
+     * @param config the client configuration, its ACK_TIMEOUT and MAX_RETRANSMIT give the request timeout
+     * @param maxSamples maximum number of latencies kept per run
+     * @throws IOException if a client endpoint cannot be started
+     */
+    public RegistrationStorm(InetSocketAddress server, int clients, int sockets, Link[] objectLinks, int maxInFlight,
+            NetworkConfig config, int maxSamples) throws IOException {
+        if (clients < 1 || sockets < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("clients, sockets and maxInFlight must be positive");
+        }
+        this.server = new AddressEndpointContext(server);
+        this.objectLinks = Link.serialize(objectLinks).getBytes(StandardCharsets.UTF_8);
+        this.maxInFlight = maxInFlight;
+        this.requestTimeoutMillis = (long) (config.getInt(NetworkConfig.Keys.ACK_TIMEOUT)
+                * config.getFloat(NetworkConfig.Keys.ACK_RANDOM_FACTOR)
+                * ((1L << (config.getInt(NetworkConfig.Keys.MAX_RETRANSMIT) + 1)) - 1));
+        this.registrationLatencies = new Latencies(maxSamples);
+        this.latencies = new Latencies(maxSamples);
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ScheduledThreadPoolExecutor main = new ScheduledThreadPoolExecutor(threads,
+                new DaemonThreadFactory("RegistrationStorm#"));
+        main.setRemoveOnCancelPolicy(true);
+        executor = main;
+        secondaryExecutor = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("RegistrationStorm-timer#"));
+
+        try {
+            for (int i = 0; i < Math.min(sockets, clients); i++) {
+                CoapEndpoint endpoint = new CoapEndpoint.Builder()
+                        .setInetSocketAddress(new InetSocketAddress(server.getAddress(), 0)).setNetworkConfig(config)
+                        .build();
+                endpoint.setExecutors(executor, secondaryExecutor);
+                endpoints.add(endpoint);
+                endpoint.start();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        this.clients = new Client[clients];
+        for (int i = 0; i < clients; i++) {
+            this.clients[i] = new Client("storm-" + i, endpoints.get(i % endpoints.size()));
+        }
+    }
+
+    /**
+     * @return a client configuration with a fixed ACK_TIMEOUT, requests time out after ackTimeoutMillis * (2 ^
+     *         (maxRetransmit + 1) - 1)
+     */
+    public static NetworkConfig clientConfig(int ackTimeoutMillis, int maxRetransmit) {
+        NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+        config.setInt(NetworkConfig.Keys.ACK_TIMEOUT, ackTimeoutMillis);
+        config.setFloat(NetworkConfig.Keys.ACK_RANDOM_FACTOR, 1f);
+        config.setInt(NetworkConfig.Keys.MAX_RETRANSMIT, maxRetransmit);
+        return config;
+    }
+
+    /**
+     * Starts lifecycles at the given rate for durationMillis, then waits for them to end.
+     * <p>
+     * The wait is bounded by the longest possible lifecycle (all its requests timing out) plus {@link #GRACE_MILLIS},
+     * lifecycles still running then are reported as missing. The next run starts with all clients idle and ignores
+     * their late responses.
+     *
+     * @param updates number of updates of each lifecycle
+     * @param updateIntervalMillis delay between a response and the next update, 0 to send it at once
+     * @return the counters and latencies of this run
+     * @throws InterruptedException if interrupted, the pending lifecycles go on
+     */
+    public Result run(final double registrationsPerSecond, int updates, long updateIntervalMillis,
+            final long durationMillis) throws InterruptedException {
+        this.updates = updates;
+        this.updateIntervalMillis = updateIntervalMillis;
+        reset();
+        final long start = System.nanoTime();
+        final long offered = (long) (registrationsPerSecond * durationMillis / 1000);
+        final AtomicLong started = new AtomicLong();
+        long lifecycleMillis = (updates + 2) * requestTimeoutMillis + updates * updateIntervalMillis;
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(durationMillis + lifecycleMillis + GRACE_MILLIS);
+        // paced by the elapsed time rather than the tick count, to catch up after a late tick
+        ScheduledFuture<?> ticker = executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                long due = Math.min(offered, (long) ((System.nanoTime() - start) * registrationsPerSecond / 1e9));
+                for (long i = started.get(); i < due; i = started.incrementAndGet()) {
+                    register();
+                }
+            }
+        }, 0, 1, TimeUnit.MILLISECONDS);
+        try {
+            Thread.sleep(durationMillis);
+            // let the ticker send the last lifecycles
+            while (started.get() < offered && System.nanoTime() - deadline < 0) {
+                Thread.sleep(1);
+            }
+        } finally {
+            ticker.cancel(false);
+        }
+        while (activeLifecycles.get() > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(1);
+        }
+        long missing = Math.max(0, offered - started.get()) + activeLifecycles.get();
+        long end = Math.max(lastCompletion.get(), start);
+        return new Result(end - start, offered, registrations.get(), updated.get(), deregistrations.get(),
+                rejected.get(), timeouts.get(), errors.get(), missing, retransmissions.get(),
+                registrationLatencies.sorted(), latencies.sorted());
+    }
+
+    private void reset() {
+        generation++;
+        for (Client client : clients) {
+            client.busy.set(false);
+        }
+        inFlight.set(0);
+        activeLifecycles.set(0);
+        nextClient = 0;
+        lastCompletion.set(0);
+        registrations.set(0);
+        updated.set(0);
+        deregistrations.set(0);
+        rejected.set(0);
+        timeouts.set(0);
+        errors.set(0);
+        retransmissions.set(0);
+        registrationLatencies.clear();
+        latencies.clear();
+    }
+
+    /**
+     * Starts a lifecycle on the next idle client, called from the ticker only.
+     */
+    private void register() {
+        if (inFlight.get() >= maxInFlight) {
+            rejected.incrementAndGet();
+            return;
+        }
+        for (int i = 0; i < clients.length; i++) {
+            Client client = clients[nextClient];
+            nextClient = (nextClient + 1) % clients.length;
+            if (client.busy.compareAndSet(false, true)) {
+                activeLifecycles.incrementAndGet();
+                client.remainingUpdates = updates;
+                Request request = Request.newPost();
+                request.getOptions().setUriPath("rd").addUriQuery("ep=" + client.endpoint).addUriQuery("lt=86400")
+                        .addUriQuery("lwm2m=1.0").addUriQuery("b=U")
+                        .setContentFormat(MediaTypeRegistry.APPLICATION_LINK_FORMAT);
+                request.setPayload(objectLinks);
+                send(client, request, Kind.REGISTER);
+                return;
+            }
+        }
+        rejected.incrementAndGet();
+    }
+
+    private void next(final Client client) {
+        if (client.remainingUpdates > 0) {
+            client.remainingUpdates--;
+            if (updateIntervalMillis > 0) {
+                final int scheduled = generation;
+                executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (scheduled == generation) {
+                            update(client);
+                        }
+                    }
+                }, updateIntervalMillis, TimeUnit.MILLISECONDS);
+            } else {
+                update(client);
+            }
+        } else {
+            Request request = Request.newDelete();
+            request.getOptions().setUriPath(client.location);
+            send(client, request, Kind.DEREGISTER);
+        }
+    }
+
+    private void update(Client client) {
+        Request request = Request.newPost();
+        request.getOptions().setUriPath(client.location);
+        send(client, request, Kind.UPDATE);
+    }
+
+    private void send(final Client client, Request request, final Kind kind) {
+        request.setDestinationContext(server);
+        final long sent = System.nanoTime();
+        final AtomicBoolean completed = new AtomicBoolean();
+        final int sentGeneration = generation;
+        request.addMessageObserver(new MessageObserverAdapter() {
+
+            @Override
+            public void onResponse(Response response) {
+                if (!completed.compareAndSet(false, true) || sentGeneration != generation)
+                    return;
+                inFlight.decrementAndGet();
+                if (response.getCode() != kind.expected) {
+                    errors.incrementAndGet();
+                    end(client);
+                    return;
+                }
+                long latency = System.nanoTime() - sent;
+                latencies.add(latency);
+                switch (kind) {
+                case REGISTER:
+                    registrationLatencies.add(latency);
+                    registrations.incrementAndGet();
+                    client.location = response.getOptions().getLocationPathString();
+                    next(client);
+                    break;
+                case UPDATE:
+                    updated.incrementAndGet();
+                    next(client);
+                    break;
+                case DEREGISTER:
+                    deregistrations.incrementAndGet();
+                    end(client);
+                    break;
+                }
+            }
+
+            @Override
+            public void onRetransmission() {
+                if (sentGeneration == generation) {
+                    retransmissions.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void onTimeout() {
+                failed(timeouts);
+            }
+
+            @Override
+            public void onReject() {
+                failed(errors);
+            }
+
+            @Override
+            public void onCancel() {
+                failed(errors);
+            }
+
+            @Override
+            public void onSendError(Throwable error) {
+                failed(errors);
+            }
+
+            private void failed(AtomicLong counter) {
+                if (completed.compareAndSet(false, true) && sentGeneration == generation) {
+                    inFlight.decrementAndGet();
+                    counter.incrementAndGet();
+                    end(client);
+                }
+            }
+        });
+        inFlight.incrementAndGet();
+        client.coap.sendRequest(request);
+    }
+
+    private void end(Client client) {
+        lastCompletion.set(System.nanoTime());
+        client.busy.set(false);
+        activeLifecycles.decrementAndGet();
+    }
+
+    @Override
+    public void close() {
+        for (CoapEndpoint endpoint : endpoints) {
+            endpoint.destroy();
+        }
+        executor.shutdownNow();
+        secondaryExecutor.shutdownNow();
+    }
+}
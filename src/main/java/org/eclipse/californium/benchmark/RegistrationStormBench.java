@@ -0,0 +1,160 @@
+package org.eclipse.californium.benchmark;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.server.californium.LeshanServer;
+import org.eclipse.leshan.server.californium.LeshanServerBuilder;
+import org.eclipse.leshan.server.californium.registration.InMemoryRegistrationStore;
+import org.eclipse.leshan.server.redis.RedisRegistrationStore;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link RegistrationStorm} against a Leshan server on loopback UDP, with the in-memory or the Redis registration
+ * store, for registrations of 5 or 1000 object links (as in {@link LinkFormatParsing}).
+ * <p>
+ * Each invocation offers registrationsPerSecond lifecycles per second for durationMillis. "registrationsPerSecond"
+ * reports the achieved rate, "dropped" the lifecycles rejected by the generator, timed out or failed, and the
+ * "Micros" counters the registration and overall latency percentiles. The saturation point is the offered rate from
+ * which the achieved rate stops following it and the drops and p99 latency take off, e.g.
+ * "-p registrationsPerSecond=500,1000,2000,4000,8000". The setup checks that a small storm leaves no registration.
+ */
+// one storm per iteration, SingleShotTime would not report the counters
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+public class RegistrationStormBench {
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+
+        @Param({ "2000" })
+        public int clients;
+
+        @Param({ "5", "1000" })
+        public int links;
+
+        @Param({ "1000", "4000" })
+        public double registrationsPerSecond;
+
+        @Param({ "1" })
+        public int updates;
+
+        @Param({ "0" })
+        public long updateIntervalMillis;
+
+        @Param({ "2000" })
+        public long durationMillis;
+
+        /**
+         * "memory" or "redis".
+         */
+        @Param({ "memory" })
+        public String store;
+
+        @Param({ "0" })
+        public double redisRttMillis;
+
+        public BenchmarkRedis redis;
+        public LeshanServer server;
+        public RegistrationStorm storm;
+        // the result of the last invocation, printed outside the measured region
+        public volatile RegistrationStorm.Result result;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException, InterruptedException {
+            LeshanServerBuilder builder = new LeshanServerBuilder();
+            builder.setLocalAddress("127.0.0.1", 0);
+            builder.disableSecuredEndpoint();
+            // 1000 links are about 20KB, sent with block1 transfers
+            NetworkConfig config = LeshanServerBuilder.createDefaultNetworkConfig();
+            config.setInt(NetworkConfig.Keys.MAX_RESOURCE_BODY_SIZE, 64 * 1024);
+            builder.setCoapConfig(config);
+            if (store.equals("memory")) {
+                builder.setRegistrationStore(new InMemoryRegistrationStore());
+            } else if (store.equals("redis")) {
+                redis = new BenchmarkRedis(redisRttMillis);
+                builder.setRegistrationStore(new RedisRegistrationStore(redis.getPool()));
+            } else {
+                throw new IllegalArgumentException("Unknown store " + store);
+            }
+            server = builder.build();
+            server.start();
+
+            Link[] objectLinks;
+            if (links == 5) {
+                objectLinks = Link.parse("</1/0>,</1/1>,</3/0>,</44>;ver=\"2.2\",</44/0>".getBytes());
+            } else {
+                objectLinks = new Link[links];
+                for (int i = 0; i < objectLinks.length; i++) {
+                    HashMap<String, String> attr = new HashMap<>();
+                    attr.put("ver", "2.1");
+                    objectLinks[i] = new Link("/" + i + "/0", attr);
+                }
+            }
+            storm = new RegistrationStorm(server.getUnsecuredAddress(), clients, objectLinks);
+
+            RegistrationStorm.Result result = storm.run(100, 2, 0, 100);
+            if (result.getRegistrations() != 10 || result.getDeregistrations() != 10 || result.getDropped() != 0
+                    || server.getRegistrationService().getAllRegistrations().hasNext()) {
+                throw new IllegalStateException("Unexpected storm result: " + result);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void printResult() {
+            if (result != null) {
+                System.out.printf("%n%s%n", result);
+                result = null;
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            storm.close();
+            server.destroy();
+            if (redis != null) {
+                redis.close();
+            }
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Report {
+        public double registrationsPerSecond;
+        public long dropped;
+        public long registrationP50Micros;
+        public long registrationP99Micros;
+        public long p99Micros;
+    }
+
+    @Benchmark
+    public RegistrationStorm.Result storm(MyState state, Report report) throws InterruptedException {
+        RegistrationStorm.Result result = state.storm.run(state.registrationsPerSecond, state.updates,
+                state.updateIntervalMillis, state.durationMillis);
+        report.registrationsPerSecond = result.getRegistrationsPerSecond();
+        report.dropped = result.getDropped();
+        report.registrationP50Micros = TimeUnit.NANOSECONDS.toMicros(result.getRegistrationLatency(50));
+        report.registrationP99Micros = TimeUnit.NANOSECONDS.toMicros(result.getRegistrationLatency(99));
+        report.p99Micros = TimeUnit.NANOSECONDS.toMicros(result.getLatency(99));
+        state.result = result;
+        return result;
+    }
+}
@@ -0,0 +1,146 @@
+package org.eclipse.californium.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * LwM2M JSON against SenML-JSON and SenML-CBOR for the small, normal and big data sets of {@link Lwm2mJsonBench}.
+ * <p>
+ * The Jackson and minimal-json based codecs are compared with the byte level ones ({@link LwM2mJsonStreamingEncoder},
+ * {@link LwM2mJsonStreamingDecoder} and {@link SenMLCborCodec}). The "payloadBytes" counter reports the encoded size
+ * in the format of the benchmark, use "-prof gc" to get B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SenMLBench {
+
+    @Param({ "small", "normal", "big" })
+    public String dataset;
+
+    public Lwm2mJsonBench.MyState lwm2m;
+    public SenMLJsonCodec senmlJson = new SenMLJsonCodec();
+    public SenMLCborCodec senmlCbor = new SenMLCborCodec();
+
+    public JsonRootObject root;
+    public byte[] lwm2mJsonBytes;
+    public byte[] senmlJsonBytes;
+    public byte[] senmlCborBytes;
+
+    @Setup(Level.Trial)
+    public void setup() throws LwM2mJsonException {
+        lwm2m = new Lwm2mJsonBench.MyState();
+        if (dataset.equals("small")) {
+            root = lwm2m.smallRootObject;
+        } else if (dataset.equals("normal")) {
+            root = lwm2m.rootObject;
+        } else if (dataset.equals("big")) {
+            root = lwm2m.bigRootObject;
+        } else {
+            throw new IllegalArgumentException("Unknown dataset " + dataset);
+        }
+        lwm2mJsonBytes = lwm2m.streamingEncoder.toJsonLwM2m(root);
+        senmlJsonBytes = senmlJson.toSenMLJson(root);
+        senmlCborBytes = senmlCbor.toSenMLCbor(root);
+
+        check("SenML-JSON", senmlJson.fromSenMLJson(senmlJsonBytes));
+        check("SenML-CBOR", senmlCbor.fromSenMLCbor(senmlCborBytes));
+        // all fields and value types, non ASCII and large numbers
+        JsonRootObject all = lwm2m.jackson.fromJsonLwM2m("{\"bn\":\"/3/0/\",\"e\":["
+                + "{\"n\":\"0\",\"sv\":\"a \\\"b\\\" \u00e9\u20ac\"},"
+                + "{\"n\":\"1\",\"v\":-0.5,\"t\":-10},{\"n\":\"2\",\"v\":4294967296},{\"n\":\"3\",\"v\":1.0E20},"
+                + "{\"n\":\"4\",\"bv\":false},{\"n\":\"5\",\"ov\":\"3:0\"},{\"n\":\"6\",\"v\":-100000},"
+                + "{\"n\":\"7\",\"v\":18446744073709551615},{\"n\":\"8\",\"v\":-98765432109876543210}],\"bt\":25462634}");
+        if (!all.equals(senmlCbor.fromSenMLCbor(senmlCbor.toSenMLCbor(all)))
+                || !all.equals(senmlJson.fromSenMLJson(senmlJson.toSenMLJson(all)))) {
+            throw new IllegalStateException("SenML round trip failed for " + all);
+        }
+        System.out.printf("%n%s: LwM2M JSON %d bytes, SenML-JSON %d bytes, SenML-CBOR %d bytes%n", dataset,
+                lwm2mJsonBytes.length, senmlJsonBytes.length, senmlCborBytes.length);
+    }
+
+    private void check(String format, JsonRootObject decoded) {
+        if (!root.equals(decoded))
+            throw new IllegalStateException(format + " round trip failed : " + decoded);
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Size {
+        public long payloadBytes;
+    }
+
+    @Benchmark
+    public byte[] lwm2mJsonEncode(Size size) throws LwM2mJsonException {
+        byte[] b = lwm2m.jackson.toJsonLwM2m(root).getBytes(StandardCharsets.UTF_8);
+        size.payloadBytes = b.length;
+        return b;
+    }
+
+    @Benchmark
+    public int lwm2mJsonStreamingEncode(Size size, Lwm2mJsonBench.EncodeBuffer b) throws LwM2mJsonException {
+        b.buffer.clear();
+        b.buffer = lwm2m.streamingEncoder.encode(root, b.buffer);
+        size.payloadBytes = b.buffer.position();
+        return b.buffer.position();
+    }
+
+    @Benchmark
+    public byte[] senmlJsonEncode(Size size) throws LwM2mJsonException {
+        byte[] b = senmlJson.toSenMLJson(root);
+        size.payloadBytes = b.length;
+        return b;
+    }
+
+    @Benchmark
+    public int senmlCborEncode(Size size, Lwm2mJsonBench.EncodeBuffer b) throws LwM2mJsonException {
+        b.buffer.clear();
+        b.buffer = senmlCbor.encode(root, b.buffer);
+        size.payloadBytes = b.buffer.position();
+        return b.buffer.position();
+    }
+
+    @Benchmark
+    public byte[] senmlCborEncodeBytes(Size size) throws LwM2mJsonException {
+        byte[] b = senmlCbor.toSenMLCbor(root);
+        size.payloadBytes = b.length;
+        return b;
+    }
+
+    @Benchmark
+    public JsonRootObject lwm2mJsonDecode(Size size) throws LwM2mJsonException {
+        size.payloadBytes = lwm2mJsonBytes.length;
+        return lwm2m.jackson.fromJsonLwM2m(new String(lwm2mJsonBytes, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public JsonRootObject lwm2mJsonStreamingDecode(Size size) throws LwM2mJsonException {
+        size.payloadBytes = lwm2mJsonBytes.length;
+        return lwm2m.streaming.fromJsonLwM2m(lwm2mJsonBytes);
+    }
+
+    @Benchmark
+    public JsonRootObject senmlJsonDecode(Size size) throws LwM2mJsonException {
+        size.payloadBytes = senmlJsonBytes.length;
+        return senmlJson.fromSenMLJson(senmlJsonBytes);
+    }
+
+    @Benchmark
+    public JsonRootObject senmlCborDecode(Size size) throws LwM2mJsonException {
+        size.payloadBytes = senmlCborBytes.length;
+        return senmlCbor.fromSenMLCbor(senmlCborBytes);
+    }
+}
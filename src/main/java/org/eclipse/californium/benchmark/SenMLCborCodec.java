@@ -0,0 +1,694 @@
+package org.eclipse.californium.benchmark;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.leshan.core.json.JsonArrayEntry;
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+
+/**
+ * SenML-CBOR (RFC 8428) encoder and decoder for the LwM2M JSON model, working directly on bytes : no CBOR tree and no
+ * intermediate buffer, only the names and string values are materialized when decoding.
+ * <p>
+ * A pack is an array of records using the integer labels of the RFC, base name and base time are written in the first
+ * record and object links use the LwM2M "vlo" label. Floating point values are written as float32 when it is lossless,
+ * float64 otherwise. Decoded numbers follow {@link LwM2mJsonStreamingDecoder} : Integer, Long or BigInteger for
+ * integers, Double for floats. A pack with several different base names or base times can not be represented by a
+ * {@link JsonRootObject} and is rejected.
+ * <p>
+ * Thread safe.
+ */
+public class SenMLCborCodec {
+
+    // labels
+    private static final int BASE_NAME = -2;
+    private static final int BASE_TIME = -3;
+    private static final int NAME = 0;
+    private static final int VALUE = 2;
+    private static final int STRING_VALUE = 3;
+    private static final int BOOLEAN_VALUE = 4;
+    private static final int TIME = 6;
+    private static final byte[] OBJLNK_VALUE = "vlo".getBytes(StandardCharsets.US_ASCII);
+
+    // major types
+    private static final int UNSIGNED = 0;
+    private static final int NEGATIVE = 1 << 5;
+    private static final int BYTES = 2 << 5;
+    private static final int TEXT = 3 << 5;
+    private static final int ARRAY = 4 << 5;
+    private static final int MAP = 5 << 5;
+    private static final int TAG = 6 << 5;
+    private static final int SIMPLE = 7 << 5;
+
+    private static final int FALSE = SIMPLE | 20;
+    private static final int TRUE = SIMPLE | 21;
+    private static final int FLOAT16 = SIMPLE | 25;
+    private static final int FLOAT32 = SIMPLE | 26;
+    private static final int FLOAT64 = SIMPLE | 27;
+    private static final int INDEFINITE = 31;
+    private static final int BREAK = 0xFF;
+    private static final int POSITIVE_BIGNUM = 2;
+    private static final int NEGATIVE_BIGNUM = 3;
+
+    private static final BigInteger MAX_UNSIGNED = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+    private final ByteBufferPool pool;
+
+    public SenMLCborCodec() {
+        this(new ByteBufferPool(1024, 64, 256 * 1024));
+    }
+
+    public SenMLCborCodec(ByteBufferPool pool) {
+        this.pool = pool;
+    }
+
+    public byte[] toSenMLCbor(JsonRootObject root) throws LwM2mJsonException {
+        ByteBuffer buffer = pool.acquire();
+        try {
+            buffer = encode(root, buffer);
+            return Arrays.copyOfRange(buffer.array(), buffer.arrayOffset(), buffer.arrayOffset() + buffer.position());
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * Encode at the position of the buffer and advance it, see {@link LwM2mJsonStreamingEncoder#encode(JsonRootObject,
+     * ByteBuffer)}.
+     *
+     * @return the given buffer or a larger one, always use the returned buffer.
+     */
+    public ByteBuffer encode(JsonRootObject root, ByteBuffer buffer) throws LwM2mJsonException {
+        Writer writer;
+        if (buffer.hasArray()) {
+            writer = new Writer(buffer.array(), buffer.arrayOffset(), buffer.arrayOffset() + buffer.position(),
+                    buffer.arrayOffset() + buffer.limit());
+        } else {
+            byte[] copy = new byte[Math.max(buffer.capacity(), 64)];
+            ByteBuffer head = buffer.duplicate();
+            head.flip();
+            head.get(copy, 0, head.remaining());
+            writer = new Writer(copy, 0, head.limit(), copy.length);
+        }
+        encode(root, writer);
+        if (buffer.hasArray() && writer.buf == buffer.array()) {
+            buffer.position(writer.pos - buffer.arrayOffset());
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.wrap(writer.buf);
+        grown.position(writer.pos);
+        return grown;
+    }
+
+    public ByteBufferPool getPool() {
+        return pool;
+    }
+
+    private void encode(JsonRootObject root, Writer writer) throws LwM2mJsonException {
+        List<JsonArrayEntry> entries = root.getResourceList();
+        int count = entries == null ? 0 : entries.size();
+        boolean base = root.getBaseName() != null || root.getBaseTime() != null;
+        if (count == 0 && base) {
+            // base only record
+            writer.writeHeader(ARRAY, 1);
+            writer.writeHeader(MAP, baseFields(root));
+            writeBase(root, writer);
+            return;
+        }
+        writer.writeHeader(ARRAY, count);
+        for (int i = 0; i < count; i++) {
+            JsonArrayEntry entry = entries.get(i);
+            int fields = 1 + (entry.getName() != null ? 1 : 0) + (entry.getTime() != null ? 1 : 0);
+            if (i == 0) {
+                writer.writeHeader(MAP, fields + baseFields(root));
+                writeBase(root, writer);
+            } else {
+                writer.writeHeader(MAP, fields);
+            }
+            if (entry.getName() != null) {
+                writer.writeInt(NAME);
+                writer.writeText(entry.getName());
+            }
+            Type type = entry.getType();
+            if (type == Type.FLOAT) {
+                writer.writeInt(VALUE);
+                writer.writeNumber(entry.getFloatValue());
+            } else if (type == Type.BOOLEAN) {
+                writer.writeInt(BOOLEAN_VALUE);
+                writer.write(entry.getBooleanValue() ? TRUE : FALSE);
+            } else if (type == Type.OBJLNK) {
+                writer.writeHeader(TEXT, OBJLNK_VALUE.length);
+                writer.write(OBJLNK_VALUE);
+                writer.writeText(entry.getObjectLinkValue());
+            } else if (type == Type.STRING) {
+                writer.writeInt(STRING_VALUE);
+                writer.writeText(entry.getStringValue());
+            } else {
+                throw new LwM2mJsonException("JsonArrayEntry MUST have a value : %s", entry);
+            }
+            if (entry.getTime() != null) {
+                writer.writeInt(TIME);
+                writer.writeInt(entry.getTime());
+            }
+        }
+    }
+
+    private static int baseFields(JsonRootObject root) {
+        return (root.getBaseName() != null ? 1 : 0) + (root.getBaseTime() != null ? 1 : 0);
+    }
+
+    private static void writeBase(JsonRootObject root, Writer writer) {
+        if (root.getBaseName() != null) {
+            writer.writeInt(BASE_NAME);
+            writer.writeText(root.getBaseName());
+        }
+        if (root.getBaseTime() != null) {
+            writer.writeInt(BASE_TIME);
+            writer.writeInt(root.getBaseTime());
+        }
+    }
+
+    public JsonRootObject fromSenMLCbor(byte[] content) throws LwM2mJsonException {
+        return fromSenMLCbor(content, 0, content.length);
+    }
+
+    public JsonRootObject fromSenMLCbor(byte[] content, int offset, int length) throws LwM2mJsonException {
+        try {
+            return new Reader(content, offset, offset + length).readPack();
+        } catch (IndexOutOfBoundsException e) {
+            throw new LwM2mJsonException("Unable to parse SenML-CBOR : unexpected end of content", e);
+        }
+    }
+
+    /**
+     * Decode the remaining bytes of the buffer, its position is not modified.
+     */
+    public JsonRootObject fromSenMLCbor(ByteBuffer content) throws LwM2mJsonException {
+        if (content.hasArray()) {
+            return fromSenMLCbor(content.array(), content.arrayOffset() + content.position(), content.remaining());
+        }
+        byte[] copy = new byte[content.remaining()];
+        content.duplicate().get(copy);
+        return fromSenMLCbor(copy);
+    }
+
+    /**
+     * Growable view on a byte array, starting at the position of the caller buffer.
+     */
+    private static class Writer {
+        byte[] buf;
+        int offset;
+        int pos;
+        int limit;
+
+        Writer(byte[] buf, int offset, int pos, int limit) {
+            this.buf = buf;
+            this.offset = offset;
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        void ensure(int n) {
+            if (pos + n > limit) {
+                int size = Math.max((limit - offset) * 2, pos - offset + n);
+                byte[] grown = new byte[size];
+                System.arraycopy(buf, offset, grown, 0, pos - offset);
+                pos -= offset;
+                buf = grown;
+                offset = 0;
+                limit = size;
+            }
+        }
+
+        void write(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void write(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        /**
+         * Initial byte of the major type with its argument, in the shortest form.
+         */
+        void writeHeader(int major, long argument) {
+            ensure(9);
+            if (argument >= 0 && argument < 24) {
+                buf[pos++] = (byte) (major | argument);
+            } else if (argument >= 0 && argument <= 0xFF) {
+                buf[pos++] = (byte) (major | 24);
+                buf[pos++] = (byte) argument;
+            } else if (argument >= 0 && argument <= 0xFFFF) {
+                buf[pos++] = (byte) (major | 25);
+                writeBigEndian(argument, 2);
+            } else if (argument >= 0 && argument <= 0xFFFFFFFFL) {
+                buf[pos++] = (byte) (major | 26);
+                writeBigEndian(argument, 4);
+            } else {
+                // also unsigned arguments above Long.MAX_VALUE
+                buf[pos++] = (byte) (major | 27);
+                writeBigEndian(argument, 8);
+            }
+        }
+
+        private void writeBigEndian(long value, int bytes) {
+            for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeInt(long value) {
+            if (value >= 0) {
+                writeHeader(UNSIGNED, value);
+            } else {
+                // -1 - value, without overflow for Long.MIN_VALUE
+                writeHeader(NEGATIVE, ~value);
+            }
+        }
+
+        void writeText(String s) {
+            int length = s.length();
+            int utf8Length = length;
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    utf8Length = utf8Length(s, i, utf8Length);
+                    break;
+                }
+            }
+            writeHeader(TEXT, utf8Length);
+            ensure(utf8Length);
+            if (utf8Length == length) {
+                for (int i = 0; i < length; i++) {
+                    buf[pos++] = (byte) s.charAt(i);
+                }
+                return;
+            }
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    buf[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[pos++] = (byte) (0xC0 | c >> 6);
+                    buf[pos++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf[pos++] = (byte) (0xF0 | cp >> 18);
+                    buf[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    buf[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    buf[pos++] = (byte) (0x80 | cp & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    // malformed, as String.getBytes(UTF_8)
+                    buf[pos++] = '?';
+                } else {
+                    buf[pos++] = (byte) (0xE0 | c >> 12);
+                    buf[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    buf[pos++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+
+        /**
+         * UTF-8 length of the string, the chars before start being ASCII.
+         */
+        private static int utf8Length(String s, int start, int length) {
+            int utf8Length = length;
+            for (int i = start; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c >= 0x800) {
+                    if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                            && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        // 4 bytes for 2 chars
+                        utf8Length += 2;
+                        i++;
+                    } else if (!Character.isSurrogate(c)) {
+                        utf8Length += 2;
+                    }
+                } else if (c >= 0x80) {
+                    utf8Length += 1;
+                }
+            }
+            return utf8Length;
+        }
+
+        void writeNumber(Number value) {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short
+                    || value instanceof Byte) {
+                writeInt(value.longValue());
+            } else if (value instanceof Float) {
+                write(FLOAT32);
+                ensure(4);
+                writeBigEndian(Float.floatToIntBits(value.floatValue()), 4);
+            } else if (value instanceof BigInteger) {
+                writeBigInteger((BigInteger) value);
+            } else {
+                // Double, BigDecimal and others
+                double d = value instanceof BigDecimal ? ((BigDecimal) value).doubleValue() : value.doubleValue();
+                ensure(9);
+                float f = (float) d;
+                if (f == d || Double.isNaN(d)) {
+                    buf[pos++] = (byte) FLOAT32;
+                    writeBigEndian(Float.floatToIntBits(f), 4);
+                } else {
+                    buf[pos++] = (byte) FLOAT64;
+                    writeBigEndian(Double.doubleToLongBits(d), 8);
+                }
+            }
+        }
+
+        private void writeBigInteger(BigInteger value) {
+            if (value.bitLength() < 64) {
+                writeInt(value.longValue());
+            } else if (value.signum() > 0 && value.compareTo(MAX_UNSIGNED) <= 0) {
+                writeHeader(UNSIGNED, value.longValue());
+            } else if (value.signum() < 0 && value.not().compareTo(MAX_UNSIGNED) <= 0) {
+                writeHeader(NEGATIVE, value.not().longValue());
+            } else {
+                // bignum, magnitude of the value or of -1 - value
+                BigInteger magnitude = value.signum() > 0 ? value : value.not();
+                byte[] bytes = magnitude.toByteArray();
+                int start = bytes[0] == 0 ? 1 : 0;
+                writeHeader(TAG, value.signum() > 0 ? POSITIVE_BIGNUM : NEGATIVE_BIGNUM);
+                writeHeader(BYTES, bytes.length - start);
+                ensure(bytes.length - start);
+                System.arraycopy(bytes, start, buf, pos, bytes.length - start);
+                pos += bytes.length - start;
+            }
+        }
+    }
+
+    private static class Reader {
+        private final byte[] buf;
+        private final int end;
+        private int pos;
+
+        Reader(byte[] buf, int start, int end) {
+            this.buf = buf;
+            this.pos = start;
+            this.end = end;
+        }
+
+        JsonRootObject readPack() throws LwM2mJsonException {
+            JsonRootObject root = new JsonRootObject();
+            int initial = readInitial();
+            if ((initial & 0xE0) != ARRAY)
+                throw error("Array expected");
+            long count = readLength(initial);
+            List<JsonArrayEntry> entries = new ArrayList<>(count > 0 && count < 4096 ? (int) count : 16);
+            for (long i = 0; count < 0 ? !consumeBreak() : i < count; i++) {
+                JsonArrayEntry entry = readRecord(root, i == 0);
+                if (entry != null)
+                    entries.add(entry);
+            }
+            if (pos != end)
+                throw error("Unexpected content after pack");
+            root.setResourceList(entries);
+            return root;
+        }
+
+        /**
+         * @return the entry, null for a record only holding base fields
+         */
+        private JsonArrayEntry readRecord(JsonRootObject root, boolean first) throws LwM2mJsonException {
+            int initial = readInitial();
+            if ((initial & 0xE0) != MAP)
+                throw error("Record map expected");
+            long count = readLength(initial);
+            JsonArrayEntry entry = new JsonArrayEntry();
+            boolean base = false;
+            for (long i = 0; count < 0 ? !consumeBreak() : i < count; i++) {
+                int key = buf[pos] & 0xFF;
+                if (key == (TEXT | 3) && pos + 3 < end && buf[pos + 1] == OBJLNK_VALUE[0]
+                        && buf[pos + 2] == OBJLNK_VALUE[1] && buf[pos + 3] == OBJLNK_VALUE[2]) {
+                    pos += 4;
+                    entry.setObjectLinkValue(readText());
+                    continue;
+                }
+                if ((key & 0xE0) != UNSIGNED && (key & 0xE0) != NEGATIVE) {
+                    // unknown text label
+                    skip();
+                    skip();
+                    continue;
+                }
+                long label = readInt();
+                if (label == NAME) {
+                    entry.setName(readText());
+                } else if (label == VALUE) {
+                    entry.setFloatValue(readNumber());
+                } else if (label == STRING_VALUE) {
+                    entry.setStringValue(readText());
+                } else if (label == BOOLEAN_VALUE) {
+                    entry.setBooleanValue(readBoolean());
+                } else if (label == TIME) {
+                    entry.setTime(readNumber().longValue());
+                } else if (label == BASE_NAME) {
+                    base = true;
+                    String baseName = readText();
+                    if (first) {
+                        root.setBaseName(baseName);
+                    } else if (!baseName.equals(root.getBaseName())) {
+                        throw error("Several base names are not supported");
+                    }
+                } else if (label == BASE_TIME) {
+                    base = true;
+                    Long baseTime = readNumber().longValue();
+                    if (first) {
+                        root.setBaseTime(baseTime);
+                    } else if (!baseTime.equals(root.getBaseTime())) {
+                        throw error("Several base times are not supported");
+                    }
+                } else {
+                    skip();
+                }
+            }
+            if (entry.getType() == null) {
+                if (base && entry.getName() == null && entry.getTime() == null)
+                    return null;
+                throw error("Invalid SenML record: one value must be present");
+            }
+            return entry;
+        }
+
+        private int readInitial() throws LwM2mJsonException {
+            if (pos >= end)
+                throw error("Unexpected end of content");
+            return buf[pos++] & 0xFF;
+        }
+
+        private boolean consumeBreak() throws LwM2mJsonException {
+            if (pos >= end)
+                throw error("Unexpected end of content");
+            if ((buf[pos] & 0xFF) == BREAK) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return the argument of the initial byte, -1 for an indefinite length
+         */
+        private long readLength(int initial) throws LwM2mJsonException {
+            if ((initial & 0x1F) == INDEFINITE)
+                return -1;
+            long length = readArgument(initial);
+            if (length < 0 || length > end - pos)
+                throw error("Invalid length");
+            return length;
+        }
+
+        /**
+         * @return the unsigned argument, negative when above Long.MAX_VALUE
+         */
+        private long readArgument(int initial) throws LwM2mJsonException {
+            int info = initial & 0x1F;
+            if (info < 24)
+                return info;
+            int bytes;
+            switch (info) {
+            case 24:
+                bytes = 1;
+                break;
+            case 25:
+                bytes = 2;
+                break;
+            case 26:
+                bytes = 4;
+                break;
+            case 27:
+                bytes = 8;
+                break;
+            default:
+                throw error("Invalid additional information " + info);
+            }
+            long value = 0;
+            for (int i = 0; i < bytes; i++) {
+                value = value << 8 | buf[pos++] & 0xFF;
+            }
+            return value;
+        }
+
+        private long readInt() throws LwM2mJsonException {
+            int initial = readInitial();
+            long argument = readArgument(initial);
+            if (argument < 0)
+                throw error("Integer label out of range");
+            return (initial & 0xE0) == NEGATIVE ? ~argument : argument;
+        }
+
+        private String readText() throws LwM2mJsonException {
+            int initial = readInitial();
+            if ((initial & 0xE0) != TEXT)
+                throw error("Text string expected");
+            if ((initial & 0x1F) == INDEFINITE) {
+                // chunked, rare
+                StringBuilder s = new StringBuilder();
+                while (!consumeBreak()) {
+                    s.append(readText());
+                }
+                return s.toString();
+            }
+            int length = (int) readLength(initial);
+            boolean ascii = true;
+            for (int i = pos; i < pos + length; i++) {
+                if (buf[i] < 0) {
+                    ascii = false;
+                    break;
+                }
+            }
+            String s = new String(buf, pos, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+
+        private Boolean readBoolean() throws LwM2mJsonException {
+            int initial = readInitial();
+            if (initial == TRUE)
+                return Boolean.TRUE;
+            if (initial == FALSE)
+                return Boolean.FALSE;
+            throw error("Boolean expected");
+        }
+
+        private Number readNumber() throws LwM2mJsonException {
+            int initial = readInitial();
+            int major = initial & 0xE0;
+            if (major == UNSIGNED || major == NEGATIVE) {
+                long argument = readArgument(initial);
+                if (argument < 0) {
+                    BigInteger unsigned = new BigInteger(1, toBytes(argument));
+                    return major == UNSIGNED ? unsigned : unsigned.not();
+                }
+                long value = major == UNSIGNED ? argument : ~argument;
+                if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+                    return Integer.valueOf((int) value);
+                return Long.valueOf(value);
+            }
+            switch (initial) {
+            case FLOAT16:
+                return Double.valueOf(halfToFloat((int) readArgument(initial)));
+            case FLOAT32:
+                return Double.valueOf(Float.intBitsToFloat((int) readArgument(initial)));
+            case FLOAT64:
+                return Double.valueOf(Double.longBitsToDouble(readArgument(initial)));
+            case TAG | POSITIVE_BIGNUM:
+            case TAG | NEGATIVE_BIGNUM:
+                int bytes = readInitial();
+                if ((bytes & 0xE0) != BYTES)
+                    throw error("Byte string expected for bignum");
+                int length = (int) readLength(bytes);
+                BigInteger magnitude = new BigInteger(1, Arrays.copyOfRange(buf, pos, pos + length));
+                pos += length;
+                BigInteger value = initial == (TAG | POSITIVE_BIGNUM) ? magnitude : magnitude.not();
+                if (value.bitLength() < 64)
+                    return Long.valueOf(value.longValue());
+                return value;
+            default:
+                throw error("Number expected");
+            }
+        }
+
+        private static byte[] toBytes(long value) {
+            byte[] bytes = new byte[8];
+            for (int i = 7; i >= 0; i--) {
+                bytes[i] = (byte) value;
+                value >>>= 8;
+            }
+            return bytes;
+        }
+
+        private static float halfToFloat(int half) {
+            int exponent = half >> 10 & 0x1F;
+            int mantissa = half & 0x3FF;
+            float value;
+            if (exponent == 0) {
+                value = mantissa * 0x1p-24f;
+            } else if (exponent == 31) {
+                value = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+            } else {
+                value = (mantissa + 1024) * (float) Math.pow(2, exponent - 25);
+            }
+            return (half & 0x8000) != 0 ? -value : value;
+        }
+
+        /**
+         * Skip one data item, with its content.
+         */
+        private void skip() throws LwM2mJsonException {
+            int initial = readInitial();
+            int major = initial & 0xE0;
+            if (major == SIMPLE) {
+                if ((initial & 0x1F) >= 24)
+                    readArgument(initial);
+                return;
+            }
+            if ((initial & 0x1F) == INDEFINITE) {
+                if (major == UNSIGNED || major == NEGATIVE || major == TAG)
+                    throw error("Invalid indefinite length");
+                while (!consumeBreak()) {
+                    skip();
+                    if (major == MAP)
+                        skip();
+                }
+                return;
+            }
+            long argument = readArgument(initial);
+            switch (major) {
+            case BYTES:
+            case TEXT:
+                if (argument < 0 || argument > end - pos)
+                    throw error("Invalid length");
+                pos += (int) argument;
+                break;
+            case ARRAY:
+            case MAP:
+                long items = major == MAP ? argument * 2 : argument;
+                if (argument < 0 || items > end - pos)
+                    throw error("Invalid length");
+                for (long i = 0; i < items; i++) {
+                    skip();
+                }
+                break;
+            case TAG:
+                skip();
+                break;
+            default:
+                // integers, no content
+            }
+        }
+
+        private LwM2mJsonException error(String message) {
+            return new LwM2mJsonException("Unable to parse SenML-CBOR : %s at offset %d", message, pos);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.eclipse.californium.benchmark;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.json.JsonArrayEntry;
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonArray;
+import com.eclipsesource.json.JsonObject;
+import com.eclipsesource.json.JsonObject.Member;
+import com.eclipsesource.json.JsonValue;
+import com.eclipsesource.json.ParseException;
+
+/**
+ * SenML-JSON (RFC 8428) encoder and decoder for the LwM2M JSON model, built on minimal-json as
+ * LwM2mJsonMinimalEncoderDecoder.
+ * <p>
+ * Same mapping as {@link SenMLCborCodec} : base name and base time in the first record, "vlo" for object links and a
+ * single base name and base time per pack. Integers are decoded as Integer, Long or BigInteger, other numbers as
+ * Double.
+ * <p>
+ * Thread safe.
+ */
+public class SenMLJsonCodec {
+
+    public byte[] toSenMLJson(JsonRootObject root) throws LwM2mJsonException {
+        JsonArray pack = Json.array();
+        List<JsonArrayEntry> entries = root.getResourceList();
+        if (entries == null || entries.isEmpty()) {
+            if (root.getBaseName() != null || root.getBaseTime() != null) {
+                JsonObject record = Json.object();
+                addBase(root, record);
+                pack.add(record);
+            }
+        } else {
+            for (int i = 0; i < entries.size(); i++) {
+                JsonArrayEntry entry = entries.get(i);
+                JsonObject record = Json.object();
+                if (i == 0) {
+                    addBase(root, record);
+                }
+                if (entry.getName() != null) {
+                    record.add("n", entry.getName());
+                }
+                Type type = entry.getType();
+                if (type == Type.FLOAT) {
+                    record.add("v", toJson(entry.getFloatValue()));
+                } else if (type == Type.BOOLEAN) {
+                    record.add("vb", entry.getBooleanValue());
+                } else if (type == Type.OBJLNK) {
+                    record.add("vlo", entry.getObjectLinkValue());
+                } else if (type == Type.STRING) {
+                    record.add("vs", entry.getStringValue());
+                } else {
+                    throw new LwM2mJsonException("JsonArrayEntry MUST have a value : %s", entry);
+                }
+                if (entry.getTime() != null) {
+                    record.add("t", entry.getTime());
+                }
+                pack.add(record);
+            }
+        }
+        return pack.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void addBase(JsonRootObject root, JsonObject record) {
+        if (root.getBaseName() != null) {
+            record.add("bn", root.getBaseName());
+        }
+        if (root.getBaseTime() != null) {
+            record.add("bt", root.getBaseTime());
+        }
+    }
+
+    private static JsonValue toJson(Number value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return Json.value(value.intValue());
+        } else if (value instanceof Long) {
+            return Json.value(value.longValue());
+        } else if (value instanceof Float) {
+            return Json.value(value.floatValue());
+        } else if (value instanceof BigInteger) {
+            // no big number value in minimal-json
+            return Json.parse(value.toString());
+        }
+        return Json.value(value.doubleValue());
+    }
+
+    public JsonRootObject fromSenMLJson(byte[] content) throws LwM2mJsonException {
+        try {
+            JsonValue pack = Json.parse(new String(content, StandardCharsets.UTF_8));
+            if (!pack.isArray())
+                throw new LwM2mJsonException("Unable to parse SenML-JSON : array expected");
+            JsonRootObject root = new JsonRootObject();
+            List<JsonArrayEntry> entries = new ArrayList<>(pack.asArray().size());
+            boolean first = true;
+            for (JsonValue record : pack.asArray()) {
+                if (!record.isObject())
+                    throw new LwM2mJsonException("Unable to parse SenML-JSON : record object expected");
+                JsonArrayEntry entry = fromRecord(record.asObject(), root, first);
+                if (entry != null)
+                    entries.add(entry);
+                first = false;
+            }
+            root.setResourceList(entries);
+            return root;
+        } catch (ParseException | UnsupportedOperationException | NumberFormatException e) {
+            throw new LwM2mJsonException("Unable to parse SenML-JSON", e);
+        }
+    }
+
+    /**
+     * @return the entry, null for a record only holding base fields
+     */
+    private static JsonArrayEntry fromRecord(JsonObject record, JsonRootObject root, boolean first)
+            throws LwM2mJsonException {
+        JsonArrayEntry entry = new JsonArrayEntry();
+        boolean base = false;
+        for (Member member : record) {
+            String name = member.getName();
+            JsonValue value = member.getValue();
+            switch (name) {
+            case "n":
+                entry.setName(value.asString());
+                break;
+            case "v":
+                entry.setFloatValue(toNumber(value));
+                break;
+            case "vs":
+                entry.setStringValue(value.asString());
+                break;
+            case "vb":
+                entry.setBooleanValue(value.asBoolean());
+                break;
+            case "vlo":
+                entry.setObjectLinkValue(value.asString());
+                break;
+            case "t":
+                entry.setTime(toNumber(value).longValue());
+                break;
+            case "bn":
+                base = true;
+                if (first) {
+                    root.setBaseName(value.asString());
+                } else if (!value.asString().equals(root.getBaseName())) {
+                    throw new LwM2mJsonException("Unable to parse SenML-JSON : several base names are not supported");
+                }
+                break;
+            case "bt":
+                base = true;
+                Long baseTime = toNumber(value).longValue();
+                if (first) {
+                    root.setBaseTime(baseTime);
+                } else if (!baseTime.equals(root.getBaseTime())) {
+                    throw new LwM2mJsonException("Unable to parse SenML-JSON : several base times are not supported");
+                }
+                break;
+            default:
+                // unknown labels are ignored
+            }
+        }
+        if (entry.getType() == null) {
+            if (base && entry.getName() == null && entry.getTime() == null)
+                return null;
+            throw new LwM2mJsonException("Invalid SenML record: one value must be present");
+        }
+        return entry;
+    }
+
+    private static Number toNumber(JsonValue value) {
+        if (!value.isNumber())
+            throw new UnsupportedOperationException("Not a number: " + value);
+        String literal = value.toString();
+        if (literal.indexOf('.') >= 0 || literal.indexOf('e') >= 0 || literal.indexOf('E') >= 0)
+            return Double.valueOf(literal);
+        if (literal.length() <= 18) {
+            long integer = Long.parseLong(literal);
+            if (integer >= Integer.MIN_VALUE && integer <= Integer.MAX_VALUE)
+                return Integer.valueOf((int) integer);
+            return Long.valueOf(integer);
+        }
+        BigInteger integer = new BigInteger(literal);
+        if (integer.bitLength() < 64)
+            return Long.valueOf(integer.longValue());
+        return integer;
+    }
+}
@@ -0,0 +1,61 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread safe, append only table giving each distinct string a dense int id.
+ * <p>
+ * Meant for low cardinality content repeated across registrations (binding modes, versions, attribute names):
+ * records store the id instead of the string and all decoded copies share the same {@link String} instance. Ids are
+ * never reclaimed, do not add per device values.
+ */
+public class StringDictionary {
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] strings = new String[64];
+    // guarded by this
+    private int size;
+
+    /**
+     * @return the id of the given string, added to the dictionary if needed.
+     */
+    public int idOf(String s) {
+        Integer id = ids.get(s);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(s);
+            if (id == null) {
+                if (size == strings.length) {
+                    strings = Arrays.copyOf(strings, size * 2);
+                }
+                strings[size] = s;
+                id = size++;
+                // published after the array write, a reader getting this id sees the string
+                ids.put(s, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * @return the string of an id returned by {@link #idOf(String)}.
+     */
+    public String get(int id) {
+        return strings[id];
+    }
+
+    /**
+     * @return the dictionary instance equal to the given string.
+     */
+    public String intern(String s) {
+        return get(idOf(s));
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,240 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.attributes.Attribute;
+import org.eclipse.leshan.core.model.ObjectModel;
+
+/**
+ * Changes of the supported objects (object Id => object Version) of a registration between two object link lists, and
+ * the resulting {@link SupportedObjectIndex}.
+ * <p>
+ * The diff is computed without rebuilding the index : both link arrays are walked together and unchanged links are
+ * skipped with a reference or equals check (no parsing), a mismatch being resolved by looking a few links ahead for
+ * the next common one. Only the objects of the changed links are resolved again, the new index sharing the arrays of
+ * the previous one until it is modified. Resolving an object only looks at the changed links, unless its version comes
+ * from both changed and unchanged links (several links for the same object with different versions), then the new
+ * links are scanned for this object.
+ */
+public final class SupportedObjectDiff {
+
+    // longest run of inserted or removed links after which the following links are still matched
+    private static final int LOOKAHEAD = 8;
+
+    private final SupportedObjectIndex previousIndex;
+    private final SupportedObjectIndex index;
+    private final Map<Integer, String> added;
+    private final Map<Integer, String> removed;
+    private final Map<Integer, String> updated;
+    private final int changedLinks;
+
+    private SupportedObjectDiff(SupportedObjectIndex previousIndex, SupportedObjectIndex index,
+            Map<Integer, String> added, Map<Integer, String> removed, Map<Integer, String> updated,
+            int changedLinks) {
+        this.previousIndex = previousIndex;
+        this.index = index;
+        this.added = added;
+        this.removed = removed;
+        this.updated = updated;
+        this.changedLinks = changedLinks;
+    }
+
+    public SupportedObjectIndex getPreviousIndex() {
+        return previousIndex;
+    }
+
+    /**
+     * @return the index of the new links, the previous index itself if nothing changed
+     */
+    public SupportedObjectIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the new objects with their version
+     */
+    public Map<Integer, String> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return the objects no longer supported with their previous version
+     */
+    public Map<Integer, String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return the objects whose version changed with their new version
+     */
+    public Map<Integer, String> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return the number of removed and added links
+     */
+    public int getChangedLinks() {
+        return changedLinks;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && updated.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SupportedObjectDiff [added=%s, removed=%s, updated=%s]", added, removed, updated);
+    }
+
+    /**
+     * Changes of the links of an object.
+     */
+    private static class Delta {
+        // added links - removed links
+        int linkCount;
+        int addedLinks;
+        // a removed or added link has a version other than the default one
+        boolean versioned;
+        // last version other than the default one of the added links
+        String lastAddedVersion;
+    }
+
+    /**
+     * @param previousIndex the index of the previous links, built by {@link SupportedObjectIndex#build(String, Link[])}
+     *        or by a previous diff
+     */
+    public static SupportedObjectDiff compute(String rootPath, Link[] previousLinks,
+            SupportedObjectIndex previousIndex, Link[] links) {
+        Map<Integer, Delta> deltas = new HashMap<>();
+        int changedLinks = 0;
+        int i = 0;
+        int j = 0;
+        while (i < previousLinks.length || j < links.length) {
+            if (i < previousLinks.length && j < links.length && same(previousLinks[i], links[j])) {
+                i++;
+                j++;
+                continue;
+            }
+            int removedCount = i < previousLinks.length ? 1 : 0;
+            int addedCount = j < links.length ? 1 : 0;
+            for (int d = 1; d <= LOOKAHEAD; d++) {
+                if (j < links.length && i + d < previousLinks.length && same(previousLinks[i + d], links[j])) {
+                    removedCount = d;
+                    addedCount = 0;
+                    break;
+                }
+                if (i < previousLinks.length && j + d < links.length && same(previousLinks[i], links[j + d])) {
+                    removedCount = 0;
+                    addedCount = d;
+                    break;
+                }
+            }
+            for (int end = i + removedCount; i < end; i++) {
+                Delta delta = delta(deltas, previousLinks[i], rootPath);
+                if (delta != null) {
+                    delta.linkCount--;
+                    delta.versioned |= version(previousLinks[i]) != null;
+                }
+            }
+            for (int end = j + addedCount; j < end; j++) {
+                Delta delta = delta(deltas, links[j], rootPath);
+                if (delta != null) {
+                    String version = version(links[j]);
+                    delta.linkCount++;
+                    delta.addedLinks++;
+                    if (version != null) {
+                        delta.versioned = true;
+                        delta.lastAddedVersion = version;
+                    }
+                }
+            }
+            changedLinks += removedCount + addedCount;
+        }
+        if (deltas.isEmpty()) {
+            Map<Integer, String> none = Collections.emptyMap();
+            return new SupportedObjectDiff(previousIndex, previousIndex, none, none, none, changedLinks);
+        }
+
+        Map<Integer, String> added = new HashMap<>();
+        Map<Integer, String> removed = new HashMap<>();
+        Map<Integer, String> updated = new HashMap<>();
+        SupportedObjectIndex.Builder builder = new SupportedObjectIndex.Builder(previousIndex);
+        for (Map.Entry<Integer, Delta> e : deltas.entrySet()) {
+            int objectId = e.getKey();
+            Delta delta = e.getValue();
+            int previousCount = previousIndex.getLinkCount(objectId);
+            int count = previousCount + delta.linkCount;
+            String previousVersion = previousIndex.getVersion(objectId);
+            if (count == 0) {
+                if (previousCount > 0) {
+                    removed.put(objectId, previousVersion);
+                    builder.remove(objectId);
+                }
+                continue;
+            }
+            String version;
+            if (!delta.versioned) {
+                // the last non default version, if any, is in the unchanged links
+                version = previousVersion != null ? previousVersion : ObjectModel.DEFAULT_VERSION;
+            } else if (count == delta.addedLinks) {
+                // all the links of the object are new
+                version = delta.lastAddedVersion != null ? delta.lastAddedVersion : ObjectModel.DEFAULT_VERSION;
+            } else {
+                version = scanVersion(objectId, links, rootPath);
+            }
+            if (previousCount == 0) {
+                added.put(objectId, version);
+            } else if (!version.equals(previousVersion)) {
+                updated.put(objectId, version);
+            }
+            if (count != previousCount || !version.equals(previousVersion)) {
+                builder.put(objectId, version, count);
+            }
+        }
+        return new SupportedObjectDiff(previousIndex, builder.build(), added, removed, updated, changedLinks);
+    }
+
+    private static boolean same(Link previous, Link link) {
+        return previous == link || (previous != null && previous.equals(link));
+    }
+
+    private static Delta delta(Map<Integer, Delta> deltas, Link link, String rootPath) {
+        if (link == null)
+            return null;
+        int objectId = SupportedObjectIndex.getObjectId(link.getUrl(), rootPath);
+        if (objectId < 0)
+            return null;
+        Delta delta = deltas.get(objectId);
+        if (delta == null) {
+            delta = new Delta();
+            deltas.put(objectId, delta);
+        }
+        return delta;
+    }
+
+    /**
+     * @return the shared version of this link if it is not the default one, null otherwise
+     */
+    private static String version(Link link) {
+        Object version = link.getAttributes().get(Attribute.OBJECT_VERSION);
+        if (version instanceof String && !version.equals(ObjectModel.DEFAULT_VERSION))
+            return SupportedObjectIndex.internVersion((String) version);
+        return null;
+    }
+
+    private static String scanVersion(int objectId, Link[] links, String rootPath) {
+        String version = ObjectModel.DEFAULT_VERSION;
+        for (Link link : links) {
+            if (link != null && SupportedObjectIndex.getObjectId(link.getUrl(), rootPath) == objectId) {
+                String v = version(link);
+                if (v != null)
+                    version = v;
+            }
+        }
+        return version;
+    }
+}
@@ -0,0 +1,164 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.attributes.Attribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Supported objects of the 1000-link registration of {@link LinkFormatParsing} after an update changing a few links :
+ * full rebuild (map or index), full rebuild compared with the previous index to get the changes, and
+ * {@link SupportedObjectDiff}.
+ * <p>
+ * "changes" links spread over the registration are modified, in turn a new version, a removed object and a new object.
+ * The setup checks the diff against a full rebuild, for this update and random ones.
+ */
+@State(Scope.Benchmark)
+public class SupportedObjectDiffBench {
+
+    @Param({ "1", "10", "100" })
+    public int changes;
+
+    public String rootPath;
+    public Link[] previousLinks;
+    public SupportedObjectIndex previousIndex;
+    public Link[] links;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        LinkFormatParsing.MyState registrations = new LinkFormatParsing.MyState();
+        rootPath = registrations.reg_long.getRootPath();
+        previousLinks = registrations.reg_long.getObjectLinks();
+        previousIndex = SupportedObjectIndex.build(rootPath, previousLinks);
+
+        List<Link> updated = new ArrayList<>(Arrays.asList(previousLinks));
+        // from the end so positions are not shifted by removals
+        for (int k = changes - 1; k >= 0; k--) {
+            int position = k * previousLinks.length / changes;
+            switch (k % 3) {
+            case 0:
+                updated.set(position, new Link(updated.get(position).getUrl(), version("2.2")));
+                break;
+            case 1:
+                updated.remove(position);
+                break;
+            default:
+                updated.add(position, new Link("/" + (previousLinks.length + k) + "/0", version("1.1")));
+            }
+        }
+        links = updated.toArray(new Link[updated.size()]);
+
+        check(rootPath, previousLinks, links);
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            Link[] before = randomLinks(random, random.nextInt(12));
+            List<Link> after = new ArrayList<>(Arrays.asList(before));
+            for (int j = random.nextInt(4); j > 0; j--) {
+                int position = after.isEmpty() ? 0 : random.nextInt(after.size());
+                if (random.nextBoolean() && !after.isEmpty()) {
+                    after.remove(position);
+                } else {
+                    after.add(position, randomLinks(random, 1)[0]);
+                }
+            }
+            check("/", before, after.toArray(new Link[after.size()]));
+        }
+    }
+
+    private static Map<String, String> version(String version) {
+        return Collections.singletonMap(Attribute.OBJECT_VERSION, version);
+    }
+
+    /**
+     * Few objects, several links per object with and without versions.
+     */
+    private static Link[] randomLinks(Random random, int count) {
+        String[] urls = { "/1", "/1/0", "/2", "/2/0", "/2/1", "/3/0", "/a", "/" };
+        String[] versions = { null, "1.0", "1.1", "2.0" };
+        Link[] links = new Link[count];
+        for (int i = 0; i < count; i++) {
+            String url = urls[random.nextInt(urls.length)];
+            String version = versions[random.nextInt(versions.length)];
+            links[i] = version == null ? new Link(url) : new Link(url, version(version));
+        }
+        return links;
+    }
+
+    /**
+     * @throws IllegalStateException if the diff differs from a full rebuild
+     */
+    private static void check(String rootPath, Link[] before, Link[] after) {
+        SupportedObjectIndex previous = SupportedObjectIndex.build(rootPath, before);
+        SupportedObjectDiff diff = SupportedObjectDiff.compute(rootPath, before, previous, after);
+        SupportedObjectIndex expected = SupportedObjectIndex.build(rootPath, after);
+        Map<Integer, String> added = new HashMap<>();
+        Map<Integer, String> removed = new HashMap<>();
+        Map<Integer, String> updated = new HashMap<>();
+        compare(previous, expected, added, removed, updated);
+        boolean sameCounts = true;
+        for (int objectId : expected.getObjectIds()) {
+            sameCounts &= expected.getLinkCount(objectId) == diff.getIndex().getLinkCount(objectId);
+        }
+        if (!expected.toMap().equals(diff.getIndex().toMap()) || !sameCounts || !added.equals(diff.getAdded())
+                || !removed.equals(diff.getRemoved()) || !updated.equals(diff.getUpdated())) {
+            throw new IllegalStateException(String.format("Diff from %s to %s is %s instead of %s, %s, %s",
+                    Arrays.toString(before), Arrays.toString(after), diff, added, removed, updated));
+        }
+    }
+
+    /**
+     * Changes between two full indexes.
+     */
+    private static int compare(SupportedObjectIndex previous, SupportedObjectIndex index, Map<Integer, String> added,
+            Map<Integer, String> removed, Map<Integer, String> updated) {
+        for (int objectId : index.getObjectIds()) {
+            String previousVersion = previous.getVersion(objectId);
+            String version = index.getVersion(objectId);
+            if (previousVersion == null) {
+                added.put(objectId, version);
+            } else if (!previousVersion.equals(version)) {
+                updated.put(objectId, version);
+            }
+        }
+        for (int objectId : previous.getObjectIds()) {
+            if (!index.supports(objectId)) {
+                removed.put(objectId, previous.getVersion(objectId));
+            }
+        }
+        return added.size() + removed.size() + updated.size();
+    }
+
+    @Benchmark
+    public Map<Integer, String> rebuildMap() {
+        return LinkFormatParsing.getSupportedObject_enhanced(rootPath, links);
+    }
+
+    @Benchmark
+    public SupportedObjectIndex rebuildIndex() {
+        return SupportedObjectIndex.build(rootPath, links);
+    }
+
+    @Benchmark
+    public int rebuildIndexAndCompare() {
+        SupportedObjectIndex index = SupportedObjectIndex.build(rootPath, links);
+        return compare(previousIndex, index, new HashMap<Integer, String>(), new HashMap<Integer, String>(),
+                new HashMap<Integer, String>());
+    }
+
+    @Benchmark
+    public SupportedObjectDiff diff() {
+        return SupportedObjectDiff.compute(rootPath, previousLinks, previousIndex, links);
+    }
+}
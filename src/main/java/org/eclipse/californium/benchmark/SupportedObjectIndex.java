@@ -0,0 +1,383 @@
+package org.eclipse.californium.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.attributes.Attribute;
+import org.eclipse.leshan.core.model.ObjectModel;
+
+/**
+ * Immutable index (object Id => object Version) of the objects supported by a client.
+ * <p>
+ * This is the precomputed equivalent of the Map returned by {@code getSupportedObject*} in {@link LinkFormatParsing}:
+ * object ids are stored in an open addressing int table (no boxing) and the usual "major.minor" versions come from a
+ * fixed table so all registrations share the same String instances. Lookups are O(1) and do not allocate.
+ */
+public final class SupportedObjectIndex {
+
+    private static final int EMPTY = -1;
+    private static final int MAX_CACHED_VERSION = 16;
+
+    private static final String[][] VERSIONS = new String[MAX_CACHED_VERSION][MAX_CACHED_VERSION];
+    static {
+        for (int major = 0; major < MAX_CACHED_VERSION; major++) {
+            for (int minor = 0; minor < MAX_CACHED_VERSION; minor++) {
+                VERSIONS[major][minor] = major + "." + minor;
+            }
+        }
+    }
+
+    public static final SupportedObjectIndex EMPTY_INDEX = new Builder(0).build();
+
+    private final int[] objectIds;
+    private final String[] versions;
+    // number of object links of each object
+    private final int[] linkCounts;
+    private final int mask;
+    private final int size;
+
+    private SupportedObjectIndex(int[] objectIds, String[] versions, int[] linkCounts, int size) {
+        this.objectIds = objectIds;
+        this.versions = versions;
+        this.linkCounts = linkCounts;
+        this.mask = objectIds.length - 1;
+        this.size = size;
+    }
+
+    /**
+     * @return the version of the given object or null if this object is not supported
+     */
+    public String getVersion(int objectId) {
+        int i = indexOf(objectIds, mask, objectId);
+        return i < 0 ? null : versions[i];
+    }
+
+    public boolean supports(int objectId) {
+        return indexOf(objectIds, mask, objectId) >= 0;
+    }
+
+    public boolean supports(int objectId, String version) {
+        int i = indexOf(objectIds, mask, objectId);
+        if (i < 0)
+            return false;
+        String v = versions[i];
+        return v == version || v.equals(version);
+    }
+
+    /**
+     * @return the number of object links targeting this object or its instances, 0 if it is not supported
+     */
+    public int getLinkCount(int objectId) {
+        int i = indexOf(objectIds, mask, objectId);
+        return i < 0 ? 0 : linkCounts[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the sorted supported object ids
+     */
+    public int[] getObjectIds() {
+        int[] ids = new int[size];
+        int j = 0;
+        for (int id : objectIds) {
+            if (id != EMPTY)
+                ids[j++] = id;
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * @return the same content as the Map returned by {@code getSupportedObject*}
+     */
+    public Map<Integer, String> toMap() {
+        Map<Integer, String> map = new HashMap<>(size * 2);
+        for (int i = 0; i < objectIds.length; i++) {
+            if (objectIds[i] != EMPTY)
+                map.put(objectIds[i], versions[i]);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SupportedObjectIndex %s", toMap());
+    }
+
+    /**
+     * Build the index from the object links of a registration.
+     */
+    public static SupportedObjectIndex build(String rootPath, Link[] objectLinks) {
+        Builder builder = new Builder(objectLinks.length);
+        for (Link link : objectLinks) {
+            if (link != null) {
+                int objectId = getObjectId(link.getUrl(), rootPath);
+                if (objectId >= 0) {
+                    Object version = link.getAttributes().get(Attribute.OBJECT_VERSION);
+                    builder.add(objectId, version instanceof String ? internVersion((String) version) : null);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Build the index directly from a link-format registration payload.
+     */
+    public static SupportedObjectIndex parse(byte[] payload, String rootPath) {
+        Builder builder = new Builder(16);
+        ObjectLinkParser.parse(payload, rootPath, builder);
+        return builder.build();
+    }
+
+    /**
+     * Versions are sent by clients, only the ones of the fixed table are shared : an unbounded intern pool would let
+     * any client grow the server memory.
+     *
+     * @return the shared instance of this version string if it is a usual "major.minor" one, the string itself
+     *         otherwise
+     */
+    public static String internVersion(String version) {
+        int length = version.length();
+        int dot = version.indexOf('.');
+        if (length < 3 || length > 5 || dot < 1 || dot > 2 || dot == length - 1)
+            return version;
+        int major = parseVersionPart(version, 0, dot);
+        int minor = parseVersionPart(version, dot + 1, length);
+        if (major < 0 || minor < 0)
+            return version;
+        String shared = VERSIONS[major][minor];
+        return shared.equals(version) ? shared : version;
+    }
+
+    /**
+     * @return the value of these digits if it is below {@link #MAX_CACHED_VERSION}, -1 otherwise
+     */
+    private static int parseVersionPart(String version, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = version.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value < MAX_CACHED_VERSION ? value : -1;
+    }
+
+    /**
+     * @return the shared "major.minor" version string, a new one for unusual versions
+     */
+    public static String version(int major, int minor) {
+        if (major < MAX_CACHED_VERSION && minor < MAX_CACHED_VERSION)
+            return VERSIONS[major][minor];
+        return major + "." + minor;
+    }
+
+    /**
+     * @return the object id targeted by this url or -1 if this is not an object link
+     */
+    static int getObjectId(String url, String rootPath) {
+        if (!url.startsWith(rootPath))
+            return -1;
+        int length = url.length();
+        int start = rootPath.length();
+        if (start == length)
+            return -1;
+        long objectId = -1;
+        long value = 0;
+        int digits = 0;
+        for (int i = start; i <= length; i++) {
+            char c = i < length ? url.charAt(i) : '/';
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE)
+                    return -1;
+                digits++;
+            } else if (c == '/' && digits > 0) {
+                if (objectId < 0)
+                    objectId = value;
+                value = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
+        }
+        return (int) objectId;
+    }
+
+    private static int indexOf(int[] objectIds, int mask, int objectId) {
+        int i = hash(objectId) & mask;
+        while (true) {
+            int id = objectIds[i];
+            if (id == objectId)
+                return i;
+            if (id == EMPTY)
+                return -1;
+            i = (i + 1) & mask;
+        }
+    }
+
+    private static int hash(int objectId) {
+        int h = objectId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Mutable builder, not thread safe. Versions added should come from {@link SupportedObjectIndex#internVersion}.
+     */
+    public static class Builder implements ObjectLinkParser.Handler {
+
+        private int[] objectIds;
+        private String[] versions;
+        private int[] linkCounts;
+        private int size;
+        // true when arrays are shared with a built index
+        private boolean shared;
+
+        public Builder(int expectedSize) {
+            int capacity = 4;
+            while (capacity < expectedSize * 2)
+                capacity <<= 1;
+            objectIds = new int[capacity];
+            Arrays.fill(objectIds, EMPTY);
+            versions = new String[capacity];
+            linkCounts = new int[capacity];
+        }
+
+        /**
+         * Start from the content of an index, its arrays are only copied on the first modification.
+         */
+        public Builder(SupportedObjectIndex index) {
+            objectIds = index.objectIds;
+            versions = index.versions;
+            linkCounts = index.linkCounts;
+            size = index.size;
+            shared = true;
+        }
+
+        /**
+         * Add an object link, version is null when the link has no "ver" attribute.
+         */
+        public Builder add(int objectId, String version) {
+            int i = slot(objectId);
+            if (objectIds[i] == EMPTY) {
+                // we never find version for this object add it
+                objectIds[i] = objectId;
+                versions[i] = version != null ? version : ObjectModel.DEFAULT_VERSION;
+                linkCounts[i] = 1;
+                if (++size * 2 > objectIds.length)
+                    resize();
+            } else {
+                linkCounts[i]++;
+                if (version != null && !version.equals(ObjectModel.DEFAULT_VERSION)) {
+                    // if version is already set, we override it only if new version is not DEFAULT_VERSION
+                    versions[i] = version;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Set the version and the number of links of an object, replacing its previous values.
+         */
+        public Builder put(int objectId, String version, int linkCount) {
+            int i = slot(objectId);
+            versions[i] = version;
+            linkCounts[i] = linkCount;
+            if (objectIds[i] == EMPTY) {
+                objectIds[i] = objectId;
+                if (++size * 2 > objectIds.length)
+                    resize();
+            }
+            return this;
+        }
+
+        public Builder remove(int objectId) {
+            int i = slot(objectId);
+            if (objectIds[i] == EMPTY)
+                return this;
+            // backward shift deletion, keeps the probe sequences without tombstones
+            int mask = objectIds.length - 1;
+            int hole = i;
+            for (int j = (i + 1) & mask; objectIds[j] != EMPTY; j = (j + 1) & mask) {
+                int home = hash(objectIds[j]) & mask;
+                // move j to the hole unless its home is cyclically in ]hole, j]
+                if (hole <= j ? (home <= hole || home > j) : (home <= hole && home > j)) {
+                    objectIds[hole] = objectIds[j];
+                    versions[hole] = versions[j];
+                    linkCounts[hole] = linkCounts[j];
+                    hole = j;
+                }
+            }
+            objectIds[hole] = EMPTY;
+            versions[hole] = null;
+            linkCounts[hole] = 0;
+            size--;
+            return this;
+        }
+
+        /**
+         * @return the slot of this object id or the empty slot where it would be added, arrays being writable
+         */
+        private int slot(int objectId) {
+            if (shared) {
+                objectIds = objectIds.clone();
+                versions = versions.clone();
+                linkCounts = linkCounts.clone();
+                shared = false;
+            }
+            int mask = objectIds.length - 1;
+            int i = hash(objectId) & mask;
+            while (objectIds[i] != EMPTY && objectIds[i] != objectId)
+                i = (i + 1) & mask;
+            return i;
+        }
+
+        @Override
+        public void objectLink(byte[] content, int objectId, int instanceId, int version, int versionStart,
+                int versionEnd) {
+            String v;
+            if (version == ObjectLinkParser.NO_VERSION) {
+                v = null;
+            } else if (version == ObjectLinkParser.INVALID_VERSION) {
+                // not shared, see internVersion
+                v = new String(content, versionStart, versionEnd - versionStart, StandardCharsets.UTF_8);
+            } else {
+                v = version(ObjectLinkParser.major(version), ObjectLinkParser.minor(version));
+            }
+            add(objectId, v);
+        }
+
+        public SupportedObjectIndex build() {
+            shared = true;
+            return new SupportedObjectIndex(objectIds, versions, linkCounts, size);
+        }
+
+        private void resize() {
+            int[] oldIds = objectIds;
+            String[] oldVersions = versions;
+            int[] oldCounts = linkCounts;
+            objectIds = new int[oldIds.length * 2];
+            Arrays.fill(objectIds, EMPTY);
+            versions = new String[objectIds.length];
+            linkCounts = new int[objectIds.length];
+            int mask = objectIds.length - 1;
+            for (int j = 0; j < oldIds.length; j++) {
+                if (oldIds[j] != EMPTY) {
+                    int i = hash(oldIds[j]) & mask;
+                    while (objectIds[i] != EMPTY)
+                        i = (i + 1) & mask;
+                    objectIds[i] = oldIds[j];
+                    versions[i] = oldVersions[j];
+                    linkCounts[i] = oldCounts[j];
+                }
+            }
+        }
+    }
+}
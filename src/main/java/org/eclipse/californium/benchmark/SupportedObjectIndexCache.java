@@ -0,0 +1,111 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Attach a {@link SupportedObjectIndex} to each {@link Registration} so the index is built only once per registration.
+ * <p>
+ * Registration instances are rebuilt each time they are read from a store, so the index is memoized by registration id.
+ * A registration update always changes the last update date, this date (and the number of links) is used to detect
+ * that the memoized index is stale. {@link #remove(String)} must be called when a registration is removed.
+ * <p>
+ * A stale index is updated with a {@link SupportedObjectDiff} against the previous links rather than rebuilt, and the
+ * diff is given to the listeners when the supported objects changed. The memoized entry is only replaced by a newer
+ * registration, and the listeners are only called by the thread which replaced it, so a diff is notified once even when
+ * several threads get the index of the same update, and an older registration read late is never diffed backwards.
+ * <p>
+ * To compute the diffs, each entry keeps the object links of its registration. With a store keeping its Registration
+ * instances (in memory) they are shared with the store, with a store rebuilding them on each read (Redis) this is one
+ * more copy of the parsed links of each registration, see {@link LinkInterner} to share them.
+ */
+public class SupportedObjectIndexCache {
+
+    public interface Listener {
+        /**
+         * Called by the thread getting the index of an updated registration, when its supported objects changed.
+         */
+        void supportedObjectsChanged(Registration registration, SupportedObjectDiff diff);
+    }
+
+    private static class Entry {
+        final long lastUpdate;
+        final String rootPath;
+        final Link[] links;
+        final SupportedObjectIndex index;
+
+        Entry(long lastUpdate, String rootPath, Link[] links, SupportedObjectIndex index) {
+            this.lastUpdate = lastUpdate;
+            this.rootPath = rootPath;
+            this.links = links;
+            this.index = index;
+        }
+    }
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public SupportedObjectIndex get(Registration registration) {
+        String id = registration.getId();
+        long lastUpdate = registration.getLastUpdate().getTime();
+        Link[] links = registration.getObjectLinks();
+        String rootPath = registration.getRootPath();
+
+        while (true) {
+            Entry entry = entries.get(id);
+            if (entry != null && entry.lastUpdate == lastUpdate && entry.links.length == links.length) {
+                return entry.index;
+            }
+            if (entry != null && entry.lastUpdate > lastUpdate) {
+                // older than the memoized registration, not memoized
+                return SupportedObjectIndex.build(rootPath, links);
+            }
+
+            SupportedObjectDiff diff = null;
+            SupportedObjectIndex index;
+            if (entry != null && entry.rootPath.equals(rootPath)) {
+                diff = SupportedObjectDiff.compute(rootPath, entry.links, entry.index, links);
+                index = diff.getIndex();
+            } else {
+                index = SupportedObjectIndex.build(rootPath, links);
+            }
+            Entry updated = new Entry(lastUpdate, rootPath, links, index);
+            boolean replaced = entry == null ? entries.putIfAbsent(id, updated) == null
+                    : entries.replace(id, entry, updated);
+            if (replaced) {
+                if (diff != null && !diff.isEmpty()) {
+                    for (Listener listener : listeners) {
+                        listener.supportedObjectsChanged(registration, diff);
+                    }
+                }
+                return index;
+            }
+            // another thread memoized this registration first, start again from its entry
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void remove(String registrationId) {
+        entries.remove(registrationId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
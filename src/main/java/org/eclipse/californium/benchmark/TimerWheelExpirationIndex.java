@@ -0,0 +1,200 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expiration times of keys (e.g. registration ids, expiring at lastUpdate + lifetime) in a hierarchical timer wheel,
+ * to find the expired keys without scanning all of them.
+ * <p>
+ * Time is divided in ticks of tickMillis. Level 0 has one slot per tick for the next 64 ticks, level 1 one slot per 64
+ * ticks for the next 64^2 ticks and so on over 6 levels, farther expirations wait in the last level. Each slot is a
+ * doubly linked list, so {@link #schedule(Object, long)} (also to reschedule on update) and {@link #cancel(Object)}
+ * are O(1). {@link #advance(long)} returns the keys expired since the previous call in one batch, moving the entries
+ * of a higher level slot down when the lower level wraps : an entry moves at most once per level.
+ * <p>
+ * Keys never expire early, at most one tick late. Not thread safe, a store calls it under its own lock.
+ */
+public class TimerWheelExpirationIndex<K> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+    // ticks covered by the wheel, farther expirations are clamped and moved down again later
+    private static final long SPAN = 1L << (BITS * LEVELS);
+
+    private static class Node<K> {
+        private final K key;
+        private long expiration;
+        private long tick;
+        private Node<K> prev = this;
+        private Node<K> next = this;
+
+        Node(K key) {
+            this.key = key;
+        }
+    }
+
+    private final long tickMillis;
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+    // slot list heads, sentinel nodes
+    private final Node<K>[][] wheel;
+    // scheduled at or before the current tick, expired by the next advance
+    private final Node<K> overdue = new Node<>(null);
+    private long currentTick;
+
+    /**
+     * @param tickMillis the resolution, e.g. 1000 for lifetimes in seconds
+     * @param nowMillis the current time, expirations are absolute times on the same clock
+     */
+    public TimerWheelExpirationIndex(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Node<K>[][] array = new Node[LEVELS][SLOTS];
+        this.wheel = array;
+        for (Node<K>[] level : wheel) {
+            for (int i = 0; i < SLOTS; i++) {
+                level[i] = new Node<>(null);
+            }
+        }
+    }
+
+    /**
+     * Schedules the expiration of the key, replacing its previous one.
+     */
+    public void schedule(K key, long expirationMillis) {
+        Node<K> node = nodes.get(key);
+        if (node == null) {
+            node = new Node<>(key);
+            nodes.put(key, node);
+        } else {
+            unlink(node);
+        }
+        node.expiration = expirationMillis;
+        // rounded up, never early
+        node.tick = expirationMillis / tickMillis + (expirationMillis % tickMillis > 0 ? 1 : 0);
+        if (node.tick <= currentTick) {
+            link(overdue, node);
+        } else {
+            insert(node);
+        }
+    }
+
+    /**
+     * @return false if the key was not scheduled
+     */
+    public boolean cancel(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node == null)
+            return false;
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * @return the scheduled expiration time of the key, or -1
+     */
+    public long getExpiration(K key) {
+        Node<K> node = nodes.get(key);
+        return node == null ? -1 : node.expiration;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Advances the wheel to the given time and removes the expired keys.
+     *
+     * @return the keys expired at nowMillis, in expiration tick order
+     */
+    public List<K> advance(long nowMillis) {
+        long target = nowMillis / tickMillis;
+        List<K> expired = drain(overdue, null);
+        while (currentTick < target) {
+            if (nodes.isEmpty()) {
+                currentTick = target;
+                break;
+            }
+            currentTick++;
+            int index = (int) (currentTick & MASK);
+            if (index == 0) {
+                cascade(1);
+            }
+            expired = drain(wheel[0][index], expired);
+        }
+        return expired == null ? Collections.<K> emptyList() : expired;
+    }
+
+    private void insert(Node<K> node) {
+        long tick = node.tick;
+        long delta = tick - currentTick;
+        if (delta >= SPAN) {
+            tick = currentTick + SPAN - 1;
+            delta = SPAN - 1;
+        }
+        int level = delta < SLOTS ? 0 : (63 - Long.numberOfLeadingZeros(delta)) / BITS;
+        link(wheel[level][(int) ((tick >>> (BITS * level)) & MASK)], node);
+    }
+
+    /**
+     * Moves the entries of the current slot of the level down, once the lower level wrapped.
+     */
+    private void cascade(int level) {
+        int index = (int) ((currentTick >>> (BITS * level)) & MASK);
+        if (index == 0 && level + 1 < LEVELS) {
+            cascade(level + 1);
+        }
+        Node<K> head = wheel[level][index];
+        Node<K> node = head.next;
+        head.next = head;
+        head.prev = head;
+        while (node != head) {
+            Node<K> next = node.next;
+            insert(node);
+            node = next;
+        }
+    }
+
+    private List<K> drain(Node<K> head, List<K> expired) {
+        Node<K> node = head.next;
+        if (node == head)
+            return expired;
+        if (expired == null) {
+            expired = new ArrayList<>();
+        }
+        while (node != head) {
+            Node<K> next = node.next;
+            nodes.remove(node.key);
+            expired.add(node.key);
+            node.prev = node;
+            node.next = node;
+            node = next;
+        }
+        head.next = head;
+        head.prev = head;
+        return expired;
+    }
+
+    private static <K> void link(Node<K> head, Node<K> node) {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private static <K> void unlink(Node<K> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = node;
+        node.next = node;
+    }
+}
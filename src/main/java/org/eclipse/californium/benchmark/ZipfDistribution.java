@@ -0,0 +1,34 @@
+package org.eclipse.californium.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Zipf distribution over [0, n[ : rank k is drawn with a probability proportional to 1 / (k+1)^exponent. Used to
+ * simulate skewed access patterns (few very active devices, many quiet ones).
+ */
+public class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    public ZipfDistribution(int n, double exponent) {
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    public int sample(Random random) {
+        int i = Arrays.binarySearch(cumulative, random.nextDouble());
+        return i >= 0 ? i : Math.min(-i - 1, cumulative.length - 1);
+    }
+
+    public int size() {
+        return cumulative.length;
+    }
+}
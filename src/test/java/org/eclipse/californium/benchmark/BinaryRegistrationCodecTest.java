@@ -0,0 +1,40 @@
+package org.eclipse.californium.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Test;
+
+public class BinaryRegistrationCodecTest {
+
+    private final RegistrationCodec binary = new BinaryRegistrationCodec();
+
+    @Test
+    public void round_trip_registration_with_1000_links() {
+        Link[] links = new Link[1000];
+        for (int i = 0; i < links.length; i++) {
+            HashMap<String, String> attr = new HashMap<>();
+            attr.put("ver", "2.1");
+            links[i] = new Link("/" + i + "/0", attr);
+        }
+        Registration registration = new Registration.Builder("regid_long", "endpoint2",
+                Identity.unsecure(new InetSocketAddress("localhost", 4000))).objectLinks(links).build();
+
+        assertEquals(registration, binary.deserialize(binary.serialize(registration)));
+    }
+
+    @Test
+    public void round_trip_psk_registration() {
+        Registration registration = new Registration.Builder("regid", "endpoint",
+                Identity.psk(new InetSocketAddress("127.0.0.1", 5684), "pskid"))
+                        .objectLinks(Link.parse("</>;rt=\"oma.lwm2m\",</1/0>,</3/0>,</44>;ver=2.2".getBytes()))
+                        .smsNumber("0123456789").build();
+
+        assertEquals(registration, binary.deserialize(binary.serialize(registration)));
+    }
+}
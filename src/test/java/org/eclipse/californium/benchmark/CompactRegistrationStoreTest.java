@@ -0,0 +1,72 @@
+package org.eclipse.californium.benchmark;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Deregistration;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Test;
+
+public class CompactRegistrationStoreTest {
+
+    private final CompactRegistrationStore store = new CompactRegistrationStore();
+
+    private static Registration registration(String id, String endpoint, int port) {
+        return new Registration.Builder(id, endpoint, Identity.unsecure(new InetSocketAddress("127.0.0.1", port)))
+                .objectLinks(Link.parse("</1/0>,</3/0>,</44>;ver=2.2".getBytes())).build();
+    }
+
+    @Test
+    public void add_registration_again_with_same_id() {
+        store.addRegistration(registration("regid", "endpoint", 5683));
+        Deregistration deregistration = store.addRegistration(registration("regid", "endpoint", 5684));
+
+        assertEquals(5683, deregistration.getRegistration().getPort());
+        assertEquals(5684, store.getRegistration("regid").getPort());
+        assertEquals(1, store.size());
+        assertNull(store.getRegistrationByAdress(new InetSocketAddress("127.0.0.1", 5683)));
+
+        assertNotNull(store.removeRegistration("regid"));
+        assertNull(store.getRegistrationByEndpoint("endpoint"));
+        assertNull(store.getRegistrationByAdress(new InetSocketAddress("127.0.0.1", 5684)));
+        assertEquals(0, store.getLinkSetCount());
+    }
+
+    @Test
+    public void add_registration_again_with_new_id() {
+        store.addRegistration(registration("regid1", "endpoint", 5683));
+        store.addRegistration(registration("regid2", "endpoint", 5683));
+
+        assertNull(store.getRegistration("regid1"));
+        assertEquals("regid2", store.getRegistrationByEndpoint("endpoint").getId());
+        assertEquals("regid2", store.getRegistrationByAdress(new InetSocketAddress("127.0.0.1", 5683)).getId());
+        assertEquals(1, store.size());
+        assertEquals(1, store.getLinkSetCount());
+    }
+
+    @Test
+    public void keep_client_strings_out_of_the_dictionary() {
+        for (int i = 0; i < 100; i++) {
+            Link[] links = Link.parse(("</" + i + "/0>;ver=\"1." + i + "\";x" + i + "=" + i + ",</3/0>").getBytes());
+            store.addRegistration(new Registration.Builder("regid" + i, "endpoint" + i,
+                    Identity.unsecure(new InetSocketAddress("127.0.0.1", 5683 + i))).objectLinks(links)
+                            .lwM2mVersion("9." + i)
+                            .additionalRegistrationAttributes(Collections.singletonMap("k" + i, "v" + i)).build());
+
+            Registration registration = store.getRegistration("regid" + i);
+            assertArrayEquals(links, registration.getObjectLinks());
+            assertEquals("9." + i, registration.getLwM2mVersion());
+            assertEquals(Collections.singletonMap("k" + i, "v" + i),
+                    registration.getAdditionalRegistrationAttributes());
+        }
+        // the binding mode and "ver"
+        assertEquals(2, store.getDictionary().size());
+    }
+}
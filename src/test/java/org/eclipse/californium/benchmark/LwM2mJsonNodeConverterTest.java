@@ -0,0 +1,39 @@
+package org.eclipse.californium.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.junit.Test;
+
+public class LwM2mJsonNodeConverterTest {
+
+    private final LwM2mJsonStreamingDecoder decoder = new LwM2mJsonStreamingDecoder();
+    private final LwM2mJsonNodeConverter converter = new LwM2mJsonNodeConverter(
+            new StaticModel(ObjectLoader.loadDefault()));
+
+    private LwM2mResource convert(String payload, LwM2mPath path) throws LwM2mJsonException {
+        return (LwM2mResource) converter.convert(decoder.fromJsonLwM2m(payload.getBytes(StandardCharsets.UTF_8)),
+                path);
+    }
+
+    @Test
+    public void convert_object_link() throws LwM2mJsonException {
+        LwM2mResource resource = convert("{\"bn\":\"/3/0/\",\"e\":[{\"n\":\"9999\",\"ov\":\"3303:12\"}]}",
+                new LwM2mPath(3, 0, 9999));
+
+        assertEquals(new ObjectLink(3303, 12), resource.getValue());
+    }
+
+    @Test(expected = CodecException.class)
+    public void reject_invalid_object_link() throws LwM2mJsonException {
+        convert("{\"bn\":\"/3/0/\",\"e\":[{\"n\":\"9999\",\"ov\":\"3303\"}]}", new LwM2mPath(3, 0, 9999));
+    }
+}
@@ -0,0 +1,46 @@
+package org.eclipse.californium.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.junit.Test;
+
+public class LwM2mJsonStreamingDecoderTest {
+
+    private final LwM2mJsonStreamingDecoder decoder = new LwM2mJsonStreamingDecoder();
+
+    @Test
+    public void decode_slice() throws LwM2mJsonException {
+        byte[] bytes = "xx{\"e\":[{\"n\":\"1\",\"v\":2.5e1}]}yy".getBytes(StandardCharsets.UTF_8);
+        JsonRootObject root = decoder.fromJsonLwM2m(bytes, 2, bytes.length - 4);
+
+        assertEquals(25.0, root.getResourceList().get(0).getFloatValue().doubleValue(), 0);
+    }
+
+    @Test
+    public void reject_exponent_without_digits_at_end() {
+        assertInvalidNumber("{\"e\":[{\"n\":\"1\",\"v\":1e".getBytes(StandardCharsets.UTF_8), 0);
+        assertInvalidNumber("{\"e\":[{\"n\":\"1\",\"v\":1e-".getBytes(StandardCharsets.UTF_8), 0);
+    }
+
+    @Test
+    public void reject_exponent_completed_past_slice() {
+        // the slices end after "1e" and "1e+", the following bytes must not be read
+        assertInvalidNumber("{\"e\":[{\"n\":\"1\",\"v\":1e5}]}".getBytes(StandardCharsets.UTF_8), 4);
+        assertInvalidNumber("{\"e\":[{\"n\":\"1\",\"v\":1e+5}]}".getBytes(StandardCharsets.UTF_8), 4);
+    }
+
+    private void assertInvalidNumber(byte[] bytes, int excluded) {
+        try {
+            decoder.fromJsonLwM2m(bytes, 0, bytes.length - excluded);
+            fail("Decoded " + new String(bytes, 0, bytes.length - excluded, StandardCharsets.UTF_8));
+        } catch (LwM2mJsonException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Invalid number"));
+        }
+    }
+}
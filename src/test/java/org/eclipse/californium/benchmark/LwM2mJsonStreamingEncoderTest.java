@@ -0,0 +1,83 @@
+package org.eclipse.californium.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.json.JsonArrayEntry;
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.eclipse.leshan.core.json.jackson.LwM2mJsonJacksonEncoderDecoder;
+import org.eclipse.leshan.core.json.minimaljson.LwM2mJsonMinimalEncoderDecoder;
+import org.junit.Test;
+
+/**
+ * Base name / base time factoring : a factored payload must decode, with each decoder, to the same resolved names,
+ * times and values as the plain one.
+ */
+public class LwM2mJsonStreamingEncoderTest {
+
+    private final Lwm2mJsonBench.MyState lwm2m = new Lwm2mJsonBench.MyState();
+    private final LwM2mJsonJacksonEncoderDecoder jackson = new LwM2mJsonJacksonEncoderDecoder();
+    private final LwM2mJsonMinimalEncoderDecoder minimal = new LwM2mJsonMinimalEncoderDecoder();
+    private final LwM2mJsonStreamingEncoder factoringEncoder = new LwM2mJsonStreamingEncoder(lwm2m.pool, true);
+
+    @Test
+    public void factor_datasets() throws LwM2mJsonException {
+        for (String dataset : new String[] { "big", "absolute", "resource", "timeseries" }) {
+            checkFactoring(Lwm2mJsonFactoringBench.dataset(dataset, lwm2m.bigRootObject));
+        }
+    }
+
+    @Test
+    public void factor_partial_names_and_times() throws LwM2mJsonException {
+        // escaping and non ASCII
+        checkFactoring(jackson.fromJsonLwM2m("{\"bn\":\"/3/0\",\"e\":[{\"n\":\"/1\",\"sv\":\"a\\\"/é\",\"t\":-5},"
+                + "{\"n\":\"/14\",\"sv\":\"+02:00\",\"t\":5},{\"n\":\"/1\",\"bv\":true}],\"bt\":100}"));
+        checkFactoring(jackson.fromJsonLwM2m("{\"e\":[{\"n\":\"/a/é/1\",\"v\":1,\"t\":3},"
+                + "{\"n\":\"/a/é/2\",\"v\":2,\"t\":3},{\"n\":\"/a/é/\",\"v\":3,\"t\":3}]}"));
+    }
+
+    @Test
+    public void factor_empty_names() throws LwM2mJsonException {
+        checkFactoring(jackson.fromJsonLwM2m("{\"e\":[{\"n\":\"\",\"v\":1},{\"v\":2,\"t\":3}]}"));
+    }
+
+    private void checkFactoring(JsonRootObject original) throws LwM2mJsonException {
+        String plain = new String(lwm2m.streamingEncoder.toJsonLwM2m(original), StandardCharsets.UTF_8);
+        String factored = new String(factoringEncoder.toJsonLwM2m(original), StandardCharsets.UTF_8);
+
+        assertTrue(factored, factored.length() <= plain.length());
+        // each decoder against itself, minimal-json decodes all numbers as doubles
+        assertEquals(factored, resolve(jackson.fromJsonLwM2m(plain)), resolve(jackson.fromJsonLwM2m(factored)));
+        assertEquals(factored, resolve(minimal.fromJsonLwM2m(plain)), resolve(minimal.fromJsonLwM2m(factored)));
+    }
+
+    /**
+     * @return the entries with their full name and absolute time, without base name and base time
+     */
+    private static JsonRootObject resolve(JsonRootObject root) {
+        List<JsonArrayEntry> entries = new ArrayList<>();
+        String baseName = root.getBaseName() != null ? root.getBaseName() : "";
+        for (JsonArrayEntry entry : root.getResourceList()) {
+            JsonArrayEntry resolved = new JsonArrayEntry();
+            resolved.setName(entry.getName() != null ? baseName + entry.getName()
+                    : root.getBaseName() != null ? baseName : null);
+            if (entry.getTime() != null || root.getBaseTime() != null) {
+                resolved.setTime((entry.getTime() != null ? entry.getTime() : 0)
+                        + (root.getBaseTime() != null ? root.getBaseTime() : 0));
+            }
+            resolved.setFloatValue(entry.getFloatValue());
+            resolved.setBooleanValue(entry.getBooleanValue());
+            resolved.setObjectLinkValue(entry.getObjectLinkValue());
+            resolved.setStringValue(entry.getStringValue());
+            entries.add(resolved);
+        }
+        JsonRootObject resolved = new JsonRootObject();
+        resolved.setResourceList(entries);
+        return resolved;
+    }
+}
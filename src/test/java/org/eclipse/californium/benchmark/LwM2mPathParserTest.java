@@ -0,0 +1,78 @@
+package org.eclipse.californium.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.junit.Test;
+
+/**
+ * Differential test of {@link LwM2mPathParser} against {@code new LwM2mPath(String)}.
+ */
+public class LwM2mPathParserTest {
+
+    @Test
+    public void parse_edge_cases_as_lwm2m_path() {
+        String[] paths = { "", "/", "//", "///", "0", "/0", "0/", "/0/", "3/0/1/2", "/3/0/1/2/", "3/0/1/2/3", "3//0",
+                "3/0//", "//3", "/65534/65534/65534/65534", "/65535", "/1/65535", "/0065534", "/99999999999", "/-0",
+                "/+1", "/-1", "/a", "/ 1", "/1 ", "/1/a/2" };
+        for (String path : paths) {
+            check(path);
+        }
+    }
+
+    @Test
+    public void parse_object_link_urls_as_lwm2m_path() {
+        LinkFormatParsing.MyState registrations = new LinkFormatParsing.MyState();
+        for (Link[] links : new Link[][] { registrations.reg.getObjectLinks(),
+                registrations.reg_long.getObjectLinks() }) {
+            for (Link link : links) {
+                String path = link.getUrl().substring(1);
+                check(path);
+                assertEquals(LwM2mPathParser.parse(path), LwM2mPathParser.parse(link.getUrl(), "/"));
+            }
+        }
+    }
+
+    @Test
+    public void parse_random_paths_as_lwm2m_path() {
+        Random random = new Random(0);
+        char[] alphabet = "0123456789////+-a".toCharArray();
+        for (int i = 0; i < 100000; i++) {
+            char[] path = new char[random.nextInt(14)];
+            for (int j = 0; j < path.length; j++) {
+                path[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            check(new String(path));
+        }
+    }
+
+    /**
+     * Fails if the parser and LwM2mPath differ on a path, besides the documented differences: signs, empty ids and
+     * the reserved id 65535 are rejected by the parser.
+     */
+    private static void check(String path) {
+        LwM2mPath expected;
+        try {
+            expected = new LwM2mPath(path);
+        } catch (RuntimeException e) {
+            expected = null;
+        }
+        long actual = LwM2mPathParser.parse(path);
+        if (actual != LwM2mPathParser.INVALID) {
+            assertEquals("\"" + path + "\"", expected, LwM2mPathParser.toLwM2mPath(actual));
+        } else if (expected != null && !path.contains("+") && !path.contains("-") && !path.contains("//")
+                && !hasReservedId(expected)) {
+            fail(String.format("\"%s\" rejected instead of %s", path, expected));
+        }
+    }
+
+    private static boolean hasReservedId(LwM2mPath path) {
+        Integer reserved = 65535;
+        return reserved.equals(path.getObjectId()) || reserved.equals(path.getObjectInstanceId())
+                || reserved.equals(path.getResourceId()) || reserved.equals(path.getResourceInstanceId());
+    }
+}
@@ -0,0 +1,152 @@
+package org.eclipse.californium.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Test;
+
+public class NotificationPipelineTest {
+
+    private static final Registration REGISTRATION = new Registration.Builder("regid", "endpoint",
+            Identity.unsecure(new InetSocketAddress("127.0.0.1", 5683))).build();
+    private static final byte[] PAYLOAD = "{\"bn\":\"/3/0/\",\"e\":[{\"n\":\"9\",\"v\":87}]}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final AtomicLong notified = new AtomicLong();
+    // guarded by itself
+    private final Map<NotificationPipeline.Notification, Integer> errors = new IdentityHashMap<>();
+
+    private NotificationPipeline newPipeline(int queueCapacity) {
+        return newPipeline(queueCapacity, new LwM2mJsonNodeConverter(new StaticModel(ObjectLoader.loadDefault())));
+    }
+
+    private NotificationPipeline newPipeline(int queueCapacity, LwM2mJsonNodeConverter converter) {
+        return new NotificationPipeline(new NotificationPipeline.RegistrationLookup() {
+            @Override
+            public Map<String, Registration> getRegistrations(Collection<String> registrationIds) {
+                return Collections.singletonMap(REGISTRATION.getId(), REGISTRATION);
+            }
+        }, converter, new NotificationPipeline.Listener() {
+            @Override
+            public void onNotification(NotificationPipeline.Notification notification, Registration registration,
+                    LwM2mNode node) {
+                notified.incrementAndGet();
+            }
+
+            @Override
+            public void onError(NotificationPipeline.Notification notification, Exception error) {
+                synchronized (errors) {
+                    Integer count = errors.get(notification);
+                    errors.put(notification, count == null ? 1 : count + 1);
+                }
+            }
+        }, queueCapacity, 8);
+    }
+
+    private static NotificationPipeline.Notification notification() {
+        return new NotificationPipeline.Notification("regid", new LwM2mPath(3, 0, 9), PAYLOAD);
+    }
+
+    @Test
+    public void process_submitted_on_close() throws InterruptedException {
+        NotificationPipeline pipeline = newPipeline(16);
+        for (int i = 0; i < 100; i++) {
+            pipeline.submit(notification());
+        }
+        pipeline.close();
+
+        assertEquals(100, pipeline.getProcessedCount());
+        assertEquals(100, notified.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void reject_submit_after_close() throws InterruptedException {
+        NotificationPipeline pipeline = newPipeline(16);
+        pipeline.close();
+        pipeline.submit(notification());
+    }
+
+    @Test(timeout = 10_000)
+    public void close_while_submitting() throws InterruptedException {
+        final NotificationPipeline pipeline = newPipeline(4);
+        final AtomicLong accepted = new AtomicLong();
+        final CountDownLatch started = new CountDownLatch(4);
+        Thread[] submitters = new Thread[4];
+        for (int i = 0; i < submitters.length; i++) {
+            submitters[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        while (true) {
+                            pipeline.submit(notification());
+                            accepted.incrementAndGet();
+                        }
+                    } catch (IllegalStateException | InterruptedException e) {
+                        // closed
+                    }
+                }
+            });
+            submitters[i].start();
+        }
+        started.await();
+        Thread.sleep(50);
+        pipeline.close();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        // nothing left behind the end of stream
+        assertEquals(accepted.get(), pipeline.getProcessedCount() + pipeline.getDroppedCount());
+    }
+
+    @Test(timeout = 10_000)
+    public void fail_notifications_once_when_the_stage_fails() throws InterruptedException {
+        final CountDownLatch submitted = new CountDownLatch(1);
+        // resources 9 fail one by one, resources 10 fail the rest of their batch
+        LwM2mJsonNodeConverter converter = new LwM2mJsonNodeConverter(new StaticModel(ObjectLoader.loadDefault())) {
+            @Override
+            public LwM2mNode convert(JsonRootObject root, LwM2mPath path) {
+                try {
+                    // the next notifications are batched meanwhile
+                    submitted.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (path.getResourceId() == 9) {
+                    throw new CodecException("Invalid %s", path);
+                }
+                throw new IllegalStateException("Converter failure");
+            }
+        };
+        NotificationPipeline pipeline = newPipeline(16, converter);
+        for (int i = 0; i < 8; i++) {
+            pipeline.submit(new NotificationPipeline.Notification("regid", new LwM2mPath(3, 0, 9 + i % 2), PAYLOAD));
+        }
+        Thread.sleep(100);
+        submitted.countDown();
+        pipeline.close();
+
+        assertEquals(8, pipeline.getDroppedCount());
+        assertEquals(8, errors.size());
+        for (Integer count : errors.values()) {
+            assertEquals(1, count.intValue());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.eclipse.californium.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.leshan.core.Link;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SupportedObjectIndexCacheTest {
+
+    private final SupportedObjectIndexCache cache = new SupportedObjectIndexCache();
+    private final List<SupportedObjectDiff> diffs = new ArrayList<>();
+
+    @Before
+    public void listen() {
+        cache.addListener(new SupportedObjectIndexCache.Listener() {
+            @Override
+            public void supportedObjectsChanged(Registration registration, SupportedObjectDiff diff) {
+                diffs.add(diff);
+            }
+        });
+    }
+
+    private static Registration registration(long lastUpdate, String links) {
+        return new Registration.Builder("regid", "endpoint",
+                Identity.unsecure(new InetSocketAddress("127.0.0.1", 5683))).lastUpdate(new Date(lastUpdate))
+                        .objectLinks(Link.parse(links.getBytes())).build();
+    }
+
+    @Test
+    public void notify_update_once() {
+        cache.get(registration(1000, "</1/0>,</3/0>"));
+        SupportedObjectIndex index = cache.get(registration(2000, "</1/0>,</3/0>,</3303/0>"));
+
+        assertTrue(index.supports(3303));
+        assertEquals(1, diffs.size());
+        assertSame(index, cache.get(registration(2000, "</1/0>,</3/0>,</3303/0>")));
+        assertEquals(1, diffs.size());
+    }
+
+    @Test
+    public void ignore_older_registration() {
+        cache.get(registration(1000, "</1/0>,</3/0>"));
+        SupportedObjectIndex index = cache.get(registration(3000, "</1/0>,</3/0>,</3303/0>"));
+
+        // an instance read before the update arriving last
+        assertFalse(cache.get(registration(2000, "</1/0>,</3/0>")).supports(3303));
+        assertEquals(1, diffs.size());
+        assertSame(index, cache.get(registration(3000, "</1/0>,</3/0>,</3303/0>")));
+        assertEquals(1, diffs.size());
+    }
+}